@@ -6,6 +6,7 @@ package edu.byu.cstaheli.cs478.baseline;
 
 import edu.byu.cstaheli.cs478.toolkit.learner.supervised.SupervisedLearner;
 import edu.byu.cstaheli.cs478.toolkit.strategy.LearningStrategy;
+import edu.byu.cstaheli.cs478.toolkit.utility.ColumnStatistics;
 import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
 
 /**
@@ -27,12 +28,13 @@ public class BaselineLearner extends SupervisedLearner
     public void train(LearningStrategy strategy) throws Exception
     {
         Matrix labels = strategy.getTrainingLabels();
+        ColumnStatistics statistics = labels.getColumnStatistics();
         m_labels = new double[labels.cols()];
         for (int i = 0; i < labels.cols(); i++)
         {
             if (labels.valueCount(i) == 0)
             {
-                m_labels[i] = labels.columnMean(i); // continuous
+                m_labels[i] = statistics.mean(i); // continuous
             }
             else
             {
@@ -1,26 +1,62 @@
 package edu.byu.cstaheli.cs478.clustering;
 
+import edu.byu.cstaheli.cs478.toolkit.utility.Histogram;
 import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.StringJoiner;
 
-import static edu.byu.cstaheli.cs478.toolkit.utility.Utility.euclideanDistance;
 import static edu.byu.cstaheli.cs478.toolkit.utility.Utility.getFormattedDouble;
 
 /**
  * Represents a Cluster in a clustering, unsupervised algorithm, such as k-means or HAC.
+ * <p>
+ * A cluster is identified by an id, and doesn't keep a list of its rows. Which cluster every row is in is kept in a
+ * {@link Membership} shared by all the clusters of a clustering, as one int per row, so two clusters are compared by
+ * their ids and moving a row between clusters is constant time. A cluster made on its own has a membership of its own,
+ * which the rows given to {@link #add(double[])} are appended to.
  */
 public class Cluster
 {
-    private List<double[]> rows;
+    private int id;
+    private Membership membership;
+    private boolean shared;
+    private int size;
     private double[] centroid;
     private Matrix dataset;
+    private double[] sums;
+    private int[] counts;
+    private Histogram[] occurrences;
+    private DistanceKernel kernel;
 
     public Cluster(double[] centroid, Matrix dataset)
+    {
+        this(centroid, dataset, DistanceKernel.create(dataset, DistanceKernel.Metric.MANHATTAN));
+    }
+
+    /**
+     * Creates a cluster that measures distances with the given kernel.
+     *
+     * @param centroid the centroid to start at
+     * @param dataset  the dataset the rows come from
+     * @param kernel   the kernel to measure distances with, created for the same dataset
+     */
+    public Cluster(double[] centroid, Matrix dataset, DistanceKernel kernel)
     {
         this.centroid = centroid;
-        rows = new ArrayList<>();
+        this.kernel = kernel;
+        membership = new Membership();
         this.dataset = dataset;
+        sums = new double[centroid.length];
+        counts = new int[centroid.length];
+        occurrences = new Histogram[centroid.length];
+        for (int i = 0; i < centroid.length; ++i)
+        {
+            if (!isColumnContinuous(i))
+            {
+                occurrences[i] = new Histogram(dataset.valueCount(i));
+            }
+        }
     }
 
     @Override
@@ -31,16 +67,32 @@ public class Cluster
 
         Cluster cluster = (Cluster) o;
 
-        if (!rows.equals(cluster.rows)) return false;
-        return Arrays.equals(centroid, cluster.centroid);
+        return id == cluster.id && membership == cluster.membership;
     }
 
     @Override
     public int hashCode()
     {
-        int result = rows.hashCode();
-        result = 31 * result + Arrays.hashCode(centroid);
-        return result;
+        return id;
+    }
+
+    /**
+     * Makes the cluster one of the clusters of a shared membership, with no rows.
+     *
+     * @param id         the id of the cluster, which is its index among the clusters of the clustering
+     * @param membership the membership of the rows being clustered
+     */
+    void attach(int id, Membership membership)
+    {
+        this.id = id;
+        this.membership = membership;
+        shared = true;
+        reset();
+    }
+
+    public int getId()
+    {
+        return id;
     }
 
     private boolean isColumnContinuous(int column)
@@ -56,42 +108,139 @@ public class Cluster
     public double calcDistance(double[] first, double[] second)
     {
         assert first.length == second.length;
-        double distance = 0;
-        for (int i = 0; i < first.length; ++i)
+        return kernel.distance(first, second);
+    }
+
+    public DistanceKernel getKernel()
+    {
+        return kernel;
+    }
+
+    void setKernel(DistanceKernel kernel)
+    {
+        this.kernel = kernel;
+    }
+
+    private boolean isValueUnknown(double value)
+    {
+        return Double.compare(value, Matrix.MISSING) == 0;
+    }
+
+    public void clear()
+    {
+        if (!shared)
         {
-            double firstValue = first[i];
-            double secondValue = second[i];
-            if (isValueUnknown(firstValue) || isValueUnknown(secondValue))
-            {
-                distance += 1;
-            }
-            else if (isColumnContinuous(i))
+            membership = new Membership();
+        }
+        else if (size > 0)
+        {
+            for (int member : getMembers())
             {
-                distance += euclideanDistance(firstValue, secondValue);
-                //Verification test uses squared distance, not euclidean
-//                distance += squaredDistance(firstValue, secondValue);
+                membership.setCluster(member, Membership.UNASSIGNED);
             }
-            else
+        }
+        reset();
+    }
+
+    /**
+     * Empties the cluster without taking its rows out of the membership, for when the whole membership has just been
+     * cleared.
+     */
+    void reset()
+    {
+        size = 0;
+        Arrays.fill(sums, 0);
+        Arrays.fill(counts, 0);
+        for (Histogram histogram : occurrences)
+        {
+            if (histogram != null)
             {
-                distance += Double.compare(firstValue, secondValue) == 0 ? 0 : 1;
+                histogram.clear();
             }
         }
-        return distance;
     }
 
-    private boolean isValueUnknown(double value)
+    /**
+     * Adds a row to the cluster. The sums and counts that the next centroid is calculated from are kept up to date as
+     * rows are added, so calculating it doesn't need to go back over the rows.
+     *
+     * @param row the row to add
+     * @return the index of the row, to remove it with
+     */
+    public int add(double[] row)
     {
-        return Double.compare(value, Matrix.MISSING) == 0;
+        int index = membership.append(row);
+        add(index);
+        return index;
     }
 
-    public void clear()
+    /**
+     * Adds a row of the membership to the cluster.
+     *
+     * @param index the index of the row, which must not be in any cluster
+     */
+    void add(int index)
     {
-        rows.clear();
+        membership.setCluster(index, id);
+        ++size;
+        accumulate(membership.read(index));
     }
 
-    public void add(double[] row)
+    /**
+     * Adds a row to the sums and counts the next centroid is calculated from, without making it a member of the
+     * cluster, for rows that are streamed past rather than kept.
+     *
+     * @param row the row
+     */
+    void accumulate(double[] row)
+    {
+        for (int i = 0; i < row.length; ++i)
+        {
+            double value = row[i];
+            if (isValueUnknown(value))
+            {
+                continue;
+            }
+            if (occurrences[i] == null)
+            {
+                sums[i] += value;
+                ++counts[i];
+            }
+            else
+            {
+                occurrences[i].add(value);
+            }
+        }
+    }
+
+    /**
+     * Removes a row from the cluster.
+     *
+     * @param index the index of the row in the membership, as returned by {@link #add(double[])}, which must be in this
+     *              cluster
+     */
+    public void remove(int index)
     {
-        rows.add(row);
+        membership.setCluster(index, Membership.UNASSIGNED);
+        --size;
+        double[] row = membership.read(index);
+        for (int i = 0; i < row.length; ++i)
+        {
+            double value = row[i];
+            if (isValueUnknown(value))
+            {
+                continue;
+            }
+            if (occurrences[i] == null)
+            {
+                sums[i] -= value;
+                --counts[i];
+            }
+            else
+            {
+                occurrences[i].add(value, -1);
+            }
+        }
     }
 
     public void calculateNewCentroid()
@@ -111,115 +260,56 @@ public class Cluster
 
     private double calcColumnAverage(int column)
     {
-        double[] columnValues = getColumnValues(column);
-        if (isColumnContinuous(column))
+        if (occurrences[column] == null)
         {
-            return calculateArrayAverage(columnValues);
+            return calculateAverage(column);
         }
         else
         {
-            return calculateArrayMode(columnValues);
+            return calculateMode(column);
         }
     }
 
-    private double calculateArrayAverage(double[] columnValues)
+    private double calculateAverage(int column)
     {
-        double sum = 0;
-        int counter = 0;
-        for (double value : columnValues)
-        {
-            if (Double.compare(value, Matrix.MISSING) != 0)
-            {
-                sum += value;
-                ++counter;
-            }
-        }
-        if (sum == 0)
+        if (sums[column] == 0)
         {
             return Matrix.MISSING;
         }
         else
         {
-            return sum / counter;
-        }
-    }
-
-    private double calculateArrayMode(double[] columnValues)
-    {
-//        Arrays.sort(columnValues);
-//        double median;
-//        if (columnValues.length % 2 == 0)
-//        {
-//            median = (columnValues[columnValues.length / 2] + columnValues[columnValues.length / 2 - 1]) / 2;
-//        }
-//        else
-//        {
-//            median = columnValues[columnValues.length / 2];
-//        }
-//        return median;
-
-        Map<Double, Integer> occurrences = new TreeMap<>();
-        for (double v : columnValues)
-        {
-            occurrences.merge(v, 1, (a, b) -> a + b);
-        }
-        int highestCount = 0;
-        double mode = -1;
-        assert occurrences.entrySet().size() > 0;
-        for (Map.Entry<Double, Integer> entry : occurrences.entrySet())
-        {
-            if (Double.compare(entry.getKey(), Matrix.MISSING) != 0 && entry.getValue() > highestCount)
-            {
-                highestCount = entry.getValue();
-                mode = entry.getKey();
-            }
-        }
-        return mode;
-    }
-
-    /**
-     * Adds all of the values in the cluster from the specified column to an array. This doesn't add missing values
-     *
-     * @param column the column to take from.
-     * @return the values in the column
-     */
-    private double[] getColumnValues(int column)
-    {
-        double[] columnValues = new double[rows.size()];
-        for (int i = 0; i < rows.size(); ++i)
-        {
-            double value = get(i, column);
-            columnValues[i] = value;
+            return sums[column] / counts[column];
         }
-        return columnValues;
     }
 
-    private double get(int rowNumber, int column)
+    private double calculateMode(int column)
     {
-        return rows.get(rowNumber)[column];
+        return occurrences[column].mostCommon(-1);
     }
 
     public double calculateAverageInternalDissimilarity()
     {
-        return calculateAverageDissimilarity(rows, rows);
+        int[] members = getMembers();
+        return calculateAverageDissimilarity(membership, members, membership, members);
     }
 
     public double calculateAverageExternalDissimilarity(Cluster other)
     {
-        return calculateAverageDissimilarity(rows, other.rows);
+        return calculateAverageDissimilarity(membership, getMembers(), other.membership, other.getMembers());
     }
 
-    private double calculateAverageDissimilarity(List<double[]> first, List<double[]> second)
+    private double calculateAverageDissimilarity(Membership firstMembership, int[] first, Membership secondMembership, int[] second)
     {
         double sum = 0;
         double count = 0;
-        for (int i = 0; i < first.size(); ++i)
+        for (int i = 0; i < first.length; ++i)
         {
-            for (int j = 0; j < second.size(); ++j)
+            double[] row = firstMembership.row(first[i]);
+            for (int j = 0; j < second.length; ++j)
             {
                 if (i != j)
                 {
-                    sum += calcDistance(first.get(i), second.get(j));
+                    sum += calcDistance(row, secondMembership.read(second[j]));
                     ++count;
                 }
             }
@@ -256,7 +346,18 @@ public class Cluster
 
     public int size()
     {
-        return rows.size();
+        return size;
+    }
+
+    /**
+     * Returns the rows in the cluster, in the order of the membership. Finding them looks at every row of the
+     * membership.
+     *
+     * @return the indexes of the rows in the membership
+     */
+    public int[] getMembers()
+    {
+        return membership.members(id, size);
     }
 
     public boolean empty()
@@ -267,9 +368,9 @@ public class Cluster
     public double calcSSE()
     {
         double value = 0;
-        for (double[] row : rows)
+        for (int member : getMembers())
         {
-            value += calcDistanceFromCentroid(row);
+            value += calcDistanceFromCentroid(membership.read(member));
         }
         return value;
     }
@@ -0,0 +1,229 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.utility.Normalizer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The centroids that a clustering learned, frozen so that new rows can be assigned to the nearest of them. The
+ * centroids are packed one after another into a single array, and nothing changes after the model is created, so any
+ * number of threads can assign rows with the same model at the same time.
+ * <p>
+ * A row is assigned exactly as {@link KMeans} assigns it: to the nearest centroid, measured with the same
+ * {@link DistanceKernel}, with ties going to the first. The rows must have the same columns as the rows that were
+ * clustered, after any columns that weren't used were dropped. If the clustered rows were normalized, the model can
+ * carry the fitted {@link Normalizer}, and new rows are given as they are, before normalizing: each row is normalized
+ * in a copy before it is assigned.
+ * <p>
+ * A model can be saved to a file and loaded back. The file holds:
+ * <pre>
+ * "CLST", version, the distance kernel, k, cols, the centroids one after another, then whether there is a
+ * normalizer, and the normalizer if there is one
+ * </pre>
+ * where numbers are 4 byte ints, the values of the centroids are doubles, the kernel is its metric, its runs of
+ * columns and, for {@link DistanceKernel.Metric#HEOM}, the scale of every column, and the normalizer is its type and
+ * the offset and range of every column it scales. Files from version 1, which had no normalizer, can still be loaded.
+ */
+public final class ClusterModel
+{
+    private static final byte[] MAGIC = {'C', 'L', 'S', 'T'};
+    private static final int VERSION = 2;
+
+    private final int k;
+    private final int cols;
+    private final double[] centroids;
+    private final DistanceKernel kernel;
+    private final Normalizer normalizer;
+
+    private ClusterModel(int k, int cols, double[] centroids, DistanceKernel kernel, Normalizer normalizer)
+    {
+        this.k = k;
+        this.cols = cols;
+        this.centroids = centroids;
+        this.kernel = kernel;
+        this.normalizer = normalizer;
+    }
+
+    /**
+     * Copies the centroids of the clusters.
+     *
+     * @param clusters   the clusters, which must have the same number of columns
+     * @param kernel     the kernel the rows were measured with
+     * @param normalizer the normalizer the rows were normalized with, with the same columns as the centroids, or null
+     *                   if they weren't
+     * @return the model
+     */
+    static ClusterModel of(List<Cluster> clusters, DistanceKernel kernel, Normalizer normalizer)
+    {
+        if (clusters.isEmpty())
+        {
+            throw new IllegalStateException("There are no clusters to make a model of");
+        }
+        int cols = clusters.get(0)
+                .getCentroid().length;
+        double[] centroids = new double[clusters.size() * cols];
+        for (int i = 0; i < clusters.size(); ++i)
+        {
+            System.arraycopy(clusters.get(i)
+                    .getCentroid(), 0, centroids, i * cols, cols);
+        }
+        if (normalizer != null && normalizer.cols() != cols)
+        {
+            throw new IllegalArgumentException(String.format("The normalizer has %s columns, but the centroids have %s", normalizer.cols(), cols));
+        }
+        return new ClusterModel(clusters.size(), cols, centroids, kernel, normalizer);
+    }
+
+    /**
+     * Finds the cluster a row belongs to.
+     *
+     * @param row the row, with the same columns as the centroids. It isn't changed if it has to be normalized.
+     * @return the index of the nearest centroid
+     */
+    public int assign(double[] row)
+    {
+        if (row.length != cols)
+        {
+            throw new IllegalArgumentException(String.format("The row has %s columns, but the centroids have %s", row.length, cols));
+        }
+        if (normalizer != null)
+        {
+            row = row.clone();
+            normalizer.apply(row);
+        }
+        double bestDistance = Double.MAX_VALUE;
+        int bestCluster = 0;
+        for (int i = 0; i < k; ++i)
+        {
+            double distance = kernel.distance(row, centroids, i * cols);
+            if (distance < bestDistance)
+            {
+                bestDistance = distance;
+                bestCluster = i;
+            }
+        }
+        return bestCluster;
+    }
+
+    /**
+     * Finds the cluster every row belongs to.
+     *
+     * @param rows the rows, with the same columns as the centroids
+     * @return the index of the nearest centroid of every row
+     */
+    public int[] assign(double[][] rows)
+    {
+        int[] assignments = new int[rows.length];
+        for (int i = 0; i < rows.length; ++i)
+        {
+            assignments[i] = assign(rows[i]);
+        }
+        return assignments;
+    }
+
+    public int getK()
+    {
+        return k;
+    }
+
+    public int cols()
+    {
+        return cols;
+    }
+
+    public DistanceKernel.Metric getMetric()
+    {
+        return kernel.getMetric();
+    }
+
+    /**
+     * Returns the normalizer that rows are normalized with before they are assigned.
+     *
+     * @return the normalizer, or null if rows are assigned as they are
+     */
+    public Normalizer getNormalizer()
+    {
+        return normalizer;
+    }
+
+    /**
+     * Returns a copy of a centroid.
+     *
+     * @param cluster the index of the cluster
+     * @return the centroid
+     */
+    public double[] getCentroid(int cluster)
+    {
+        return Arrays.copyOfRange(centroids, cluster * cols, (cluster + 1) * cols);
+    }
+
+    /**
+     * Writes the model to a file.
+     *
+     * @param fileName the path to the file. It is overwritten if it exists.
+     * @throws IOException if the file can't be written
+     */
+    public void save(String fileName) throws IOException
+    {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName))))
+        {
+            output.write(MAGIC);
+            output.writeInt(VERSION);
+            kernel.write(output);
+            output.writeInt(k);
+            output.writeInt(cols);
+            for (double value : centroids)
+            {
+                output.writeDouble(value);
+            }
+            output.writeBoolean(normalizer != null);
+            if (normalizer != null)
+            {
+                normalizer.write(output);
+            }
+        }
+    }
+
+    /**
+     * Reads a model written by {@link #save(String)}.
+     *
+     * @param fileName the path to the file
+     * @return the model
+     * @throws IOException if the file can't be read or isn't a model
+     */
+    public static ClusterModel load(String fileName) throws IOException
+    {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName))))
+        {
+            byte[] magic = new byte[MAGIC.length];
+            input.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC))
+            {
+                throw new IOException("Not a cluster model: " + fileName);
+            }
+            int version = input.readInt();
+            if (version < 1 || version > VERSION)
+            {
+                throw new IOException("Unsupported cluster model version " + version + ": " + fileName);
+            }
+            DistanceKernel kernel = DistanceKernel.read(input);
+            int k = input.readInt();
+            int cols = input.readInt();
+            double[] centroids = new double[k * cols];
+            for (int i = 0; i < centroids.length; ++i)
+            {
+                centroids[i] = input.readDouble();
+            }
+            Normalizer normalizer = version > 1 && input.readBoolean() ? Normalizer.read(input) : null;
+            return new ClusterModel(k, cols, centroids, kernel, normalizer);
+        }
+    }
+}
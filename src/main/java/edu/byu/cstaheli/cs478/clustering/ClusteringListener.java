@@ -0,0 +1,65 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import java.util.List;
+
+/**
+ * Is told how clustering is going. Every method does nothing by default, so a listener only needs to implement what it
+ * is interested in.
+ */
+public interface ClusteringListener
+{
+    /**
+     * A listener that ignores everything.
+     */
+    ClusteringListener NONE = new ClusteringListener()
+    {
+    };
+
+    /**
+     * Called at the start of every iteration, before any rows are assigned.
+     *
+     * @param iteration the number of the iteration, starting at 1
+     * @param clusters  the clusters, with the centroids the rows are about to be assigned to
+     */
+    default void iterationStarted(int iteration, List<Cluster> clusters)
+    {
+    }
+
+    /**
+     * Called once every row has been assigned to a cluster.
+     *
+     * @param assignments the index of the cluster of every row. This must not be changed.
+     */
+    default void rowsAssigned(int[] assignments)
+    {
+    }
+
+    /**
+     * Called at the end of every iteration, once the centroids have moved.
+     *
+     * @param progress what happened during the iteration
+     */
+    default void iterationFinished(IterationProgress progress)
+    {
+    }
+
+    /**
+     * Called when something unusual happened, such as an empty cluster being repaired.
+     *
+     * @param message a description of what happened
+     */
+    default void message(String message)
+    {
+    }
+
+    /**
+     * Called once clustering has finished.
+     *
+     * @param clusters   the final clusters
+     * @param sse        the total SSE of the clusters
+     * @param silhouette the silhouette of the clustering
+     */
+    default void clusteringFinished(List<Cluster> clusters, double sse, double silhouette)
+    {
+    }
+}
@@ -0,0 +1,316 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.utility.ColumnStatistics;
+import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the distance between two rows of a dataset. Which columns are continuous and which are nominal is worked
+ * out once, when the kernel is created, and the columns are split into runs of neighboring columns of the same type.
+ * Each run is measured with a plain loop over a slice of both arrays, with no per-column lookups, which the JIT can
+ * unroll and turn into straight-line code.
+ * <p>
+ * In every metric a missing value is 1 from anything, and two nominal values are 0 apart if they are the same and 1
+ * if they aren't. The metrics differ in how continuous values are compared, see {@link Metric}. The columns are always
+ * added up from first to last, so {@link Metric#MANHATTAN} gives exactly the same distances {@link Cluster} always has.
+ */
+public class DistanceKernel
+{
+    private final Metric metric;
+    private final int[] runStarts;
+    private final int[] runEnds;
+    private final boolean[] runContinuous;
+    private final double[] scales;
+
+    private DistanceKernel(Metric metric, int[] runStarts, int[] runEnds, boolean[] runContinuous, double[] scales)
+    {
+        this.metric = metric;
+        this.runStarts = runStarts;
+        this.runEnds = runEnds;
+        this.runContinuous = runContinuous;
+        this.scales = scales;
+    }
+
+    /**
+     * Creates a kernel for the rows of the dataset.
+     *
+     * @param dataset the dataset, which tells which columns are continuous. For {@link Metric#HEOM}, it is also where
+     *                the ranges of the continuous columns come from.
+     * @param metric  how to measure distances
+     * @return the kernel
+     */
+    public static DistanceKernel create(Matrix dataset, Metric metric)
+    {
+        double[] ranges = null;
+        if (metric == Metric.HEOM)
+        {
+            ColumnStatistics statistics = dataset.getColumnStatistics();
+            ranges = new double[dataset.cols()];
+            for (int i = 0; i < dataset.cols(); ++i)
+            {
+                ranges[i] = statistics.count(i) > 0 ? statistics.max(i) - statistics.min(i) : 0;
+            }
+        }
+        return create(dataset, metric, ranges);
+    }
+
+    /**
+     * Creates a kernel for rows whose ranges are already known, such as rows that are streamed rather than held in
+     * the dataset.
+     *
+     * @param dataset the dataset, which only needs to tell which columns are continuous
+     * @param metric  how to measure distances
+     * @param ranges  for {@link Metric#HEOM}, the difference between the largest and smallest value of every
+     *                continuous column, or 0 if it has no values. It isn't used by the other metrics.
+     * @return the kernel
+     */
+    static DistanceKernel create(Matrix dataset, Metric metric, double[] ranges)
+    {
+        List<int[]> runs = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= dataset.cols(); ++i)
+        {
+            if (i == dataset.cols() || isContinuous(dataset, i) != isContinuous(dataset, start))
+            {
+                runs.add(new int[]{start, i});
+                start = i;
+            }
+        }
+        int[] runStarts = new int[runs.size()];
+        int[] runEnds = new int[runs.size()];
+        boolean[] runContinuous = new boolean[runs.size()];
+        for (int i = 0; i < runs.size(); ++i)
+        {
+            runStarts[i] = runs.get(i)[0];
+            runEnds[i] = runs.get(i)[1];
+            runContinuous[i] = isContinuous(dataset, runStarts[i]);
+        }
+
+        double[] scales = null;
+        if (metric == Metric.HEOM)
+        {
+            scales = new double[dataset.cols()];
+            for (int i = 0; i < dataset.cols(); ++i)
+            {
+                scales[i] = ranges[i] > 0 ? 1 / ranges[i] : 1;
+            }
+        }
+        return new DistanceKernel(metric, runStarts, runEnds, runContinuous, scales);
+    }
+
+    private static boolean isContinuous(Matrix dataset, int column)
+    {
+        return dataset.valueCount(column) == 0;
+    }
+
+    public Metric getMetric()
+    {
+        return metric;
+    }
+
+    /**
+     * Measures the distance between two rows.
+     *
+     * @param first  a row
+     * @param second another row with the same columns
+     * @return the distance between them
+     */
+    public double distance(double[] first, double[] second)
+    {
+        return distance(first, second, 0);
+    }
+
+    /**
+     * Measures the distance from a row to a row packed into a bigger array, such as one of several centroids stored
+     * one after another.
+     *
+     * @param first  a row
+     * @param second the array the other row is in
+     * @param offset where the other row starts in the array
+     * @return the distance between them
+     */
+    double distance(double[] first, double[] second, int offset)
+    {
+        double missing = Matrix.MISSING;
+        double distance = 0;
+        for (int run = 0; run < runStarts.length; ++run)
+        {
+            int start = runStarts[run];
+            int end = runEnds[run];
+            if (!runContinuous[run])
+            {
+                distance = nominal(first, second, offset, start, end, missing, distance);
+            }
+            else if (metric == Metric.MANHATTAN)
+            {
+                distance = manhattan(first, second, offset, start, end, missing, distance);
+            }
+            else if (metric == Metric.SQUARED_EUCLIDEAN)
+            {
+                distance = squared(first, second, offset, start, end, missing, distance);
+            }
+            else
+            {
+                distance = scaledSquared(first, second, offset, start, end, missing, distance);
+            }
+        }
+        return metric == Metric.HEOM ? Math.sqrt(distance) : distance;
+    }
+
+    private static double nominal(double[] first, double[] second, int offset, int start, int end, double missing, double distance)
+    {
+        for (int i = start; i < end; ++i)
+        {
+            double a = first[i];
+            double b = second[offset + i];
+            distance += a == missing || b == missing || a != b ? 1 : 0;
+        }
+        return distance;
+    }
+
+    private static double manhattan(double[] first, double[] second, int offset, int start, int end, double missing, double distance)
+    {
+        for (int i = start; i < end; ++i)
+        {
+            double a = first[i];
+            double b = second[offset + i];
+            distance += a == missing || b == missing ? 1 : Math.abs(a - b);
+        }
+        return distance;
+    }
+
+    private static double squared(double[] first, double[] second, int offset, int start, int end, double missing, double distance)
+    {
+        for (int i = start; i < end; ++i)
+        {
+            double a = first[i];
+            double b = second[offset + i];
+            double difference = a - b;
+            distance += a == missing || b == missing ? 1 : difference * difference;
+        }
+        return distance;
+    }
+
+    private double scaledSquared(double[] first, double[] second, int offset, int start, int end, double missing, double distance)
+    {
+        for (int i = start; i < end; ++i)
+        {
+            double a = first[i];
+            double b = second[offset + i];
+            double difference = (a - b) * scales[i];
+            distance += a == missing || b == missing ? 1 : difference * difference;
+        }
+        return distance;
+    }
+
+    /**
+     * Writes the kernel, so it can be read back with {@link #read(DataInputStream)} without the dataset.
+     *
+     * @param output where to write it
+     * @throws IOException if it can't be written
+     */
+    void write(DataOutputStream output) throws IOException
+    {
+        output.writeUTF(metric.option);
+        output.writeInt(runStarts.length);
+        for (int run = 0; run < runStarts.length; ++run)
+        {
+            output.writeInt(runStarts[run]);
+            output.writeInt(runEnds[run]);
+            output.writeBoolean(runContinuous[run]);
+        }
+        output.writeBoolean(scales != null);
+        if (scales != null)
+        {
+            output.writeInt(scales.length);
+            for (double scale : scales)
+            {
+                output.writeDouble(scale);
+            }
+        }
+    }
+
+    /**
+     * Reads a kernel written by {@link #write(DataOutputStream)}.
+     *
+     * @param input where to read it from
+     * @return the kernel
+     * @throws IOException if it can't be read
+     */
+    static DistanceKernel read(DataInputStream input) throws IOException
+    {
+        Metric metric = Metric.fromOption(input.readUTF());
+        int runs = input.readInt();
+        int[] runStarts = new int[runs];
+        int[] runEnds = new int[runs];
+        boolean[] runContinuous = new boolean[runs];
+        for (int run = 0; run < runs; ++run)
+        {
+            runStarts[run] = input.readInt();
+            runEnds[run] = input.readInt();
+            runContinuous[run] = input.readBoolean();
+        }
+        double[] scales = null;
+        if (input.readBoolean())
+        {
+            scales = new double[input.readInt()];
+            for (int i = 0; i < scales.length; ++i)
+            {
+                scales[i] = input.readDouble();
+            }
+        }
+        return new DistanceKernel(metric, runStarts, runEnds, runContinuous, scales);
+    }
+
+    /**
+     * The ways to measure the distance between continuous values.
+     */
+    public enum Metric
+    {
+        /**
+         * The absolute difference, added up over the columns. This is what clustering has always used.
+         */
+        MANHATTAN("manhattan"),
+        /**
+         * The squared difference, added up over the columns, without taking the square root at the end. This isn't a
+         * true metric, so the triangle inequality can't be used to skip distances.
+         */
+        SQUARED_EUCLIDEAN("squared"),
+        /**
+         * The heterogeneous Euclidean-overlap metric (Wilson and Martinez, 1997): the difference divided by the range
+         * of the column, so every column counts for at most 1, then the square root of the sum of the squares.
+         */
+        HEOM("heom");
+
+        private final String option;
+
+        Metric(String option)
+        {
+            this.option = option;
+        }
+
+        /**
+         * Finds the metric with the given command line name.
+         *
+         * @param option manhattan, squared or heom
+         * @return the metric
+         * @throws IllegalArgumentException if there isn't one with that name
+         */
+        public static Metric fromOption(String option)
+        {
+            for (Metric metric : values())
+            {
+                if (metric.option.equals(option))
+                {
+                    return metric;
+                }
+            }
+            throw new IllegalArgumentException("Unrecognized distance metric: " + option);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.utility.ColumnStatistics;
+import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Assigns rows to their nearest centroids using Elkan's triangle inequality bounds, so most distances don't need to
+ * be computed once the centroids stop moving much. Every row keeps an upper bound on the distance to its centroid and
+ * a lower bound on the distance to every other centroid. When the centroids move, the bounds are loosened by how far
+ * they moved, and a centroid is only measured when the bounds (or half the distance between the two centroids) can't
+ * rule it out.
+ * <p>
+ * The assignments are exactly the ones an exhaustive search would make, including ties going to the first centroid.
+ * A centroid is only skipped when it is certainly farther away, with a little slack for rounding.
+ * <p>
+ * The {@link DistanceKernel.Metric#MANHATTAN} distance counts a missing value as 1 in any column, so the triangle
+ * inequality only holds when a missing value sits in a continuous column whose values are at most 2 apart. If data in
+ * a wider column is missing the bounds can't be used at all, and if a centroid is missing a value in a wider column
+ * every distance is computed until it isn't. {@link DistanceKernel.Metric#HEOM} scales every column to at most 1, so
+ * it always holds, and {@link DistanceKernel.Metric#SQUARED_EUCLIDEAN} isn't a metric, so it never does.
+ */
+class ElkanBounds
+{
+    private static final double SLACK = 1e-9;
+
+    private final boolean[] wideColumns;
+    private final boolean usable;
+    private double[][] centroids;
+    private int[] assignments;
+    private double[] upper;
+    private double[][] lower;
+    private final LongAdder distanceCount;
+
+    /**
+     * Checks whether the bounds can be used for the dataset.
+     *
+     * @param dataset the rows that are being clustered
+     * @param metric  how distances are measured
+     */
+    ElkanBounds(Matrix dataset, DistanceKernel.Metric metric)
+    {
+        ColumnStatistics statistics = dataset.getColumnStatistics();
+        wideColumns = new boolean[dataset.cols()];
+        boolean usable = metric != DistanceKernel.Metric.SQUARED_EUCLIDEAN;
+        for (int i = 0; i < dataset.cols() && metric == DistanceKernel.Metric.MANHATTAN; ++i)
+        {
+            if (dataset.valueCount(i) == 0 && statistics.count(i) > 0 && statistics.max(i) - statistics.min(i) > 2)
+            {
+                wideColumns[i] = true;
+                if (statistics.missingCount(i) > 0)
+                {
+                    usable = false;
+                }
+            }
+        }
+        this.usable = usable;
+        distanceCount = new LongAdder();
+    }
+
+    /**
+     * Returns whether the triangle inequality holds for the dataset. If it doesn't, {@link #assign} shouldn't be used.
+     *
+     * @return true if the bounds can be used
+     */
+    boolean isUsable()
+    {
+        return usable;
+    }
+
+    /**
+     * Returns how many distances have been computed so far.
+     *
+     * @return the number of distances computed
+     */
+    long getDistanceCount()
+    {
+        return distanceCount.sum();
+    }
+
+    /**
+     * Finds the nearest centroid of every row. The rows must be the same ones every time; the clusters can have
+     * changed in any way since the last call.
+     *
+     * @param rows     the rows to assign. Only the rows themselves are used, not which clusters they are in.
+     * @param clusters the clusters, with their current centroids
+     * @param parallel true to assign the rows on all cores
+     * @return the index of the nearest cluster of every row
+     */
+    int[] assign(Membership rows, List<Cluster> clusters, boolean parallel)
+    {
+        Cluster metric = clusters.get(0);
+        double[][] current = new double[clusters.size()][];
+        for (int i = 0; i < current.length; ++i)
+        {
+            current[i] = clusters.get(i)
+                    .getCentroid()
+                    .clone();
+        }
+
+        boolean exact = centroids == null || centroids.length != current.length || upper.length != rows.size()
+                || isMissingWideValue(centroids) || isMissingWideValue(current);
+        IntStream indexes = IntStream.range(0, rows.size());
+        if (parallel)
+        {
+            indexes = indexes.parallel();
+        }
+        if (exact)
+        {
+            assignments = new int[rows.size()];
+            upper = new double[rows.size()];
+            lower = new double[rows.size()][current.length];
+            indexes.forEach(i -> assignExactly(i, rows.read(i), current, metric));
+        }
+        else
+        {
+            double[] drift = new double[current.length];
+            double[][] half = new double[current.length][current.length];
+            double[] nearestHalf = new double[current.length];
+            for (int i = 0; i < current.length; ++i)
+            {
+                drift[i] = metric.calcDistance(centroids[i], current[i]);
+                nearestHalf[i] = Double.MAX_VALUE;
+                for (int j = 0; j < current.length; ++j)
+                {
+                    if (i != j)
+                    {
+                        half[i][j] = metric.calcDistance(current[i], current[j]) / 2;
+                        nearestHalf[i] = Math.min(nearestHalf[i], half[i][j]);
+                    }
+                }
+            }
+            distanceCount.add(current.length * (long) current.length);
+            indexes.forEach(i -> assignWithBounds(i, rows.read(i), current, drift, half, nearestHalf, metric));
+        }
+        centroids = current;
+        return assignments.clone();
+    }
+
+    private void assignExactly(int i, double[] row, double[][] current, Cluster metric)
+    {
+        double bestDistance = Double.MAX_VALUE;
+        int bestCluster = 0;
+        for (int j = 0; j < current.length; ++j)
+        {
+            double distance = metric.calcDistance(row, current[j]);
+            lower[i][j] = distance;
+            if (distance < bestDistance)
+            {
+                bestDistance = distance;
+                bestCluster = j;
+            }
+        }
+        distanceCount.add(current.length);
+        assignments[i] = bestCluster;
+        upper[i] = bestDistance;
+    }
+
+    private void assignWithBounds(int i, double[] row, double[][] current, double[] drift, double[][] half, double[] nearestHalf, Cluster metric)
+    {
+        double[] bounds = lower[i];
+        for (int j = 0; j < current.length; ++j)
+        {
+            bounds[j] = Math.max(0, bounds[j] - drift[j]);
+        }
+        int bestCluster = assignments[i];
+        double bestDistance = upper[i] + drift[bestCluster];
+        boolean tight = false;
+        int computed = 0;
+        if (!isClearlyGreater(nearestHalf[bestCluster], bestDistance))
+        {
+            for (int j = 0; j < current.length; ++j)
+            {
+                if (j == bestCluster || isClearlyGreater(bounds[j], bestDistance) || isClearlyGreater(half[bestCluster][j], bestDistance))
+                {
+                    continue;
+                }
+                if (!tight)
+                {
+                    bestDistance = metric.calcDistance(row, current[bestCluster]);
+                    bounds[bestCluster] = bestDistance;
+                    tight = true;
+                    ++computed;
+                    if (isClearlyGreater(bounds[j], bestDistance) || isClearlyGreater(half[bestCluster][j], bestDistance))
+                    {
+                        continue;
+                    }
+                }
+                double distance = metric.calcDistance(row, current[j]);
+                bounds[j] = distance;
+                ++computed;
+                if (distance < bestDistance || (distance == bestDistance && j < bestCluster))
+                {
+                    bestDistance = distance;
+                    bestCluster = j;
+                }
+            }
+        }
+        distanceCount.add(computed);
+        assignments[i] = bestCluster;
+        upper[i] = bestDistance;
+    }
+
+    private boolean isMissingWideValue(double[][] centroids)
+    {
+        for (double[] centroid : centroids)
+        {
+            for (int i = 0; i < centroid.length; ++i)
+            {
+                if (wideColumns[i] && Double.compare(centroid[i], Matrix.MISSING) == 0)
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the bound is greater than the value by more than rounding could account for.
+     */
+    private static boolean isClearlyGreater(double bound, double value)
+    {
+        return bound > value + SLACK * (1 + Math.abs(value));
+    }
+}
@@ -0,0 +1,443 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.learner.unsupervised.UnsupervisedLearner;
+import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import edu.byu.cstaheli.cs478.toolkit.utility.StorageType;
+
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static edu.byu.cstaheli.cs478.toolkit.utility.Utility.getFormattedDouble;
+
+/**
+ * Implements hierarchical agglomerative clustering: every row starts in its own cluster, and the two nearest clusters
+ * are merged until there are only k left.
+ * <p>
+ * The distances between clusters are kept in a condensed matrix (just the lower triangle, in one primitive array), and
+ * when two clusters merge, the distances to the new cluster are worked out from the old ones with the Lance-Williams
+ * formula for the {@link Linkage}, without going back to the rows. The merges are found with the nearest-neighbor chain
+ * algorithm, which follows nearest neighbors from cluster to cluster until two clusters are each other's nearest, and
+ * merges those. That takes O(n^2) time instead of the O(n^3) of searching the whole matrix for every merge, and gives
+ * the same merges for every linkage here. The merges then just need to be sorted by distance and applied until k
+ * clusters are left.
+ */
+public class HAC extends UnsupervisedLearner
+{
+    /**
+     * The most rows that the condensed distance matrix can hold.
+     */
+    public static final int MAX_ROWS = 65536;
+
+    private int k;
+    private Linkage linkage;
+    private DistanceKernel.Metric metric;
+    private boolean useLastColumnOfDataset;
+    private boolean useFirstColumnOfDataset;
+    private List<Cluster> clusters;
+    private int[] assignments;
+
+    public HAC(int k)
+    {
+        this.k = k;
+        linkage = Linkage.AVERAGE;
+        metric = DistanceKernel.Metric.MANHATTAN;
+        useLastColumnOfDataset = true;
+        useFirstColumnOfDataset = true;
+        clusters = new ArrayList<>(0);
+    }
+
+    @Override
+    public void cluster(Matrix dataset)
+    {
+        if (!useLastColumnOfDataset)
+        {
+            dataset = dataset.view(0, 0, dataset.rows(), dataset.cols() - 1);
+        }
+        if (!useFirstColumnOfDataset)
+        {
+            dataset = dataset.view(0, 1, dataset.rows(), dataset.cols() - 1);
+        }
+        if (dataset.getStorageType() == StorageType.MAPPED)
+        {
+            throw new IllegalArgumentException("HAC compares every pair of rows, so it can't cluster a memory-mapped dataset without copying all of it onto the heap");
+        }
+        int n = dataset.rows();
+        if (n > MAX_ROWS)
+        {
+            throw new IllegalArgumentException(String.format("HAC can cluster at most %d rows, but there are %d", MAX_ROWS, n));
+        }
+        DistanceKernel kernel = DistanceKernel.create(dataset, metric);
+        double[][] rows = new double[n][];
+        for (int i = 0; i < n; ++i)
+        {
+            rows[i] = dataset.row(i);
+        }
+
+        double[] distances = new double[(int) (n * (long) (n - 1) / 2)];
+        for (int i = 1; i < n; ++i)
+        {
+            for (int j = 0; j < i; ++j)
+            {
+                distances[index(i, j)] = kernel.distance(rows[i], rows[j]);
+            }
+        }
+        Merge[] merges = findMerges(distances, n);
+        assignments = cut(merges, n, Math.max(1, Math.min(k, n)));
+
+        clusters = new ArrayList<>();
+        Membership membership = new Membership(rows);
+        for (int i = 0; i < n; ++i)
+        {
+            if (assignments[i] == clusters.size())
+            {
+                Cluster cluster = new Cluster(rows[i], dataset, kernel);
+                cluster.attach(clusters.size(), membership);
+                clusters.add(cluster);
+            }
+            clusters.get(assignments[i])
+                    .add(i);
+        }
+        for (Cluster cluster : clusters)
+        {
+            cluster.calculateNewCentroid();
+        }
+        printFinalStats(rows, membership);
+    }
+
+    /**
+     * Runs the nearest-neighbor chain algorithm over the condensed distance matrix, which is overwritten.
+     *
+     * @return the n - 1 merges, in the order they were found
+     */
+    private Merge[] findMerges(double[] distances, int n)
+    {
+        boolean[] active = new boolean[n];
+        Arrays.fill(active, true);
+        int[] sizes = new int[n];
+        Arrays.fill(sizes, 1);
+        int[] chain = new int[n];
+        int chainLength = 0;
+        Merge[] merges = new Merge[n - 1];
+        int firstActive = 0;
+
+        for (int m = 0; m < n - 1; ++m)
+        {
+            while (true)
+            {
+                if (chainLength == 0)
+                {
+                    while (!active[firstActive])
+                    {
+                        ++firstActive;
+                    }
+                    chain[chainLength++] = firstActive;
+                }
+                int current = chain[chainLength - 1];
+                // Prefer the previous cluster in the chain on ties, so the chain can't go around in circles
+                int nearest = chainLength > 1 ? chain[chainLength - 2] : -1;
+                double nearestDistance = nearest == -1 ? Double.POSITIVE_INFINITY : distances[index(current, nearest)];
+                for (int other = 0; other < n; ++other)
+                {
+                    if (active[other] && other != current)
+                    {
+                        double distance = distances[index(current, other)];
+                        if (distance < nearestDistance)
+                        {
+                            nearestDistance = distance;
+                            nearest = other;
+                        }
+                    }
+                }
+                if (chainLength > 1 && nearest == chain[chainLength - 2])
+                {
+                    chainLength -= 2;
+                    merges[m] = new Merge(current, nearest, nearestDistance);
+                    merge(distances, active, sizes, n, current, nearest);
+                    break;
+                }
+                chain[chainLength++] = nearest;
+            }
+        }
+        return merges;
+    }
+
+    /**
+     * Merges the first cluster into the second, updating the distances from the second to every other cluster.
+     */
+    private void merge(double[] distances, boolean[] active, int[] sizes, int n, int first, int second)
+    {
+        active[first] = false;
+        for (int other = 0; other < n; ++other)
+        {
+            if (active[other] && other != second)
+            {
+                int toSecond = index(second, other);
+                distances[toSecond] = linkage.update(distances[index(first, other)], distances[toSecond], sizes[first], sizes[second]);
+            }
+        }
+        sizes[second] += sizes[first];
+    }
+
+    /**
+     * Applies the merges from nearest to farthest until there are only k clusters.
+     *
+     * @return the cluster of every row, numbered in the order the clusters first appear
+     */
+    private static int[] cut(Merge[] merges, int n, int k)
+    {
+        Merge[] sorted = merges.clone();
+        Arrays.sort(sorted, Comparator.comparingDouble(merge -> merge.distance));
+        int[] parents = new int[n];
+        for (int i = 0; i < n; ++i)
+        {
+            parents[i] = i;
+        }
+        for (int m = 0; m < n - k; ++m)
+        {
+            parents[find(parents, sorted[m].first)] = find(parents, sorted[m].second);
+        }
+        int[] labels = new int[n];
+        Arrays.fill(labels, -1);
+        int[] assignments = new int[n];
+        int count = 0;
+        for (int i = 0; i < n; ++i)
+        {
+            int root = find(parents, i);
+            if (labels[root] == -1)
+            {
+                labels[root] = count++;
+            }
+            assignments[i] = labels[root];
+        }
+        return assignments;
+    }
+
+    private static int find(int[] parents, int i)
+    {
+        while (parents[i] != i)
+        {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    private static int index(int first, int second)
+    {
+        int high = Math.max(first, second);
+        int low = Math.min(first, second);
+        return (int) (high * (long) (high - 1) / 2) + low;
+    }
+
+    private void printFinalStats(double[][] rows, Membership membership)
+    {
+        double[] sses = membership.calcSSEs(clusters);
+        double totalSSE = 0;
+        System.out.printf("\nHAC (%s linkage) left %s clusters\n", linkage.name()
+                .toLowerCase(), clusters.size());
+        for (int i = 0; i < clusters.size(); ++i)
+        {
+            Cluster cluster = clusters.get(i);
+            System.out.printf("Centroid %s = %s\n", i, cluster.getCentroidString(",\t"));
+            System.out.printf("Size: %s, SSE: %s\n", cluster.size(), getFormattedDouble(sses[i]));
+            totalSSE += sses[i];
+        }
+        System.out.printf("SSE: %s\n", getFormattedDouble(totalSSE));
+        if (isVerbose() && clusters.size() > 1)
+        {
+            // The exact silhouette compares every pair of rows again, so it is only worth it when asked for, and with
+            // no sample there is nothing random about it
+            double silhouette = new Silhouette(rows, clusters.get(0), 0, new Random(0), false).calculate(assignments, clusters.size());
+            System.out.printf("Silhouette: %s\n", silhouette);
+        }
+        if (shouldOutput())
+        {
+            try (FileWriter writer = new FileWriter(getOutputFile(), true))
+            {
+                writer.append(String.format("***\n%s\n", clusters.size()));
+                for (int i = 0; i < clusters.size(); ++i)
+                {
+                    Cluster cluster = clusters.get(i);
+                    writer.append(cluster.getCentroidString(","));
+                    writer.append("\n");
+                    writer.append(String.valueOf(cluster.size()));
+                    writer.append("\n");
+                    writer.append(getFormattedDouble(sses[i]));
+                    writer.append("\n");
+                }
+                writer.append(getFormattedDouble(totalSSE))
+                        .append("\n");
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Returns the clusters found by the last call to {@link #cluster(Matrix)}, with their rows.
+     *
+     * @return the clusters
+     */
+    public List<Cluster> getClusters()
+    {
+        return clusters;
+    }
+
+    /**
+     * Returns the cluster of every row found by the last call to {@link #cluster(Matrix)}.
+     *
+     * @return the index in {@link #getClusters()} of the cluster of every row
+     */
+    public int[] getAssignments()
+    {
+        return assignments;
+    }
+
+    public int getK()
+    {
+        return k;
+    }
+
+    public void setK(int k)
+    {
+        this.k = k;
+    }
+
+    public Linkage getLinkage()
+    {
+        return linkage;
+    }
+
+    public void setLinkage(Linkage linkage)
+    {
+        this.linkage = linkage;
+    }
+
+    public DistanceKernel.Metric getMetric()
+    {
+        return metric;
+    }
+
+    public void setMetric(DistanceKernel.Metric metric)
+    {
+        this.metric = metric;
+    }
+
+    public boolean shouldUseLastColumnOfDataset()
+    {
+        return useLastColumnOfDataset;
+    }
+
+    public void setUseLastColumnOfDataset(boolean useLastColumnOfDataset)
+    {
+        this.useLastColumnOfDataset = useLastColumnOfDataset;
+    }
+
+    public boolean shouldUseFirstColumnOfDataset()
+    {
+        return useFirstColumnOfDataset;
+    }
+
+    public void setUseFirstColumnOfDataset(boolean useFirstColumnOfDataset)
+    {
+        this.useFirstColumnOfDataset = useFirstColumnOfDataset;
+    }
+
+    /**
+     * Sets options given on the command line, as name=value pairs after {@code -O}.
+     *
+     * @param options the options, by name
+     * @throws IllegalArgumentException if an option isn't recognized
+     */
+    public void setOptions(Map<String, String> options)
+    {
+        for (Map.Entry<String, String> option : options.entrySet())
+        {
+            switch (option.getKey())
+            {
+                case "linkage":
+                    setLinkage(Linkage.valueOf(option.getValue()
+                            .toUpperCase()));
+                    break;
+                case "metric":
+                    setMetric(DistanceKernel.Metric.fromOption(option.getValue()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unrecognized HAC option: " + option.getKey());
+            }
+        }
+    }
+
+    /**
+     * The ways to measure the distance between two clusters, from the distances between their rows.
+     */
+    public enum Linkage
+    {
+        /**
+         * The distance between the nearest two rows.
+         */
+        SINGLE
+                {
+                    @Override
+                    double update(double fromFirst, double fromSecond, int firstSize, int secondSize)
+                    {
+                        return Math.min(fromFirst, fromSecond);
+                    }
+                },
+        /**
+         * The distance between the farthest two rows.
+         */
+        COMPLETE
+                {
+                    @Override
+                    double update(double fromFirst, double fromSecond, int firstSize, int secondSize)
+                    {
+                        return Math.max(fromFirst, fromSecond);
+                    }
+                },
+        /**
+         * The average distance between the rows of one and the rows of the other.
+         */
+        AVERAGE
+                {
+                    @Override
+                    double update(double fromFirst, double fromSecond, int firstSize, int secondSize)
+                    {
+                        return (firstSize * fromFirst + secondSize * fromSecond) / (firstSize + secondSize);
+                    }
+                };
+
+        /**
+         * The Lance-Williams update: the distance from another cluster to the merge of two clusters, from the
+         * distances to each of them.
+         *
+         * @param fromFirst  the distance from the other cluster to the first cluster
+         * @param fromSecond the distance from the other cluster to the second cluster
+         * @param firstSize  the number of rows in the first cluster
+         * @param secondSize the number of rows in the second cluster
+         * @return the distance from the other cluster to the merged cluster
+         */
+        abstract double update(double fromFirst, double fromSecond, int firstSize, int secondSize);
+    }
+
+    private static class Merge
+    {
+        private final int first;
+        private final int second;
+        private final double distance;
+
+        private Merge(int first, int second, double distance)
+        {
+            this.first = first;
+            this.second = second;
+            this.distance = distance;
+        }
+    }
+}
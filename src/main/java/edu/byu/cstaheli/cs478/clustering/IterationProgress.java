@@ -0,0 +1,92 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+/**
+ * What happened during one iteration of clustering.
+ */
+public class IterationProgress
+{
+    private final int iteration;
+    private final double sse;
+    private final double silhouette;
+    private final int movedRows;
+    private final long assignmentNanos;
+    private final long updateNanos;
+    private final long convergenceNanos;
+
+    IterationProgress(int iteration, double sse, double silhouette, int movedRows, long assignmentNanos, long updateNanos, long convergenceNanos)
+    {
+        this.iteration = iteration;
+        this.sse = sse;
+        this.silhouette = silhouette;
+        this.movedRows = movedRows;
+        this.assignmentNanos = assignmentNanos;
+        this.updateNanos = updateNanos;
+        this.convergenceNanos = convergenceNanos;
+    }
+
+    /**
+     * @return the number of the iteration, starting at 1
+     */
+    public int getIteration()
+    {
+        return iteration;
+    }
+
+    /**
+     * @return the total SSE of the clusters after their centroids moved, or before they moved when the rows are
+     * streamed
+     */
+    public double getSSE()
+    {
+        return sse;
+    }
+
+    /**
+     * @return the silhouette of the clustering, or NaN if it wasn't calculated this iteration
+     */
+    public double getSilhouette()
+    {
+        return silhouette;
+    }
+
+    /**
+     * @return how many rows are in a different cluster than they were after the last iteration. In the first
+     * iteration, this is every row. It is -1 when the rows are streamed, since where each row was isn't kept.
+     */
+    public int getMovedRows()
+    {
+        return movedRows;
+    }
+
+    /**
+     * @return how long it took to assign the rows to clusters and repair any empty clusters, in nanoseconds
+     */
+    public long getAssignmentNanos()
+    {
+        return assignmentNanos;
+    }
+
+    /**
+     * @return how long it took to move the centroids, in nanoseconds
+     */
+    public long getUpdateNanos()
+    {
+        return updateNanos;
+    }
+
+    /**
+     * @return how long it took to decide whether to keep going, including the SSE and silhouette, in nanoseconds
+     */
+    public long getConvergenceNanos()
+    {
+        return convergenceNanos;
+    }
+
+    /**
+     * @return how long the whole iteration took, in nanoseconds
+     */
+    public long getTotalNanos()
+    {
+        return assignmentNanos + updateNanos + convergenceNanos;
+    }
+}
@@ -1,14 +1,22 @@
 package edu.byu.cstaheli.cs478.clustering;
 
+import edu.byu.cstaheli.cs478.toolkit.learner.LearnerData;
 import edu.byu.cstaheli.cs478.toolkit.learner.unsupervised.UnsupervisedLearner;
 import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import edu.byu.cstaheli.cs478.toolkit.utility.Normalizer;
+import edu.byu.cstaheli.cs478.toolkit.utility.RowSource;
+import edu.byu.cstaheli.cs478.toolkit.utility.StorageType;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.FileWriter;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
 import java.util.Random;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
 
 import static edu.byu.cstaheli.cs478.toolkit.utility.Utility.getFormattedDouble;
 
@@ -17,6 +25,11 @@ import static edu.byu.cstaheli.cs478.toolkit.utility.Utility.getFormattedDouble;
  */
 public class KMeans extends UnsupervisedLearner
 {
+    /**
+     * How many rows are sampled to pick the starting centroids from when streaming with k-means++ or k-means||.
+     */
+    private static final int SEEDING_SAMPLE_SIZE = 10000;
+
     private int k;
     private Random random;
     private List<Cluster> clusters;
@@ -27,6 +40,29 @@ public class KMeans extends UnsupervisedLearner
     private boolean useFirstColumnOfDataset;
     private int iterations;
     private double previousSSE;
+    private boolean parallel;
+    private boolean accelerated;
+    private ElkanBounds bounds;
+    private Initialization initialization;
+    private Convergence convergence;
+    private double sseTolerance;
+    private int silhouetteSampleSize;
+    private boolean cacheDistances;
+    private Silhouette silhouette;
+    private Membership membership;
+    private int[] assignments;
+    private int[] previousAssignments;
+    private double lastSilhouette;
+    private ClusteringListener listener;
+    private DistanceKernel.Metric metric;
+    private DistanceKernel kernel;
+    private int restarts;
+    private Selection selection;
+    private double[] silhouetteDistances;
+    private double[][] sharedRows;
+    private double finalSSE;
+    private double finalSilhouette;
+    private int blockSize;
 
     public KMeans(int k, Random random)
     {
@@ -36,16 +72,36 @@ public class KMeans extends UnsupervisedLearner
         clusters = new ArrayList<>(0);
         useLastColumnOfDataset = true;
         useFirstColumnOfDataset = true;
+        initialization = Initialization.RANDOM;
+        // Not chosen yet: the silhouette for rows in memory, and the SSE for streamed rows
+        convergence = null;
+        sseTolerance = 1e-4;
+        listener = ClusteringListener.NONE;
+        metric = DistanceKernel.Metric.MANHATTAN;
+        restarts = 1;
+        selection = Selection.SSE;
+        blockSize = 4096;
     }
 
     @NotNull
     private List<Cluster> populateInitialCentroids(Matrix dataset)
     {
         List<Cluster> centroids = new ArrayList<>(k);
-        for (int i = 0; i < k; ++i)
+        if (initialization == Initialization.RANDOM)
+        {
+            for (int i = 0; i < k; ++i)
+            {
+                Cluster newCluster = getRandomCentroid(dataset);
+                centroids.add(newCluster);
+            }
+            return centroids;
+        }
+
+        Seeding seeding = new Seeding(membership, new Cluster(membership.row(0), dataset, kernel), random, parallel);
+        int[] seeds = initialization == Initialization.K_MEANS_PLUS_PLUS ? seeding.plusPlus(k) : seeding.parallel(k, 2, 5);
+        for (int seed : seeds)
         {
-            Cluster newCluster = getRandomCentroid(dataset);
-            centroids.add(newCluster);
+            centroids.add(getClusterFromRow(dataset, seed));
         }
         return centroids;
     }
@@ -61,7 +117,7 @@ public class KMeans extends UnsupervisedLearner
     public Cluster getClusterFromRow(Matrix dataset, int row)
     {
         double[] centroid = dataset.row(row);
-        return new Cluster(centroid, dataset);
+        return new Cluster(centroid, dataset, kernel != null ? kernel : DistanceKernel.create(dataset, metric));
     }
 
     @Override
@@ -69,50 +125,455 @@ public class KMeans extends UnsupervisedLearner
     {
         if (!useLastColumnOfDataset)
         {
-            dataset = new Matrix(dataset, 0, 0, dataset.rows(), dataset.cols() - 1);
+            dataset = dataset.view(0, 0, dataset.rows(), dataset.cols() - 1);
         }
         if (!useFirstColumnOfDataset)
         {
-            dataset = new Matrix(dataset, 0, 1, dataset.rows(), dataset.cols() - 1);
+            dataset = dataset.view(0, 1, dataset.rows(), dataset.cols() - 1);
+        }
+        if (restarts > 1 && clusters.size() == 0)
+        {
+            clusterWithRestarts(dataset);
+            return;
+        }
+        kernel = DistanceKernel.create(dataset, metric);
+        if (dataset.getStorageType() == StorageType.MAPPED)
+        {
+            // Mapped rows are read from the file whenever they are needed, instead of all being copied onto the heap
+            checkMappedOptions();
+            membership = new Membership(dataset);
+        }
+        else if (sharedRows != null)
+        {
+            membership = new Membership(sharedRows);
+        }
+        else
+        {
+            double[][] rows = new double[dataset.rows()][];
+            Matrix data = dataset;
+            IntStream indexes = IntStream.range(0, rows.length);
+            (parallel ? indexes.parallel() : indexes).forEach(i -> rows[i] = data.row(i));
+            membership = new Membership(rows);
         }
         if (clusters.size() == 0)
         {
             clusters = populateInitialCentroids(dataset);
         }
+        for (int i = 0; i < clusters.size(); ++i)
+        {
+            clusters.get(i)
+                    .setKernel(kernel);
+            clusters.get(i)
+                    .attach(i, membership);
+        }
+        silhouette = null;
+        previousAssignments = null;
+        previousSSE = Double.MAX_VALUE;
+        bounds = null;
+        if (accelerated)
+        {
+            bounds = new ElkanBounds(dataset, metric);
+            if (!bounds.isUsable())
+            {
+                listener.message("The triangle inequality doesn't hold for this data and metric, so every distance will be computed");
+                bounds = null;
+            }
+        }
         boolean keepTraining;
         do
         {
             ++iterations;
-            printIterationHeader(iterations);
-            printCentroids();
+            listener.iterationStarted(iterations, clusters);
+            long start = System.nanoTime();
             clearClusters();
-            addRowsToClusters(dataset);
+            addRowsToClusters();
             fixEmptyClusters(dataset);
+            listener.rowsAssigned(assignments);
+            long assigned = System.nanoTime();
             calculateNewCentroids();
-            keepTraining = shouldKeepTraining();
-            printSSE();
+            long updated = System.nanoTime();
+            double sse = calculateTotalSSE();
+            keepTraining = shouldKeepTraining(sse);
+            long checked = System.nanoTime();
+            listener.iterationFinished(new IterationProgress(iterations, sse, lastSilhouette, countMovedRows(), assigned - start, updated - assigned, checked - updated));
         } while (keepTraining);
-        printSilhouetteInfo();
+        finishSilhouette();
+        finalSSE = calculateTotalSSE();
+        listener.clusteringFinished(clusters, finalSSE, totalSilhouetteMetric);
         printFinalStats();
     }
 
+    /**
+     * Runs k-means from the start once per restart, each with its own seed and all at the same time, and keeps the
+     * best run. The seeds are drawn up front in order, so the result only depends on the seed of this k-means, not on
+     * how the runs are scheduled.
+     *
+     * @param dataset the rows to cluster, which are only read
+     */
+    private void clusterWithRestarts(Matrix dataset)
+    {
+        // Compute the statistics now, so the runs don't all race to compute them at once
+        dataset.getColumnStatistics();
+        double[] distances = silhouetteDistances;
+        if (distances == null && cacheDistances && dataset.rows() <= Silhouette.MAX_CACHED_ROWS)
+        {
+            // Every run compares the same rows, so the distances between them are computed once and shared
+            Membership rows = new Membership(dataset);
+            distances = Silhouette.cacheDistances(rows, new Cluster(rows.row(0), dataset, DistanceKernel.create(dataset, metric)));
+        }
+        KMeans[] runs = new KMeans[restarts];
+        for (int i = 0; i < restarts; ++i)
+        {
+            runs[i] = copySettings(new Random(random.nextLong()));
+            runs[i].setSilhouetteDistances(distances);
+        }
+        IntStream.range(0, restarts)
+                .parallel()
+                .forEach(i -> runs[i].cluster(dataset));
+
+        int best = 0;
+        for (int i = 1; i < restarts; ++i)
+        {
+            if (selection.isBetter(runs[i], runs[best]))
+            {
+                best = i;
+            }
+        }
+        KMeans run = runs[best];
+        kernel = run.kernel;
+        clusters = run.clusters;
+        membership = run.membership;
+        assignments = run.assignments;
+        iterations += run.iterations;
+        totalSilhouetteMetric = run.totalSilhouetteMetric;
+        finalSSE = run.finalSSE;
+        finalSilhouette = run.finalSilhouette;
+        listener.message(String.format("Kept restart %s of %s, with SSE %s and silhouette %s", best + 1, restarts, getFormattedDouble(run.getSSE()), run.getFinalSilhouette()));
+        listener.clusteringFinished(clusters, finalSSE, totalSilhouetteMetric);
+        printFinalStats();
+    }
+
+    /**
+     * Creates a k-means with the same settings as this one that runs once, without a listener or an output file, on
+     * a dataset that already has the right columns.
+     */
+    private KMeans copySettings(Random random)
+    {
+        KMeans copy = new KMeans(k, random);
+        copy.parallel = parallel;
+        copy.accelerated = accelerated;
+        copy.initialization = initialization;
+        copy.convergence = convergence;
+        copy.sseTolerance = sseTolerance;
+        copy.silhouetteSampleSize = silhouetteSampleSize;
+        copy.cacheDistances = cacheDistances;
+        copy.metric = metric;
+        copy.blockSize = blockSize;
+        return copy;
+    }
+
+    /**
+     * Checks that nothing will need every row of a memory-mapped dataset at once.
+     *
+     * @throws IllegalArgumentException if the silhouette isn't sampled
+     */
+    private void checkMappedOptions()
+    {
+        if (silhouetteSampleSize == 0)
+        {
+            throw new IllegalArgumentException("The silhouette of a memory-mapped dataset needs every row at once, so it has to be estimated from a sample (silhouetteSample)");
+        }
+    }
+
+    /**
+     * Clusters rows that are streamed from the source a block at a time, so only a block of rows and the centroids
+     * need to be in memory, however many rows there are. Each iteration is one pass over the source: every row is
+     * assigned to its nearest centroid and added to the sums that centroid's next position is calculated from, and the
+     * centroids move once the pass is done.
+     * <p>
+     * The first pass picks the starting centroids from a reservoir sample of the rows, and finds the ranges of the
+     * columns for {@link DistanceKernel.Metric#HEOM}. Training always stops as with {@link Convergence#SSE}, because
+     * the silhouette needs every row at once, and the SSE of an iteration is measured from the centroids the rows were
+     * assigned to. One last pass measures the sizes and SSEs of the clusters of the final centroids. A cluster that
+     * gets no rows keeps its centroid.
+     * <p>
+     * Restarts run one after another, each with its own seed, and the run with the lowest SSE is kept. The settings
+     * that only work with every row in memory (acceleration, silhouette convergence or selection, silhouette samples
+     * and cached distances) are rejected rather than ignored.
+     *
+     * @param source the rows to cluster
+     * @throws IOException              if the rows can't be read
+     * @throws IllegalArgumentException if a setting can't be used with streamed rows
+     */
+    @Override
+    public void cluster(RowSource source) throws IOException
+    {
+        checkStreamedOptions();
+        StreamedStats stats = null;
+        if (restarts > 1 && clusters.size() == 0)
+        {
+            // The runs take turns, since every one of them makes its own passes over the source
+            KMeans best = null;
+            int bestRun = 0;
+            for (int i = 0; i < restarts; ++i)
+            {
+                KMeans run = copySettings(new Random(random.nextLong()));
+                run.useFirstColumnOfDataset = useFirstColumnOfDataset;
+                run.useLastColumnOfDataset = useLastColumnOfDataset;
+                StreamedStats runStats = run.stream(source);
+                if (best == null || run.finalSSE < best.finalSSE)
+                {
+                    best = run;
+                    bestRun = i;
+                    stats = runStats;
+                }
+            }
+            kernel = best.kernel;
+            clusters = best.clusters;
+            iterations += best.iterations;
+            finalSSE = best.finalSSE;
+            listener.message(String.format("Kept restart %s of %s, with SSE %s", bestRun + 1, restarts, getFormattedDouble(finalSSE)));
+        }
+        else
+        {
+            stats = stream(source);
+        }
+        totalSilhouetteMetric = Double.NaN;
+        finalSilhouette = Double.NaN;
+        listener.clusteringFinished(clusters, finalSSE, totalSilhouetteMetric);
+        printFinalStats(stats.sizes, stats.sses);
+    }
+
+    /**
+     * Checks that nothing is set that needs every row in memory at once.
+     *
+     * @throws IllegalArgumentException if something is
+     */
+    private void checkStreamedOptions()
+    {
+        if (accelerated)
+        {
+            throw new IllegalArgumentException("Streamed rows can't be accelerated, since the bounds are kept for every row");
+        }
+        if (convergence == Convergence.SILHOUETTE || selection == Selection.SILHOUETTE || silhouetteSampleSize != 0 || cacheDistances)
+        {
+            throw new IllegalArgumentException("The silhouette needs every row at once, so it can't be used with streamed rows");
+        }
+    }
+
+    /**
+     * Runs k-means once over streamed rows, as described by {@link #cluster(RowSource)}.
+     *
+     * @return the sizes and SSEs of the final clusters
+     */
+    private StreamedStats stream(RowSource source) throws IOException
+    {
+        Matrix header = source.getHeader();
+        int firstColumn = useFirstColumnOfDataset ? 0 : 1;
+        int cols = header.cols() - firstColumn - (useLastColumnOfDataset ? 0 : 1);
+        Matrix columns = header.view(0, firstColumn, 0, cols);
+        StreamedRows stream = new StreamedRows(source, firstColumn, cols);
+
+        // The first pass: sample the rows to start from, and find the ranges of the continuous columns
+        int sampleSize = initialization == Initialization.RANDOM ? k : Math.max(k, SEEDING_SAMPLE_SIZE);
+        double[][] sample = new double[sampleSize][];
+        double[] min = new double[cols];
+        double[] max = new double[cols];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        long[] seen = new long[1];
+        stream.forEachBlock((block, count) ->
+        {
+            for (int i = 0; i < count; ++i)
+            {
+                double[] row = block[i];
+                for (int j = 0; j < cols; ++j)
+                {
+                    if (columns.valueCount(j) == 0 && Double.compare(row[j], Matrix.MISSING) != 0)
+                    {
+                        min[j] = Math.min(min[j], row[j]);
+                        max[j] = Math.max(max[j], row[j]);
+                    }
+                }
+                long slot = seen[0] < sampleSize ? seen[0] : (long) (random.nextDouble() * (seen[0] + 1));
+                if (slot < sampleSize)
+                {
+                    sample[(int) slot] = row.clone();
+                }
+                ++seen[0];
+            }
+        });
+        if (seen[0] == 0)
+        {
+            throw new IllegalArgumentException("There are no rows to cluster");
+        }
+        double[] ranges = new double[cols];
+        for (int j = 0; j < cols; ++j)
+        {
+            ranges[j] = max[j] >= min[j] ? max[j] - min[j] : 0;
+        }
+        kernel = DistanceKernel.create(columns, metric, ranges);
+        if (clusters.size() == 0)
+        {
+            clusters = sampleInitialCentroids(columns, Arrays.copyOf(sample, (int) Math.min(seen[0], sampleSize)));
+        }
+        for (Cluster cluster : clusters)
+        {
+            cluster.setKernel(kernel);
+        }
+
+        membership = null;
+        assignments = null;
+        previousSSE = Double.MAX_VALUE;
+        boolean keepTraining;
+        do
+        {
+            ++iterations;
+            listener.iterationStarted(iterations, clusters);
+            long start = System.nanoTime();
+            for (Cluster cluster : clusters)
+            {
+                cluster.reset();
+            }
+            long[] sizes = new long[clusters.size()];
+            double[] sses = new double[clusters.size()];
+            stream.forEachBlock((block, count) -> assignBlock(block, count, sizes, sses, true));
+            long assigned = System.nanoTime();
+            for (int i = 0; i < clusters.size(); ++i)
+            {
+                if (sizes[i] > 0)
+                {
+                    clusters.get(i)
+                            .calculateNewCentroid();
+                }
+                else
+                {
+                    listener.message(String.format("Cluster %s got no rows, so its centroid stays where it was", i));
+                }
+            }
+            long updated = System.nanoTime();
+            double sse = Arrays.stream(sses)
+                    .sum();
+            keepTraining = previousSSE - sse > sseTolerance * sse;
+            previousSSE = sse;
+            long checked = System.nanoTime();
+            listener.iterationFinished(new IterationProgress(iterations, sse, Double.NaN, -1, assigned - start, updated - assigned, checked - updated));
+        } while (keepTraining);
+
+        long[] sizes = new long[clusters.size()];
+        double[] sses = new double[clusters.size()];
+        stream.forEachBlock((block, count) -> assignBlock(block, count, sizes, sses, false));
+        finalSSE = Arrays.stream(sses)
+                .sum();
+        int[] clusterSizes = new int[sizes.length];
+        for (int i = 0; i < sizes.length; ++i)
+        {
+            clusterSizes[i] = (int) sizes[i];
+        }
+        return new StreamedStats(clusterSizes, sses);
+    }
+
+    /**
+     * Picks the starting centroids from a sample of the rows, as {@link #populateInitialCentroids(Matrix)} picks them
+     * from all of them.
+     */
+    private List<Cluster> sampleInitialCentroids(Matrix columns, double[][] sample)
+    {
+        int[] seeds;
+        if (initialization == Initialization.RANDOM)
+        {
+            // The reservoir already holds k rows picked at random, unless there are fewer rows than that
+            seeds = new int[k];
+            for (int i = 0; i < k; ++i)
+            {
+                seeds[i] = i < sample.length ? i : random.nextInt(sample.length);
+            }
+        }
+        else
+        {
+            Seeding seeding = new Seeding(sample, new Cluster(sample[0], columns, kernel), random, parallel);
+            seeds = initialization == Initialization.K_MEANS_PLUS_PLUS ? seeding.plusPlus(k) : seeding.parallel(k, 2, 5);
+        }
+        List<Cluster> centroids = new ArrayList<>(k);
+        for (int seed : seeds)
+        {
+            centroids.add(new Cluster(sample[seed].clone(), columns, kernel));
+        }
+        return centroids;
+    }
+
+    /**
+     * Assigns a block of streamed rows to their nearest centroids, adding up the size and SSE of every cluster.
+     *
+     * @param accumulate true to also add the rows to the sums the next centroids are calculated from
+     */
+    private void assignBlock(double[][] block, int count, long[] sizes, double[] sses, boolean accumulate)
+    {
+        int[] nearest = new int[count];
+        double[] distances = new double[count];
+        IntStream indexes = IntStream.range(0, count);
+        (parallel ? indexes.parallel() : indexes).forEach(i ->
+        {
+            nearest[i] = getBestClusterForRow(block[i]);
+            distances[i] = clusters.get(nearest[i])
+                    .calcDistanceFromCentroid(block[i]);
+        });
+        // The rows are added up in order, so the result doesn't depend on how the block was split between cores
+        for (int i = 0; i < count; ++i)
+        {
+            ++sizes[nearest[i]];
+            sses[nearest[i]] += distances[i];
+            if (accumulate)
+            {
+                clusters.get(nearest[i])
+                        .accumulate(block[i]);
+            }
+        }
+    }
+
+    private int countMovedRows()
+    {
+        int moved = 0;
+        for (int i = 0; i < assignments.length; ++i)
+        {
+            if (previousAssignments == null || previousAssignments[i] != assignments[i])
+            {
+                ++moved;
+            }
+        }
+        previousAssignments = assignments.clone();
+        return moved;
+    }
+
     private void printFinalStats()
+    {
+        int[] sizes = new int[clusters.size()];
+        for (int i = 0; i < clusters.size(); ++i)
+        {
+            sizes[i] = clusters.get(i)
+                    .size();
+        }
+        printFinalStats(sizes, membership.calcSSEs(clusters));
+    }
+
+    private void printFinalStats(int[] sizes, double[] sses)
     {
         if (shouldOutput())
         {
             try (FileWriter writer = new FileWriter(getOutputFile(), true))
             {
                 writer.append(String.format("***\n%s\n", clusters.size()));
-                for (Cluster cluster : clusters)
+                for (int i = 0; i < clusters.size(); ++i)
                 {
-                    writer.append(cluster.getCentroidString(","));
+                    writer.append(clusters.get(i)
+                            .getCentroidString(","));
                     writer.append("\n");
-                    writer.append(String.valueOf(cluster.size()));
+                    writer.append(String.valueOf(sizes[i]));
                     writer.append("\n");
-                    writer.append(getFormattedDouble(cluster.calcSSE()));
+                    writer.append(getFormattedDouble(sses[i]));
                     writer.append("\n");
                 }
-                writer.append(getFormattedDouble(calculateTotalSSE()))
+                writer.append(getFormattedDouble(finalSSE))
                         .append("\n");
             }
             catch (Exception e)
@@ -122,106 +583,152 @@ public class KMeans extends UnsupervisedLearner
         }
     }
 
-    private void printSSE()
-    {
-        System.out.printf("\nSSE: %s", getFormattedDouble(calculateTotalSSE()));
-    }
-
     private double calculateTotalSSE()
     {
         double value = 0;
-        for (Cluster cluster : clusters)
+        for (double sse : membership.calcSSEs(clusters))
         {
-            value += cluster.calcSSE();
+            value += sse;
         }
         return value;
     }
 
     private void fixEmptyClusters(Matrix dataset)
     {
-        for (ListIterator<Cluster> iterator = clusters.listIterator(); iterator.hasNext(); )
+        for (int i = 0; i < clusters.size(); ++i)
         {
-            Cluster cluster = iterator.next();
-            if (cluster.empty())
+            if (clusters.get(i)
+                    .empty())
             {
-                iterator.remove();
-                Cluster randomCentroid = getRandomCentroid(dataset);
-                iterator.add(randomCentroid);
-                clearClusters();
-                addRowsToClusters(dataset);
-                iterator = clusters.listIterator();
+                stealFarthestRow(dataset, i);
             }
         }
     }
 
-    private void printSilhouetteInfo()
+    /**
+     * Gives an empty cluster the row that is farthest from the centroid of the cluster with the largest SSE, which
+     * is the row that fits in its cluster the worst. Only the two clusters involved change, so none of the other rows
+     * need to be assigned again.
+     *
+     * @param dataset      the rows being clustered
+     * @param emptyCluster the index of the empty cluster
+     */
+    private void stealFarthestRow(Matrix dataset, int emptyCluster)
     {
-        totalSilhouetteMetric /= iterations;
-        System.out.printf("\nSilhouette: %s\n", totalSilhouetteMetric);
-    }
+        int donor = -1;
+        double donorSSE = -1;
+        double[] sses = membership.calcSSEs(clusters);
+        for (int i = 0; i < clusters.size(); ++i)
+        {
+            if (clusters.get(i)
+                    .size() > 1 && sses[i] > donorSSE)
+            {
+                donorSSE = sses[i];
+                donor = i;
+            }
+        }
+        if (donor == -1)
+        {
+            // There are fewer rows than clusters
+            return;
+        }
 
-    private void printCentroids()
-    {
-        int counter = 0;
-        printHeader("Printing Centroids");
-        for (Cluster cluster : clusters)
+        Cluster donorCluster = clusters.get(donor);
+        int farthestRow = -1;
+        double farthestDistance = -1;
+        for (int i : donorCluster.getMembers())
         {
-            System.out.printf("Centroid %s = ", counter);
-            System.out.println(cluster.getCentroidString(",\t"));
-            ++counter;
+            double distance = donorCluster.calcDistanceFromCentroid(membership.read(i));
+            if (distance > farthestDistance)
+            {
+                farthestDistance = distance;
+                farthestRow = i;
+            }
         }
+        donorCluster.remove(farthestRow);
+        Cluster replacement = getClusterFromRow(dataset, farthestRow);
+        replacement.attach(emptyCluster, membership);
+        replacement.add(farthestRow);
+        clusters.set(emptyCluster, replacement);
+        assignments[farthestRow] = emptyCluster;
+        listener.message(String.format("Cluster %s was empty, so it took row %s from cluster %s", emptyCluster, farthestRow, donor));
     }
 
-    private void printIterationHeader(int count)
+    private void finishSilhouette()
     {
-        System.out.printf("\n***************\nIteration %s\n***************\n", count);
+        if (convergence == Convergence.SSE)
+        {
+            // The silhouette wasn't needed to decide when to stop, so it is only calculated for the final clusters
+            totalSilhouetteMetric = calculateSilhouette();
+            finalSilhouette = totalSilhouetteMetric;
+        }
+        else
+        {
+            totalSilhouetteMetric /= iterations;
+            // The last iteration measured the clusters it stopped with
+            finalSilhouette = lastSilhouette;
+        }
     }
 
     private void clearClusters()
     {
+        membership.clear();
         for (Cluster cluster : clusters)
         {
-            cluster.clear();
+            cluster.reset();
         }
     }
 
-    private void addRowsToClusters(Matrix dataset)
+    private void addRowsToClusters()
     {
-        printHeader("Making Assignments");
-        for (int i = 0; i < dataset.rows(); ++i)
+        if (bounds != null)
         {
-            if (i % 10 == 0)
-            {
-                System.out.println();
-            }
-            double[] row = dataset.row(i);
-            Cluster bestCluster = getBestClusterForRow(row);
-            bestCluster.add(row);
-            printAssignment(i, bestCluster);
+            assignments = bounds.assign(membership, clusters, parallel);
+        }
+        else
+        {
+            assignments = assignRows();
+        }
+        // Members are added in row order either way, so the clusters come out exactly the same
+        for (int i = 0; i < assignments.length; ++i)
+        {
+            clusters.get(assignments[i])
+                    .add(i);
         }
     }
 
-    private void printHeader(String header)
-    {
-        System.out.println(header);
-    }
-
-    private void printAssignment(int i, Cluster bestCluster)
+    private int[] assignRows()
     {
-        System.out.printf("%s=%s ", i, clusters.indexOf(bestCluster));
+        int[] assignments = new int[membership.size()];
+        if (parallel)
+        {
+            // Every row is written by exactly one task, so no locking is needed
+            IntStream.range(0, assignments.length)
+                    .parallel()
+                    .forEach(i -> assignments[i] = getBestClusterForRow(membership.read(i)));
+        }
+        else
+        {
+            for (int i = 0; i < assignments.length; ++i)
+            {
+                assignments[i] = getBestClusterForRow(membership.read(i));
+            }
+        }
+        return assignments;
     }
 
-    private Cluster getBestClusterForRow(double[] row)
+    private int getBestClusterForRow(double[] row)
     {
         double bestDistance = Double.MAX_VALUE;
-        Cluster bestCluster = clusters.get(0);
-        for (Cluster cluster : clusters)
+        int bestCluster = 0;
+        for (int i = 0; i < clusters.size(); ++i)
         {
-            double distance = cluster.calcDistanceFromCentroid(row);
+            double distance = clusters.get(i)
+                    .calcDistanceFromCentroid(row);
             if (distance < bestDistance)
             {
                 bestDistance = distance;
-                bestCluster = cluster;
+                bestCluster = i;
             }
         }
         return bestCluster;
@@ -235,27 +742,17 @@ public class KMeans extends UnsupervisedLearner
         }
     }
 
-    private boolean shouldKeepTraining()
+    private boolean shouldKeepTraining(double sse)
     {
-        double silhouetteMetric = 0;
-        for (Cluster cluster : clusters)
+        lastSilhouette = Double.NaN;
+        if (convergence == Convergence.SSE)
         {
-            double internalDissimilarity = cluster.calculateAverageInternalDissimilarity();
-            double externalDissimilarity = Double.MAX_VALUE;
-            for (Cluster otherCluster : clusters)
-            {
-                if (!cluster.equals(otherCluster))
-                {
-                    double dissimilarity = cluster.calculateAverageExternalDissimilarity(otherCluster);
-                    if (dissimilarity < externalDissimilarity)
-                    {
-                        externalDissimilarity = dissimilarity;
-                    }
-                }
-            }
-            silhouetteMetric += silhouetteMetric(internalDissimilarity, externalDissimilarity);
+            boolean keepTraining = previousSSE - sse > sseTolerance * sse;
+            previousSSE = sse;
+            return keepTraining;
         }
-        silhouetteMetric /= clusters.size();
+        double silhouetteMetric = calculateSilhouette();
+        lastSilhouette = silhouetteMetric;
 
         double difference = Math.abs(silhouetteMetric - bestSilhouetteMetric);
         totalSilhouetteMetric += silhouetteMetric;
@@ -288,20 +785,90 @@ public class KMeans extends UnsupervisedLearner
         return random.nextInt(rows);
     }
 
-    private double silhouetteMetric(double clusterDissimilarity, double otherClusterDissimilarity)
+    private double calculateSilhouette()
     {
-        if (Double.compare(clusterDissimilarity, otherClusterDissimilarity) == -1)
+        if (silhouette == null)
         {
-            return 1 - (clusterDissimilarity / otherClusterDissimilarity);
+            silhouette = silhouetteDistances != null
+                    ? new Silhouette(membership, clusters.get(0), silhouetteSampleSize, random, silhouetteDistances)
+                    : new Silhouette(membership, clusters.get(0), silhouetteSampleSize, random, cacheDistances);
         }
-        else if (Double.compare(clusterDissimilarity, otherClusterDissimilarity) == 0)
+        return silhouette.calculate(assignments, clusters.size());
+    }
+
+    List<Cluster> getClusters()
+    {
+        return clusters;
+    }
+
+    /**
+     * Returns the total SSE of the clusters found by the last call to {@link #cluster(Matrix)}.
+     *
+     * @return the SSE
+     */
+    public double getSSE()
+    {
+        return finalSSE;
+    }
+
+    /**
+     * Returns the silhouette found by the last call to {@link #cluster(Matrix)}: the average over the iterations with
+     * {@link Convergence#SILHOUETTE}, or that of the final clusters with {@link Convergence#SSE}.
+     *
+     * @return the silhouette
+     */
+    public double getSilhouette()
+    {
+        return totalSilhouetteMetric;
+    }
+
+    /**
+     * Returns the silhouette of the final clusters found by the last call to {@link #cluster(Matrix)}, which is
+     * estimated from a sample if {@link #setSilhouetteSampleSize(int)} is set.
+     *
+     * @return the silhouette
+     */
+    public double getFinalSilhouette()
+    {
+        return finalSilhouette;
+    }
+
+    /**
+     * Freezes the final centroids found by the last call to {@link #cluster(Matrix)}, so new rows can be assigned to
+     * them.
+     *
+     * @return the model
+     * @throws IllegalStateException if nothing has been clustered yet
+     */
+    public ClusterModel getModel()
+    {
+        return getModel(null);
+    }
+
+    /**
+     * Freezes the final centroids found by the last call to {@link #cluster(Matrix)} along with the normalizer the
+     * dataset was normalized with (such as {@link LearnerData#getNormalizer()}), so new rows can be assigned to them
+     * before they are normalized.
+     *
+     * @param normalizer the normalizer fitted to every column of the dataset, including any that weren't clustered, or
+     *                   null if it wasn't normalized
+     * @return the model
+     * @throws IllegalStateException if nothing has been clustered yet
+     */
+    public ClusterModel getModel(Normalizer normalizer)
+    {
+        if (kernel == null)
         {
-            return 0;
+            throw new IllegalStateException("Nothing has been clustered yet");
         }
-        else
+        if (normalizer != null)
         {
-            return (otherClusterDissimilarity / clusterDissimilarity) - 1;
+            // The model only has the columns that were clustered
+            int cols = clusters.get(0)
+                    .getCentroid().length;
+            normalizer = normalizer.columns(useFirstColumnOfDataset ? 0 : 1, cols);
         }
+        return ClusterModel.of(clusters, kernel, normalizer);
     }
 
     public void setClusters(List<Cluster> clusters)
@@ -328,4 +895,431 @@ public class KMeans extends UnsupervisedLearner
     {
         this.useFirstColumnOfDataset = useFirstColumnOfDataset;
     }
+
+    public boolean isParallel()
+    {
+        return parallel;
+    }
+
+    /**
+     * Sets whether rows are assigned to their nearest centroids on all cores. The clusters are exactly the same
+     * either way.
+     *
+     * @param parallel true to assign rows in parallel
+     */
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+    }
+
+    public boolean isAccelerated()
+    {
+        return accelerated;
+    }
+
+    /**
+     * Sets whether to skip the distances that the triangle inequality shows can't change an assignment (Elkan's
+     * method). The clusters are exactly the same either way, but far fewer distances are computed once the centroids
+     * settle down. This costs memory for a bound per row and centroid, and has no effect if missing values break the
+     * triangle inequality for the data.
+     *
+     * @param accelerated true to skip distances that can't matter
+     */
+    public void setAccelerated(boolean accelerated)
+    {
+        this.accelerated = accelerated;
+    }
+
+    public ClusteringListener getListener()
+    {
+        return listener;
+    }
+
+    /**
+     * Sets what is told how clustering is going. Nothing is printed by default.
+     *
+     * @param listener the listener, or {@link ClusteringListener#NONE}
+     */
+    public void setListener(ClusteringListener listener)
+    {
+        this.listener = listener;
+    }
+
+    public DistanceKernel.Metric getMetric()
+    {
+        return metric;
+    }
+
+    /**
+     * Sets how distances between rows and centroids are measured.
+     *
+     * @param metric the metric
+     */
+    public void setMetric(DistanceKernel.Metric metric)
+    {
+        this.metric = metric;
+    }
+
+    public Initialization getInitialization()
+    {
+        return initialization;
+    }
+
+    /**
+     * Sets how the first centroids are picked, when they haven't been set with {@link #setClusters(List)}.
+     *
+     * @param initialization how to pick the first centroids
+     */
+    public void setInitialization(Initialization initialization)
+    {
+        this.initialization = initialization;
+    }
+
+    public Convergence getConvergence()
+    {
+        return convergence != null ? convergence : Convergence.SILHOUETTE;
+    }
+
+    /**
+     * Sets how to decide when to stop training. Rows in memory stop by the silhouette unless this is set, and streamed
+     * rows always stop by the SSE.
+     *
+     * @param convergence what to watch to decide when to stop
+     */
+    public void setConvergence(Convergence convergence)
+    {
+        this.convergence = convergence;
+    }
+
+    public double getSSETolerance()
+    {
+        return sseTolerance;
+    }
+
+    /**
+     * Sets how much the SSE has to drop in an iteration, as a fraction of the SSE, to keep training with
+     * {@link Convergence#SSE}.
+     *
+     * @param sseTolerance the fraction of the SSE
+     */
+    public void setSSETolerance(double sseTolerance)
+    {
+        this.sseTolerance = sseTolerance;
+    }
+
+    public int getSilhouetteSampleSize()
+    {
+        return silhouetteSampleSize;
+    }
+
+    /**
+     * Sets how many rows of each cluster to estimate the silhouette from. Each iteration takes a new random sample.
+     * A memory-mapped dataset is only read a row at a time, so clustering one needs a sample.
+     *
+     * @param silhouetteSampleSize the most rows to use from each cluster, or 0 to use all of them
+     */
+    public void setSilhouetteSampleSize(int silhouetteSampleSize)
+    {
+        this.silhouetteSampleSize = silhouetteSampleSize;
+    }
+
+    public boolean shouldCacheDistances()
+    {
+        return cacheDistances;
+    }
+
+    /**
+     * Sets whether the distance between every pair of rows is computed once and reused to calculate the silhouette of
+     * every iteration. This gives exactly the same silhouette, but takes memory for half the square of the number of
+     * rows, so it is ignored if there are more than 16384 rows. Restarts share one cache.
+     *
+     * @param cacheDistances true to cache the distances
+     */
+    public void setCacheDistances(boolean cacheDistances)
+    {
+        this.cacheDistances = cacheDistances;
+    }
+
+    /**
+     * Sets the distances between the rows to calculate the silhouette from, so they can be computed once and shared
+     * by several k-means of the same rows.
+     *
+     * @param silhouetteDistances the distances from {@link Silhouette#cacheDistances(double[][], Cluster)}, or null
+     */
+    void setSilhouetteDistances(double[] silhouetteDistances)
+    {
+        this.silhouetteDistances = silhouetteDistances;
+    }
+
+    /**
+     * Sets the rows of the dataset, with only the columns being clustered, so they can be copied out of it once and
+     * shared by several k-means of the same rows. They aren't used for a memory-mapped dataset.
+     *
+     * @param sharedRows the rows, which must not change, or null to copy them from the dataset
+     */
+    void setRows(double[][] sharedRows)
+    {
+        this.sharedRows = sharedRows;
+    }
+
+    public int getBlockSize()
+    {
+        return blockSize;
+    }
+
+    /**
+     * Sets how many rows are read at a time when clustering a {@link RowSource}.
+     *
+     * @param blockSize the number of rows in a block
+     */
+    public void setBlockSize(int blockSize)
+    {
+        this.blockSize = blockSize;
+    }
+
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    public int getRestarts()
+    {
+        return restarts;
+    }
+
+    /**
+     * Sets how many times to run k-means from different starting centroids, keeping the best run. The runs share the
+     * dataset and run at the same time, one per core, except for streamed rows, which run one after another. This has
+     * no effect if the clusters have been set with {@link #setClusters(List)}.
+     *
+     * @param restarts the number of runs
+     */
+    public void setRestarts(int restarts)
+    {
+        this.restarts = restarts;
+    }
+
+    public Selection getSelection()
+    {
+        return selection;
+    }
+
+    /**
+     * Sets how the best of several restarts is picked.
+     *
+     * @param selection what to compare the runs by
+     */
+    public void setSelection(Selection selection)
+    {
+        this.selection = selection;
+    }
+
+    /**
+     * Sets options given on the command line, as name=value pairs after {@code -O}.
+     *
+     * @param options the options, by name
+     * @throws IllegalArgumentException if an option isn't recognized
+     */
+    public void setOptions(Map<String, String> options)
+    {
+        for (Map.Entry<String, String> option : options.entrySet())
+        {
+            switch (option.getKey())
+            {
+                case "parallel":
+                    setParallel(Boolean.parseBoolean(option.getValue()));
+                    break;
+                case "accelerate":
+                    setAccelerated(Boolean.parseBoolean(option.getValue()));
+                    break;
+                case "metric":
+                    setMetric(DistanceKernel.Metric.fromOption(option.getValue()));
+                    break;
+                case "init":
+                    setInitialization(Initialization.fromOption(option.getValue()));
+                    break;
+                case "convergence":
+                    setConvergence(Convergence.valueOf(option.getValue()
+                            .toUpperCase()));
+                    break;
+                case "tolerance":
+                    setSSETolerance(Double.parseDouble(option.getValue()));
+                    break;
+                case "silhouetteSample":
+                    setSilhouetteSampleSize(Integer.parseInt(option.getValue()));
+                    break;
+                case "cacheDistances":
+                    setCacheDistances(Boolean.parseBoolean(option.getValue()));
+                    break;
+                case "restarts":
+                    setRestarts(Integer.parseInt(option.getValue()));
+                    break;
+                case "block":
+                    setBlockSize(Integer.parseInt(option.getValue()));
+                    break;
+                case "select":
+                    setSelection(Selection.valueOf(option.getValue()
+                            .toUpperCase()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unrecognized k-means option: " + option.getKey());
+            }
+        }
+    }
+
+    /**
+     * Streams the rows of a source in blocks, with only the columns being clustered.
+     */
+    private class StreamedRows
+    {
+        private final RowSource source;
+        private final int firstColumn;
+        private final int cols;
+        private final double[][] block;
+        private final double[][] trimmed;
+
+        private StreamedRows(RowSource source, int firstColumn, int cols)
+        {
+            this.source = source;
+            this.firstColumn = firstColumn;
+            this.cols = cols;
+            block = new double[blockSize][];
+            trimmed = new double[blockSize][];
+        }
+
+        /**
+         * Makes one pass over the source. The rows handed to the consumer are only valid until it returns.
+         */
+        private void forEachBlock(ObjIntConsumer<double[][]> consumer) throws IOException
+        {
+            try (RowSource.Pass pass = source.open())
+            {
+                int count;
+                while ((count = pass.read(block)) > 0)
+                {
+                    double[][] rows = block;
+                    if (firstColumn != 0 || block[0].length != cols)
+                    {
+                        rows = trimmed;
+                        for (int i = 0; i < count; ++i)
+                        {
+                            if (trimmed[i] == null)
+                            {
+                                trimmed[i] = new double[cols];
+                            }
+                            System.arraycopy(block[i], firstColumn, trimmed[i], 0, cols);
+                        }
+                    }
+                    consumer.accept(rows, count);
+                }
+            }
+        }
+    }
+
+    /**
+     * The sizes and SSEs of the final clusters of streamed rows, which aren't kept anywhere else.
+     */
+    private static class StreamedStats
+    {
+        private final int[] sizes;
+        private final double[] sses;
+
+        private StreamedStats(int[] sizes, double[] sses)
+        {
+            this.sizes = sizes;
+            this.sses = sses;
+        }
+    }
+
+    /**
+     * The ways to pick the first centroids.
+     */
+    public enum Initialization
+    {
+        /**
+         * Start at k rows picked uniformly at random.
+         */
+        RANDOM("random"),
+        /**
+         * Start at k rows picked with k-means++, which spreads them out.
+         */
+        K_MEANS_PLUS_PLUS("kmeans++"),
+        /**
+         * Start at k rows picked with k-means||, which spreads them out like k-means++ in only a few passes over the
+         * data.
+         */
+        K_MEANS_PARALLEL("kmeans||");
+
+        private final String option;
+
+        Initialization(String option)
+        {
+            this.option = option;
+        }
+
+        /**
+         * Finds the initialization with the given command line name.
+         *
+         * @param option random, kmeans++ or kmeans||
+         * @return the initialization
+         * @throws IllegalArgumentException if there isn't one with that name
+         */
+        public static Initialization fromOption(String option)
+        {
+            for (Initialization initialization : values())
+            {
+                if (initialization.option.equals(option))
+                {
+                    return initialization;
+                }
+            }
+            throw new IllegalArgumentException("Unrecognized k-means initialization: " + option);
+        }
+    }
+
+    /**
+     * The ways to decide when k-means has converged.
+     */
+    public enum Convergence
+    {
+        /**
+         * Stop once the silhouette stops improving, which costs a silhouette calculation every iteration.
+         */
+        SILHOUETTE,
+        /**
+         * Stop once the SSE stops dropping by more than the tolerance, and only calculate the silhouette at the end.
+         */
+        SSE
+    }
+
+    /**
+     * The ways to pick the best of several restarts. Ties go to the earliest run.
+     */
+    public enum Selection
+    {
+        /**
+         * Keep the run with the lowest SSE.
+         */
+        SSE
+                {
+                    @Override
+                    boolean isBetter(KMeans run, KMeans best)
+                    {
+                        return run.getSSE() < best.getSSE();
+                    }
+                },
+        /**
+         * Keep the run whose final clusters have the highest silhouette.
+         */
+        SILHOUETTE
+                {
+                    @Override
+                    boolean isBetter(KMeans run, KMeans best)
+                    {
+                        return run.getFinalSilhouette() > best.getFinalSilhouette();
+                    }
+                };
+
+        abstract boolean isBetter(KMeans run, KMeans best);
+    }
 }
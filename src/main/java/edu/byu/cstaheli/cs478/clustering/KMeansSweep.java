@@ -0,0 +1,221 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.learner.unsupervised.UnsupervisedLearner;
+import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import edu.byu.cstaheli.cs478.toolkit.utility.StorageType;
+
+import java.io.FileWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static edu.byu.cstaheli.cs478.toolkit.utility.Utility.getFormattedDouble;
+
+/**
+ * Runs k-means for every k in a range, all at the same time, and reports the SSE and silhouette of each, so k can be
+ * picked from where the SSE stops dropping quickly (the elbow) or where the silhouette is highest.
+ * <p>
+ * Every run has the same options, and its own seed drawn in order of k from the seed of the sweep. The runs share the
+ * rows, which are copied out of the dataset once. If the runs check for convergence by the exact silhouette, or are
+ * told to cache distances, the distances between the rows are also computed once up front and shared by the
+ * silhouettes of every run, instead of each run computing them again. They aren't shared if there are more than
+ * {@link Silhouette#MAX_CACHED_ROWS} rows.
+ */
+public class KMeansSweep extends UnsupervisedLearner
+{
+    private final int minK;
+    private final int maxK;
+    private final Random random;
+    private Map<String, String> options;
+    private boolean useLastColumnOfDataset;
+    private boolean useFirstColumnOfDataset;
+    private KMeans[] runs;
+
+    /**
+     * @param minK   the smallest k to try
+     * @param maxK   the largest k to try
+     * @param random where to take the seed of every run from
+     */
+    public KMeansSweep(int minK, int maxK, Random random)
+    {
+        if (minK < 1 || maxK < minK)
+        {
+            throw new IllegalArgumentException(String.format("Can't sweep k from %s to %s", minK, maxK));
+        }
+        this.minK = minK;
+        this.maxK = maxK;
+        this.random = random;
+        options = new HashMap<>();
+        useLastColumnOfDataset = true;
+        useFirstColumnOfDataset = true;
+        runs = new KMeans[0];
+    }
+
+    @Override
+    public void cluster(Matrix dataset)
+    {
+        if (!useLastColumnOfDataset)
+        {
+            dataset = dataset.view(0, 0, dataset.rows(), dataset.cols() - 1);
+        }
+        if (!useFirstColumnOfDataset)
+        {
+            dataset = dataset.view(0, 1, dataset.rows(), dataset.cols() - 1);
+        }
+        runs = new KMeans[maxK - minK + 1];
+        for (int i = 0; i < runs.length; ++i)
+        {
+            runs[i] = new KMeans(minK + i, new Random(random.nextLong()));
+            runs[i].setOptions(options);
+        }
+
+        // Compute the statistics now, so the runs don't all race to compute them at once
+        dataset.getColumnStatistics();
+        Matrix data = dataset;
+        Membership rows;
+        if (dataset.getStorageType() == StorageType.MAPPED)
+        {
+            rows = new Membership(dataset);
+        }
+        else
+        {
+            double[][] sharedRows = new double[dataset.rows()][];
+            IntStream.range(0, sharedRows.length)
+                    .parallel()
+                    .forEach(i -> sharedRows[i] = data.row(i));
+            for (KMeans run : runs)
+            {
+                run.setRows(sharedRows);
+            }
+            rows = new Membership(sharedRows);
+        }
+        if (needsDistances(runs[0]) && dataset.rows() <= Silhouette.MAX_CACHED_ROWS)
+        {
+            Cluster metric = new Cluster(rows.row(0), dataset, DistanceKernel.create(dataset, runs[0].getMetric()));
+            double[] distances = Silhouette.cacheDistances(rows, metric);
+            for (KMeans run : runs)
+            {
+                run.setSilhouetteDistances(distances);
+            }
+        }
+
+        IntStream.range(0, runs.length)
+                .parallel()
+                .forEach(i -> runs[i].cluster(data));
+        printFinalStats();
+    }
+
+    /**
+     * Returns whether the runs will compare every pair of rows more than once: when they check for convergence by the
+     * exact silhouette, or are told to cache the distances.
+     */
+    private static boolean needsDistances(KMeans run)
+    {
+        return run.shouldCacheDistances() || (run.getConvergence() == KMeans.Convergence.SILHOUETTE && run.getSilhouetteSampleSize() == 0);
+    }
+
+    private void printFinalStats()
+    {
+        System.out.println("\nk\tSSE\tSilhouette\tIterations");
+        for (KMeans run : runs)
+        {
+            System.out.printf("%s\t%s\t%s\t%s\n", run.getK(), getFormattedDouble(run.getSSE()), getFormattedDouble(run.getSilhouette()), run.getIterations());
+        }
+        int elbow = getElbow();
+        if (elbow != -1)
+        {
+            System.out.printf("Elbow: k = %s\n", elbow);
+        }
+        if (shouldOutput())
+        {
+            try (FileWriter writer = new FileWriter(getOutputFile(), true))
+            {
+                writer.append("k,SSE,Silhouette\n");
+                for (KMeans run : runs)
+                {
+                    writer.append(String.format("%s,%s,%s\n", run.getK(), getFormattedDouble(run.getSSE()), getFormattedDouble(run.getSilhouette())));
+                }
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Finds the k where the SSE curve bends the most: where the drop in SSE from the k before is largest compared to
+     * the drop to the k after.
+     *
+     * @return the k at the elbow, or -1 if fewer than three k were tried
+     */
+    public int getElbow()
+    {
+        int elbow = -1;
+        double sharpest = Double.NEGATIVE_INFINITY;
+        for (int i = 1; i < runs.length - 1; ++i)
+        {
+            double bend = (runs[i - 1].getSSE() - runs[i].getSSE()) - (runs[i].getSSE() - runs[i + 1].getSSE());
+            if (bend > sharpest)
+            {
+                sharpest = bend;
+                elbow = runs[i].getK();
+            }
+        }
+        return elbow;
+    }
+
+    /**
+     * Returns the k-means run for every k by the last call to {@link #cluster(Matrix)}, from the smallest k up.
+     *
+     * @return the runs
+     */
+    public KMeans[] getRuns()
+    {
+        return runs;
+    }
+
+    public int getMinK()
+    {
+        return minK;
+    }
+
+    public int getMaxK()
+    {
+        return maxK;
+    }
+
+    public boolean shouldUseLastColumnOfDataset()
+    {
+        return useLastColumnOfDataset;
+    }
+
+    public void setUseLastColumnOfDataset(boolean useLastColumnOfDataset)
+    {
+        this.useLastColumnOfDataset = useLastColumnOfDataset;
+    }
+
+    public boolean shouldUseFirstColumnOfDataset()
+    {
+        return useFirstColumnOfDataset;
+    }
+
+    public void setUseFirstColumnOfDataset(boolean useFirstColumnOfDataset)
+    {
+        this.useFirstColumnOfDataset = useFirstColumnOfDataset;
+    }
+
+    /**
+     * Sets the options every k-means run is given, as for {@link KMeans#setOptions(Map)}. They are checked now, not
+     * when the runs start.
+     *
+     * @param options the options, by name
+     * @throws IllegalArgumentException if an option isn't recognized
+     */
+    public void setOptions(Map<String, String> options)
+    {
+        new KMeans(minK, new Random()).setOptions(options);
+        this.options = options;
+    }
+}
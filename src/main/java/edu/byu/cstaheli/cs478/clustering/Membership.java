@@ -0,0 +1,186 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import edu.byu.cstaheli.cs478.toolkit.utility.StorageType;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records which cluster every row is in, as one int per row, shared by all the clusters of a clustering. A
+ * {@link Cluster} only holds its id and a count of its rows, and finds its rows by looking for its id here, so moving a
+ * row from one cluster to another is just changing one int.
+ * <p>
+ * The rows are either fixed when the membership is created, or added one at a time, for clusters that are built up
+ * from rows that aren't in a dataset. Rows that are fixed are either arrays on the heap, or the rows of a
+ * {@link StorageType#MAPPED memory-mapped} matrix, which are copied out of the matrix every time they are read.
+ */
+class Membership
+{
+    static final int UNASSIGNED = -1;
+
+    private double[][] rows;
+    private final Matrix dataset;
+    private final ThreadLocal<double[]> buffers;
+    private int[] assignments;
+    private int size;
+
+    /**
+     * Creates a membership of the given rows, none of which are in a cluster yet.
+     *
+     * @param rows the rows being clustered, which must not change
+     */
+    Membership(double[][] rows)
+    {
+        this.rows = rows;
+        dataset = null;
+        buffers = null;
+        assignments = new int[rows.length];
+        Arrays.fill(assignments, UNASSIGNED);
+        size = rows.length;
+    }
+
+    /**
+     * Creates a membership of the rows of a matrix, none of which are in a cluster yet. The rows are read from the
+     * matrix whenever they are needed, instead of being kept on the heap.
+     *
+     * @param dataset the rows being clustered, which must not change
+     */
+    Membership(Matrix dataset)
+    {
+        this.dataset = dataset;
+        buffers = ThreadLocal.withInitial(() -> new double[dataset.cols()]);
+        assignments = new int[dataset.rows()];
+        Arrays.fill(assignments, UNASSIGNED);
+        size = dataset.rows();
+    }
+
+    /**
+     * Creates a membership with no rows, which are added with {@link #append(double[])}.
+     */
+    Membership()
+    {
+        rows = new double[8][];
+        dataset = null;
+        buffers = null;
+        assignments = new int[8];
+        size = 0;
+    }
+
+    /**
+     * Adds a row, which isn't in a cluster yet.
+     *
+     * @param row the row
+     * @return the index of the row
+     */
+    int append(double[] row)
+    {
+        if (rows == null)
+        {
+            throw new UnsupportedOperationException("Rows can't be added to the membership of a matrix");
+        }
+        if (size == rows.length)
+        {
+            rows = Arrays.copyOf(rows, size * 2);
+            assignments = Arrays.copyOf(assignments, size * 2);
+        }
+        rows[size] = row;
+        assignments[size] = UNASSIGNED;
+        return size++;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns a row that can be kept.
+     *
+     * @param index the index of the row
+     * @return the row, which is a copy if the rows are read from a matrix
+     */
+    double[] row(int index)
+    {
+        return rows != null ? rows[index] : dataset.row(index);
+    }
+
+    /**
+     * Reads a row without allocating a copy of it. If the rows are read from a matrix, the row is copied into a buffer
+     * that belongs to the calling thread, so it is only valid until that thread reads another row.
+     *
+     * @param index the index of the row
+     * @return the row, which must not be changed
+     */
+    double[] read(int index)
+    {
+        if (rows != null)
+        {
+            return rows[index];
+        }
+        double[] buffer = buffers.get();
+        dataset.copyRow(index, buffer);
+        return buffer;
+    }
+
+    int getCluster(int index)
+    {
+        return assignments[index];
+    }
+
+    void setCluster(int index, int cluster)
+    {
+        assignments[index] = cluster;
+    }
+
+    /**
+     * Takes every row out of its cluster.
+     */
+    void clear()
+    {
+        Arrays.fill(assignments, 0, size, UNASSIGNED);
+    }
+
+    /**
+     * Finds the indexes of the rows in a cluster. This looks at every row, so it is for when a cluster's rows are
+     * needed one cluster at a time, not for going over the rows of all the clusters.
+     *
+     * @param cluster the id of the cluster
+     * @param count   how many rows the cluster has
+     * @return the indexes, in order
+     */
+    int[] members(int cluster, int count)
+    {
+        int[] members = new int[count];
+        int found = 0;
+        for (int i = 0; i < size && found < count; ++i)
+        {
+            if (assignments[i] == cluster)
+            {
+                members[found++] = i;
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Measures the SSE of every cluster in one pass over the rows, instead of a pass per cluster.
+     *
+     * @param clusters the clusters of this membership, each at the index of its id
+     * @return the sum of the distances from the rows of every cluster to its centroid
+     */
+    double[] calcSSEs(List<Cluster> clusters)
+    {
+        double[] sses = new double[clusters.size()];
+        for (int i = 0; i < size; ++i)
+        {
+            int cluster = assignments[i];
+            if (cluster != UNASSIGNED)
+            {
+                sses[cluster] += clusters.get(cluster)
+                        .calcDistanceFromCentroid(read(i));
+            }
+        }
+        return sses;
+    }
+}
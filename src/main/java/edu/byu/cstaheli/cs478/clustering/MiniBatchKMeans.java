@@ -0,0 +1,370 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.learner.unsupervised.UnsupervisedLearner;
+import edu.byu.cstaheli.cs478.toolkit.utility.Histogram;
+import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static edu.byu.cstaheli.cs478.toolkit.utility.Utility.getFormattedDouble;
+
+/**
+ * Implements mini-batch k-means clustering (Sculley, 2010). Instead of assigning every row on every iteration, each
+ * iteration samples a small batch of rows, assigns them to their nearest centroids, and moves each of those centroids
+ * toward its rows with a learning rate of one over the number of rows it has been given so far. Each centroid ends up
+ * being the running mean of every row it was given (and the running mode for nominal columns), so it converges in a
+ * fraction of the passes over the data that {@link KMeans} needs.
+ * <p>
+ * Rows are only read a batch at a time, plus one last pass to measure the clusters.
+ */
+public class MiniBatchKMeans extends UnsupervisedLearner
+{
+    private int k;
+    private Random random;
+    private int batchSize;
+    private int maxIterations;
+    private double tolerance;
+    private boolean useLastColumnOfDataset;
+    private boolean useFirstColumnOfDataset;
+    private List<Cluster> clusters;
+    private int[] clusterSizes;
+    private double[] clusterSSEs;
+    private int iterations;
+    private ClusteringListener listener;
+
+    public MiniBatchKMeans(int k, Random random)
+    {
+        this.k = k;
+        this.random = random;
+        batchSize = 100;
+        maxIterations = 100;
+        tolerance = 1e-4;
+        useLastColumnOfDataset = true;
+        useFirstColumnOfDataset = true;
+        clusters = new ArrayList<>(0);
+        listener = ClusteringListener.NONE;
+    }
+
+    @Override
+    public void cluster(Matrix dataset)
+    {
+        if (!useLastColumnOfDataset)
+        {
+            dataset = dataset.view(0, 0, dataset.rows(), dataset.cols() - 1);
+        }
+        if (!useFirstColumnOfDataset)
+        {
+            dataset = dataset.view(0, 1, dataset.rows(), dataset.cols() - 1);
+        }
+        clusters = new ArrayList<>(k);
+        for (int i = 0; i < k; ++i)
+        {
+            // The centroids are moved in place, so they can't be the live rows
+            double[] centroid = new double[dataset.cols()];
+            dataset.copyRow(random.nextInt(dataset.rows()), centroid);
+            clusters.add(new Cluster(centroid, dataset));
+        }
+
+        int cols = dataset.cols();
+        int[][] counts = new int[k][cols];
+        Histogram[][] occurrences = new Histogram[k][cols];
+        for (int i = 0; i < k; ++i)
+        {
+            for (int j = 0; j < cols; ++j)
+            {
+                if (dataset.valueCount(j) != 0)
+                {
+                    occurrences[i][j] = new Histogram(dataset.valueCount(j));
+                }
+            }
+        }
+        double[][] batch = new double[batchSize][cols];
+        int[] assignments = new int[batchSize];
+        double[][] previous = new double[k][];
+
+        iterations = 0;
+        double movement;
+        do
+        {
+            ++iterations;
+            for (int i = 0; i < batchSize; ++i)
+            {
+                dataset.copyRow(random.nextInt(dataset.rows()), batch[i]);
+                assignments[i] = getBestClusterForRow(batch[i]);
+            }
+            for (int i = 0; i < k; ++i)
+            {
+                previous[i] = clusters.get(i)
+                        .getCentroid()
+                        .clone();
+            }
+            for (int i = 0; i < batchSize; ++i)
+            {
+                moveCentroid(assignments[i], batch[i], counts, occurrences);
+            }
+            movement = 0;
+            for (int i = 0; i < k; ++i)
+            {
+                movement = Math.max(movement, clusters.get(i)
+                        .calcDistanceFromCentroid(previous[i]));
+            }
+        } while (iterations < maxIterations && movement > tolerance);
+
+        measureClusters(dataset);
+        printFinalStats();
+    }
+
+    /**
+     * Moves the centroid toward the row. Each continuous value moves by one over the number of values the centroid has
+     * been given in that column, which keeps it at the mean of them. Each nominal value is the most common one it has
+     * been given. Missing values are skipped.
+     */
+    private void moveCentroid(int cluster, double[] row, int[][] counts, Histogram[][] occurrences)
+    {
+        double[] centroid = clusters.get(cluster)
+                .getCentroid();
+        for (int j = 0; j < row.length; ++j)
+        {
+            double value = row[j];
+            if (Double.compare(value, Matrix.MISSING) == 0)
+            {
+                continue;
+            }
+            if (occurrences[cluster][j] == null)
+            {
+                int count = ++counts[cluster][j];
+                if (count == 1)
+                {
+                    centroid[j] = value;
+                }
+                else
+                {
+                    centroid[j] += (value - centroid[j]) / count;
+                }
+            }
+            else
+            {
+                occurrences[cluster][j].add(value);
+                centroid[j] = occurrences[cluster][j].mostCommon(centroid[j]);
+            }
+        }
+    }
+
+    /**
+     * Assigns every row to its nearest centroid once more, to find how big each cluster is and its SSE.
+     */
+    private void measureClusters(Matrix dataset)
+    {
+        clusterSizes = new int[k];
+        clusterSSEs = new double[k];
+        double[] row = new double[dataset.cols()];
+        for (int i = 0; i < dataset.rows(); ++i)
+        {
+            dataset.copyRow(i, row);
+            int cluster = getBestClusterForRow(row);
+            ++clusterSizes[cluster];
+            clusterSSEs[cluster] += clusters.get(cluster)
+                    .calcDistanceFromCentroid(row);
+        }
+    }
+
+    private int getBestClusterForRow(double[] row)
+    {
+        double bestDistance = Double.MAX_VALUE;
+        int bestCluster = 0;
+        for (int i = 0; i < clusters.size(); ++i)
+        {
+            double distance = clusters.get(i)
+                    .calcDistanceFromCentroid(row);
+            if (distance < bestDistance)
+            {
+                bestDistance = distance;
+                bestCluster = i;
+            }
+        }
+        return bestCluster;
+    }
+
+    private void printFinalStats()
+    {
+        double totalSSE = getSSE();
+        listener.message(String.format("Mini-batch k-means finished after %s batches of %s rows", iterations, batchSize));
+        // The silhouette would need every row at once, which mini-batches are meant to avoid
+        listener.clusteringFinished(clusters, totalSSE, Double.NaN);
+        if (shouldOutput())
+        {
+            try (FileWriter writer = new FileWriter(getOutputFile(), true))
+            {
+                writer.append(String.format("***\n%s\n", k));
+                for (int i = 0; i < k; ++i)
+                {
+                    writer.append(clusters.get(i)
+                            .getCentroidString(","));
+                    writer.append("\n");
+                    writer.append(String.valueOf(clusterSizes[i]));
+                    writer.append("\n");
+                    writer.append(getFormattedDouble(clusterSSEs[i]));
+                    writer.append("\n");
+                }
+                writer.append(getFormattedDouble(totalSSE))
+                        .append("\n");
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Returns the clusters found by the last call to {@link #cluster(Matrix)}. They only hold their centroids, not
+     * their rows.
+     *
+     * @return the clusters
+     */
+    public List<Cluster> getClusters()
+    {
+        return clusters;
+    }
+
+    /**
+     * Returns how many rows were nearest to each cluster at the end of the last call to {@link #cluster(Matrix)}.
+     *
+     * @return the size of each cluster
+     */
+    public int[] getClusterSizes()
+    {
+        return clusterSizes;
+    }
+
+    /**
+     * Returns the total SSE of the clusters at the end of the last call to {@link #cluster(Matrix)}.
+     *
+     * @return the total SSE
+     */
+    public double getSSE()
+    {
+        double sse = 0;
+        for (double clusterSSE : clusterSSEs)
+        {
+            sse += clusterSSE;
+        }
+        return sse;
+    }
+
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    public ClusteringListener getListener()
+    {
+        return listener;
+    }
+
+    /**
+     * Sets what is told how clustering is going. Nothing is printed by default.
+     *
+     * @param listener the listener, or {@link ClusteringListener#NONE}
+     */
+    public void setListener(ClusteringListener listener)
+    {
+        this.listener = listener;
+    }
+
+    public int getK()
+    {
+        return k;
+    }
+
+    public void setK(int k)
+    {
+        this.k = k;
+    }
+
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxIterations()
+    {
+        return maxIterations;
+    }
+
+    public void setMaxIterations(int maxIterations)
+    {
+        this.maxIterations = maxIterations;
+    }
+
+    public double getTolerance()
+    {
+        return tolerance;
+    }
+
+    /**
+     * Sets how far the centroids have to move in a batch for training to keep going.
+     *
+     * @param tolerance the distance the farthest moving centroid has to move
+     */
+    public void setTolerance(double tolerance)
+    {
+        this.tolerance = tolerance;
+    }
+
+    public boolean shouldUseLastColumnOfDataset()
+    {
+        return useLastColumnOfDataset;
+    }
+
+    public void setUseLastColumnOfDataset(boolean useLastColumnOfDataset)
+    {
+        this.useLastColumnOfDataset = useLastColumnOfDataset;
+    }
+
+    public boolean shouldUseFirstColumnOfDataset()
+    {
+        return useFirstColumnOfDataset;
+    }
+
+    public void setUseFirstColumnOfDataset(boolean useFirstColumnOfDataset)
+    {
+        this.useFirstColumnOfDataset = useFirstColumnOfDataset;
+    }
+
+    /**
+     * Sets options given on the command line, as name=value pairs after {@code -O}.
+     *
+     * @param options the options, by name
+     * @throws IllegalArgumentException if an option isn't recognized
+     */
+    public void setOptions(Map<String, String> options)
+    {
+        for (Map.Entry<String, String> option : options.entrySet())
+        {
+            switch (option.getKey())
+            {
+                case "batch":
+                    setBatchSize(Integer.parseInt(option.getValue()));
+                    break;
+                case "iterations":
+                    setMaxIterations(Integer.parseInt(option.getValue()));
+                    break;
+                case "tolerance":
+                    setTolerance(Double.parseDouble(option.getValue()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unrecognized mini-batch k-means option: " + option.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.List;
+
+import static edu.byu.cstaheli.cs478.toolkit.utility.Utility.getFormattedDouble;
+
+/**
+ * Prints a line about each iteration of clustering. Verbose, it also prints the centroids at the start of every
+ * iteration and which cluster every row was assigned to. Everything goes through a buffer that is only flushed at the
+ * end of each iteration, so printing doesn't slow clustering down much even when verbose.
+ */
+public class PrintingClusteringListener implements ClusteringListener
+{
+    private final PrintWriter out;
+    private final boolean verbose;
+
+    /**
+     * @param out     where to print
+     * @param verbose true to also print the centroids and assignments
+     */
+    public PrintingClusteringListener(OutputStream out, boolean verbose)
+    {
+        this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out), 1 << 16), false);
+        this.verbose = verbose;
+    }
+
+    @Override
+    public void iterationStarted(int iteration, List<Cluster> clusters)
+    {
+        if (verbose)
+        {
+            out.printf("\n***************\nIteration %s\n***************\n", iteration);
+            out.println("Printing Centroids");
+            for (int i = 0; i < clusters.size(); ++i)
+            {
+                out.printf("Centroid %s = %s\n", i, clusters.get(i)
+                        .getCentroidString(",\t"));
+            }
+        }
+    }
+
+    @Override
+    public void rowsAssigned(int[] assignments)
+    {
+        if (verbose)
+        {
+            out.print("Making Assignments");
+            for (int i = 0; i < assignments.length; ++i)
+            {
+                if (i % 10 == 0)
+                {
+                    out.println();
+                }
+                out.print(i);
+                out.print('=');
+                out.print(assignments[i]);
+                out.print(' ');
+            }
+            out.println();
+        }
+    }
+
+    @Override
+    public void iterationFinished(IterationProgress progress)
+    {
+        out.printf("Iteration %s: SSE %s", progress.getIteration(), getFormattedDouble(progress.getSSE()));
+        if (!Double.isNaN(progress.getSilhouette()))
+        {
+            out.printf(", silhouette %s", getFormattedDouble(progress.getSilhouette()));
+        }
+        if (progress.getMovedRows() >= 0)
+        {
+            out.printf(", %s rows moved", progress.getMovedRows());
+        }
+        out.printf(", %s ms\n", progress.getTotalNanos() / 1000000);
+        out.flush();
+    }
+
+    @Override
+    public void message(String message)
+    {
+        out.println(message);
+    }
+
+    @Override
+    public void clusteringFinished(List<Cluster> clusters, double sse, double silhouette)
+    {
+        out.printf("\nSSE: %s\n", getFormattedDouble(sse));
+        out.printf("Silhouette: %s\n", silhouette);
+        out.flush();
+    }
+}
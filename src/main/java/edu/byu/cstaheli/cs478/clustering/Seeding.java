@@ -0,0 +1,245 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Picks the rows that the first centroids of k-means start at, spread out so that k-means converges in fewer
+ * iterations and is less likely to end up with empty clusters than when they are picked uniformly at random.
+ * <ul>
+ * <li>k-means++ (Arthur and Vassilvitskii, 2007) picks one row at random, then each next row with probability
+ * proportional to its squared distance to the nearest row picked so far. That takes k passes over the data.</li>
+ * <li>k-means|| (Bahmani et al., 2012) instead samples many rows at once in each of a few rounds, each row
+ * independently with probability proportional to its squared distance, then weights each candidate by how many rows are
+ * nearest to it and picks k of them with weighted k-means++. That takes only a few passes, however big k is.</li>
+ * </ul>
+ * The passes that find every row's distance to the nearest picked row can run on all cores. The random numbers are
+ * always drawn in the same order, so the rows picked only depend on the seed.
+ */
+class Seeding
+{
+    private final Membership rows;
+    private final Cluster metric;
+    private final Random random;
+    private final boolean parallel;
+    private final boolean squared;
+
+    /**
+     * @param rows     the rows to pick from
+     * @param metric   any cluster of the rows, to measure distances with
+     * @param random   where to take random numbers from
+     * @param parallel true to measure distances on all cores
+     */
+    Seeding(double[][] rows, Cluster metric, Random random, boolean parallel)
+    {
+        this(new Membership(rows), metric, random, parallel);
+    }
+
+    /**
+     * @param rows     the rows to pick from. Only the rows themselves are used, not which clusters they are in.
+     * @param metric   any cluster of the rows, to measure distances with
+     * @param random   where to take random numbers from
+     * @param parallel true to measure distances on all cores
+     */
+    Seeding(Membership rows, Cluster metric, Random random, boolean parallel)
+    {
+        this.rows = rows;
+        this.metric = metric;
+        this.random = random;
+        this.parallel = parallel;
+        squared = metric.getKernel()
+                .getMetric() == DistanceKernel.Metric.SQUARED_EUCLIDEAN;
+    }
+
+    /**
+     * Picks k rows with k-means++.
+     *
+     * @param k the number of rows to pick
+     * @return the indexes of the rows
+     */
+    int[] plusPlus(int k)
+    {
+        double[] weights = new double[rows.size()];
+        Arrays.fill(weights, 1);
+        return plusPlus(k, IntStream.range(0, rows.size())
+                .toArray(), weights);
+    }
+
+    /**
+     * Picks k rows with k-means||.
+     *
+     * @param k            the number of rows to pick
+     * @param oversampling how many rows to expect to sample in each round, as a multiple of k
+     * @param rounds       how many rounds of sampling to do
+     * @return the indexes of the rows
+     */
+    int[] parallel(int k, double oversampling, int rounds)
+    {
+        List<Integer> candidates = new ArrayList<>();
+        boolean[] picked = new boolean[rows.size()];
+        int first = random.nextInt(rows.size());
+        candidates.add(first);
+        picked[first] = true;
+        double[] distances = new double[rows.size()];
+        Arrays.fill(distances, Double.MAX_VALUE);
+        updateDistances(distances, first);
+
+        for (int round = 0; round < rounds; ++round)
+        {
+            double total = sum(distances);
+            if (total == 0)
+            {
+                break;
+            }
+            List<Integer> sampled = new ArrayList<>();
+            for (int i = 0; i < rows.size(); ++i)
+            {
+                double probability = oversampling * k * distances[i] / total;
+                if (!picked[i] && random.nextDouble() < probability)
+                {
+                    sampled.add(i);
+                    picked[i] = true;
+                }
+            }
+            for (int row : sampled)
+            {
+                updateDistances(distances, row);
+            }
+            candidates.addAll(sampled);
+        }
+
+        int[] candidateRows = new int[candidates.size()];
+        double[][] candidateValues = new double[candidates.size()][];
+        for (int i = 0; i < candidateRows.length; ++i)
+        {
+            candidateRows[i] = candidates.get(i);
+            candidateValues[i] = rows.row(candidateRows[i]);
+        }
+        // Weight each candidate by how many rows are nearest to it, then pick k of them
+        int[] nearest = new int[rows.size()];
+        rowIndexes().forEach(i -> nearest[i] = nearestCandidate(rows.read(i), candidateValues));
+        double[] weights = new double[candidateRows.length];
+        for (int candidate : nearest)
+        {
+            ++weights[candidate];
+        }
+        return plusPlus(k, candidateRows, weights);
+    }
+
+    /**
+     * Picks k of the candidate rows with k-means++, where each candidate's chance is also multiplied by its weight. If
+     * there are fewer than k candidates, the rest are picked uniformly at random.
+     */
+    private int[] plusPlus(int k, int[] candidates, double[] weights)
+    {
+        int[] seeds = new int[k];
+        double[] distances = new double[candidates.length];
+        Arrays.fill(distances, Double.MAX_VALUE);
+        double[] chances = new double[candidates.length];
+        boolean[] chosen = new boolean[candidates.length];
+        int seed = pick(weights, sum(weights));
+        for (int s = 0; s < k; ++s)
+        {
+            if (seed == -1)
+            {
+                seeds[s] = random.nextInt(rows.size());
+                continue;
+            }
+            seeds[s] = candidates[seed];
+            // A row with missing values isn't 0 from itself, so it has to be ruled out explicitly
+            chosen[seed] = true;
+            double[] row = rows.row(candidates[seed]);
+            IntStream indexes = IntStream.range(0, candidates.length);
+            (parallel ? indexes.parallel() : indexes).forEach(i ->
+            {
+                distances[i] = Math.min(distances[i], squaredDistance(rows.read(candidates[i]), row));
+                chances[i] = chosen[i] ? 0 : distances[i] * weights[i];
+            });
+            seed = pick(chances, sum(chances));
+        }
+        return seeds;
+    }
+
+    /**
+     * Picks an index with probability proportional to its weight.
+     *
+     * @return the index, or -1 if every weight is 0
+     */
+    private int pick(double[] weights, double total)
+    {
+        if (total == 0)
+        {
+            return -1;
+        }
+        double target = random.nextDouble() * total;
+        double cumulative = 0;
+        int last = -1;
+        for (int i = 0; i < weights.length; ++i)
+        {
+            if (weights[i] > 0)
+            {
+                cumulative += weights[i];
+                last = i;
+                if (cumulative > target)
+                {
+                    return i;
+                }
+            }
+        }
+        // Rounding can leave the target just past the end
+        return last;
+    }
+
+    private void updateDistances(double[] distances, int seed)
+    {
+        double[] row = rows.row(seed);
+        rowIndexes().forEach(i ->
+        {
+            distances[i] = Math.min(distances[i], squaredDistance(rows.read(i), row));
+        });
+    }
+
+    /**
+     * The square of the distance between two rows, which {@link DistanceKernel.Metric#SQUARED_EUCLIDEAN} already is.
+     */
+    private double squaredDistance(double[] first, double[] second)
+    {
+        double distance = metric.calcDistance(first, second);
+        return squared ? distance : distance * distance;
+    }
+
+    private int nearestCandidate(double[] row, double[][] candidates)
+    {
+        double bestDistance = Double.MAX_VALUE;
+        int best = 0;
+        for (int i = 0; i < candidates.length; ++i)
+        {
+            double distance = metric.calcDistance(row, candidates[i]);
+            if (distance < bestDistance)
+            {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private IntStream rowIndexes()
+    {
+        IntStream indexes = IntStream.range(0, rows.size());
+        return parallel ? indexes.parallel() : indexes;
+    }
+
+    private static double sum(double[] values)
+    {
+        double sum = 0;
+        for (double value : values)
+        {
+            sum += value;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,267 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Calculates the silhouette of a clustering the way {@link KMeans} measures it: for each cluster, the average
+ * distance between its rows is compared with the average distance from its rows to the rows of the nearest other
+ * cluster, and the cluster silhouettes are averaged. This is the same calculation as
+ * {@link Cluster#calculateAverageInternalDissimilarity()} and
+ * {@link Cluster#calculateAverageExternalDissimilarity(Cluster)}, but working from row indexes, which makes two
+ * cheaper estimates possible:
+ * <ul>
+ * <li>Sampled: only a random sample of up to a fixed number of rows from each cluster is used, so each iteration costs
+ * O(k^2 * sample^2) distances instead of O(n^2).</li>
+ * <li>Cached: the distance between every pair of rows is computed once and reused by every iteration. The result is
+ * exactly the same as computing them again, but it takes n^2 / 2 doubles of memory.</li>
+ * </ul>
+ */
+class Silhouette
+{
+    /**
+     * The most rows distances will be cached for, which takes about a gigabyte.
+     */
+    static final int MAX_CACHED_ROWS = 16384;
+
+    private final Membership rows;
+    private final Cluster metric;
+    private final int sampleSize;
+    private final Random random;
+    private final double[] distances;
+
+    /**
+     * @param rows       the rows being clustered, which must not change
+     * @param metric     any cluster of the rows, to measure distances with
+     * @param sampleSize the most rows to use from each cluster, or 0 to use all of them
+     * @param random     where to take samples from
+     * @param cache      true to compute the distances between the rows once and reuse them. This is ignored if there
+     *                   are more than {@link #MAX_CACHED_ROWS} rows.
+     */
+    Silhouette(double[][] rows, Cluster metric, int sampleSize, Random random, boolean cache)
+    {
+        this(new Membership(rows), metric, sampleSize, random, cache);
+    }
+
+    /**
+     * @param rows       the rows being clustered, which must not change. Only the rows themselves are used, not which
+     *                   clusters they are in.
+     * @param metric     any cluster of the rows, to measure distances with
+     * @param sampleSize the most rows to use from each cluster, or 0 to use all of them
+     * @param random     where to take samples from
+     * @param cache      true to compute the distances between the rows once and reuse them. This is ignored if there
+     *                   are more than {@link #MAX_CACHED_ROWS} rows.
+     */
+    Silhouette(Membership rows, Cluster metric, int sampleSize, Random random, boolean cache)
+    {
+        this(rows, metric, sampleSize, random, cache && rows.size() <= MAX_CACHED_ROWS ? cacheDistances(rows, metric) : null);
+    }
+
+    /**
+     * @param rows       the rows being clustered, which must not change
+     * @param metric     any cluster of the rows, to measure distances with
+     * @param sampleSize the most rows to use from each cluster, or 0 to use all of them
+     * @param random     where to take samples from
+     * @param distances  the distances between the rows from {@link #cacheDistances(Membership, Cluster)}, which can be
+     *                   shared by any number of silhouettes of the same rows, or null to compute them as needed
+     */
+    Silhouette(Membership rows, Cluster metric, int sampleSize, Random random, double[] distances)
+    {
+        this.rows = rows;
+        this.metric = metric;
+        this.sampleSize = sampleSize;
+        this.random = random;
+        this.distances = distances;
+    }
+
+    /**
+     * Returns whether the distances between the rows are cached.
+     *
+     * @return true if they are cached
+     */
+    boolean isCached()
+    {
+        return distances != null;
+    }
+
+    /**
+     * Calculates the silhouette of the clusters.
+     *
+     * @param assignments the index of the cluster of every row
+     * @param k           the number of clusters
+     * @return the average silhouette of the clusters
+     */
+    double calculate(int[] assignments, int k)
+    {
+        int[][] members = getMembers(assignments, k);
+        // Rows that are read from a matrix are only copied once, however many times they are compared
+        double[][][] memberRows = new double[k][][];
+        for (int i = 0; i < k; ++i)
+        {
+            memberRows[i] = new double[members[i].length][];
+            for (int j = 0; j < members[i].length; ++j)
+            {
+                memberRows[i][j] = rows.row(members[i][j]);
+            }
+        }
+        double silhouetteMetric = 0;
+        for (int i = 0; i < k; ++i)
+        {
+            double internalDissimilarity = averageDissimilarity(members[i], memberRows[i], members[i], memberRows[i]);
+            double externalDissimilarity = Double.MAX_VALUE;
+            for (int j = 0; j < k; ++j)
+            {
+                if (i != j)
+                {
+                    double dissimilarity = averageDissimilarity(members[i], memberRows[i], members[j], memberRows[j]);
+                    if (dissimilarity < externalDissimilarity)
+                    {
+                        externalDissimilarity = dissimilarity;
+                    }
+                }
+            }
+            silhouetteMetric += silhouette(internalDissimilarity, externalDissimilarity);
+        }
+        return silhouetteMetric / k;
+    }
+
+    /**
+     * Finds the rows of each cluster, in row order, which is the order they were added to the clusters in. If
+     * sampling, each cluster is cut down to a random sample of its rows, still in row order.
+     */
+    private int[][] getMembers(int[] assignments, int k)
+    {
+        int[] sizes = new int[k];
+        for (int assignment : assignments)
+        {
+            ++sizes[assignment];
+        }
+        int[][] members = new int[k][];
+        for (int i = 0; i < k; ++i)
+        {
+            members[i] = new int[sizes[i]];
+        }
+        int[] counts = new int[k];
+        for (int i = 0; i < assignments.length; ++i)
+        {
+            members[assignments[i]][counts[assignments[i]]++] = i;
+        }
+        if (sampleSize > 0)
+        {
+            for (int i = 0; i < k; ++i)
+            {
+                members[i] = sample(members[i]);
+            }
+        }
+        return members;
+    }
+
+    private int[] sample(int[] members)
+    {
+        if (members.length <= sampleSize)
+        {
+            return members;
+        }
+        // Partial Fisher-Yates shuffle, picking the sample from the front
+        for (int i = 0; i < sampleSize; ++i)
+        {
+            int j = i + random.nextInt(members.length - i);
+            int temp = members[i];
+            members[i] = members[j];
+            members[j] = temp;
+        }
+        int[] sample = Arrays.copyOf(members, sampleSize);
+        Arrays.sort(sample);
+        return sample;
+    }
+
+    /**
+     * The average distance between the rows of the two clusters, skipping pairs at the same position in both, exactly
+     * like {@link Cluster} does.
+     */
+    private double averageDissimilarity(int[] first, double[][] firstRows, int[] second, double[][] secondRows)
+    {
+        double sum = 0;
+        double count = 0;
+        for (int i = 0; i < first.length; ++i)
+        {
+            for (int j = 0; j < second.length; ++j)
+            {
+                if (i != j)
+                {
+                    sum += distance(first[i], firstRows[i], second[j], secondRows[j]);
+                    ++count;
+                }
+            }
+        }
+        return sum / count;
+    }
+
+    private double distance(int first, double[] firstRow, int second, double[] secondRow)
+    {
+        if (distances == null || first == second)
+        {
+            return metric.calcDistance(firstRow, secondRow);
+        }
+        int high = Math.max(first, second);
+        int low = Math.min(first, second);
+        return distances[(int) (high * (long) (high - 1) / 2) + low];
+    }
+
+    /**
+     * Computes the distance between every pair of different rows, in the order a silhouette looks them up in.
+     *
+     * @param rows   the rows
+     * @param metric any cluster of the rows, to measure distances with
+     * @return the distances, which are only read afterwards
+     */
+    static double[] cacheDistances(double[][] rows, Cluster metric)
+    {
+        return cacheDistances(new Membership(rows), metric);
+    }
+
+    /**
+     * Computes the distance between every pair of different rows, in the order a silhouette looks them up in.
+     *
+     * @param rows   the rows. Only the rows themselves are used, not which clusters they are in.
+     * @param metric any cluster of the rows, to measure distances with
+     * @return the distances, which are only read afterwards
+     */
+    static double[] cacheDistances(Membership rows, Cluster metric)
+    {
+        double[] distances = new double[(int) (rows.size() * (long) (rows.size() - 1) / 2)];
+        int index = 0;
+        for (int i = 1; i < rows.size(); ++i)
+        {
+            double[] row = rows.row(i);
+            for (int j = 0; j < i; ++j)
+            {
+                distances[index++] = metric.calcDistance(row, rows.read(j));
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Compares how far a cluster's rows are from each other with how far they are from the nearest other cluster's.
+     *
+     * @param clusterDissimilarity      the average distance between the rows of the cluster
+     * @param otherClusterDissimilarity the average distance to the rows of the nearest other cluster
+     * @return the silhouette, from -1 to 1
+     */
+    static double silhouette(double clusterDissimilarity, double otherClusterDissimilarity)
+    {
+        if (Double.compare(clusterDissimilarity, otherClusterDissimilarity) == -1)
+        {
+            return 1 - (clusterDissimilarity / otherClusterDissimilarity);
+        }
+        else if (Double.compare(clusterDissimilarity, otherClusterDissimilarity) == 0)
+        {
+            return 0;
+        }
+        else
+        {
+            return (otherClusterDissimilarity / clusterDissimilarity) - 1;
+        }
+    }
+}
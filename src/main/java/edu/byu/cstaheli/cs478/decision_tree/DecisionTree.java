@@ -6,12 +6,14 @@ import edu.byu.cstaheli.cs478.decision_tree.node.Node;
 import edu.byu.cstaheli.cs478.toolkit.exception.MatrixException;
 import edu.byu.cstaheli.cs478.toolkit.learner.supervised.SupervisedLearner;
 import edu.byu.cstaheli.cs478.toolkit.strategy.LearningStrategy;
+import edu.byu.cstaheli.cs478.toolkit.utility.Histogram;
 import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import edu.byu.cstaheli.cs478.toolkit.utility.Utility;
 
 import java.io.FileWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Logger;
 
 /**
@@ -30,6 +32,7 @@ public class DecisionTree extends SupervisedLearner
         Matrix trainingLabels = strategy.getTrainingLabels();
         Matrix trainingData = strategy.getTrainingData();
         decisionTreeRoot = (FeatureNode) populateDecisionTree(trainingData);
+        decisionTreeRoot.mapColumns(Utility.identityColumns(trainingFeatures.cols()));
         if (prune)
         {
             prune(strategy);
@@ -55,62 +58,19 @@ public class DecisionTree extends SupervisedLearner
 
     protected Node getLeafNodeIfAny(Matrix matrix)
     {
-        Map<Double, Integer> outputDistribution = matrix.getColumnOccurrences(matrix.cols() - 1);
-//        LOGGER.info("Output Class Distributions:");
-//        for (Map.Entry<Double, Integer> entry : outputDistribution.entrySet())
-//        {
-//            LOGGER.info(String.format("Class: %s, Occurrences: %s", entry.getKey(), entry.getValue()));
-//        }
-        Map.Entry<Double, Integer> pureClassIfAny = getPureClassIfAny(outputDistribution);
-        if (pureClassIfAny != null)
+        Histogram outputDistribution = matrix.getColumnHistogram(matrix.cols() - 1);
+        // Only classes that occur are counted, so the class is pure if there is only one
+        if (outputDistribution.size() == 1)
         {
-            return new LeafNode(pureClassIfAny.getKey());
+            return new LeafNode(outputDistribution.keys()[0]);
         }
         else if (matrix.cols() == 2)
         {
-            return new LeafNode(getMostProbable(outputDistribution));
+            return new LeafNode(outputDistribution.mostCommon(0.0));
         }
         return null;
     }
 
-    protected Map.Entry<Double, Integer> getPureClassIfAny(Map<Double, Integer> occurrences)
-    {
-        Map.Entry<Double, Integer> pureEntry = null;
-        int numberOfZeroOccurrences = 0;
-        for (Map.Entry<Double, Integer> entry : occurrences.entrySet())
-        {
-            int occurrenceCount = entry.getValue();
-            if (occurrenceCount == 0)
-            {
-                ++numberOfZeroOccurrences;
-            }
-            else
-            {
-                pureEntry = entry;
-            }
-        }
-        if (numberOfZeroOccurrences == occurrences.size() - 1)
-        {
-            return pureEntry;
-        }
-        return null;
-    }
-
-    protected double getMostProbable(Map<Double, Integer> outputDistribution)
-    {
-        Double bestKey = 0.0;
-        int maxCount = 0;
-        for (Map.Entry<Double, Integer> entry : outputDistribution.entrySet())
-        {
-            if (entry.getValue() > maxCount)
-            {
-                maxCount = entry.getValue();
-                bestKey = entry.getKey();
-            }
-        }
-        return bestKey;
-    }
-
     protected Node getFeatureNode(Matrix matrix) throws MatrixException
     {
         int bestFeature = getBestFeature(matrix);
@@ -123,13 +83,14 @@ public class DecisionTree extends SupervisedLearner
 
     protected List<Node> getNodeChildren(Matrix matrix, int bestFeature) throws MatrixException
     {
-        Map<Double, Integer> featureDistribution = matrix.getColumnOccurrences(bestFeature);
+        double[] featureValues = matrix.getColumnHistogram(bestFeature)
+                .keys();
         List<Node> children = new ArrayList<>();
-        for (Map.Entry<Double, Integer> entry : featureDistribution.entrySet())
+        for (double featureValue : featureValues)
         {
-            Matrix filteredMatrix = matrix.getRowsWithColumnClass(bestFeature, entry.getKey());
+            Matrix filteredMatrix = matrix.getRowsWithColumnClass(bestFeature, featureValue);
             Node node = populateDecisionTree(filteredMatrix);
-            node.setPrimaryColumnValue(entry.getKey());
+            node.setPrimaryColumnValue(featureValue);
             node.setAttributeName(matrix.attrName(bestFeature));
             children.add(node);
         }
@@ -157,28 +118,53 @@ public class DecisionTree extends SupervisedLearner
     public double calculateOutputInformation(Matrix matrix)
     {
         int lastColumn = matrix.cols() - 1;
-        Map<Double, Integer> allOccurrences = matrix.getColumnOccurrences(lastColumn);
+        Histogram allOccurrences = matrix.getColumnHistogram(lastColumn);
         assert matrix.valueCount(lastColumn) > 0;
         assert matrix.valueCount(lastColumn) >= allOccurrences.size();
-        int totalOccurrences = matrix.rows();
+        return calculateInformation(allOccurrences, matrix.rows());
+    }
+
+    public double calculateFeatureInformation(Matrix matrix, int feature) throws MatrixException
+    {
+        // Counts the classes for every value of the feature in one pass, instead of filtering the matrix per value
+        int lastColumn = matrix.cols() - 1;
+        double[] featureValues = matrix.getColumnHistogram(feature)
+                .keys();
+        Histogram[] outputDistributions = new Histogram[featureValues.length];
+        int[] featureOccurrences = new int[featureValues.length];
+        for (int i = 0; i < featureValues.length; ++i)
+        {
+            outputDistributions[i] = new Histogram(matrix.valueCount(lastColumn));
+        }
+        for (int i = 0; i < matrix.rows(); ++i)
+        {
+            int index = Arrays.binarySearch(featureValues, matrix.get(i, feature));
+            if (index >= 0)
+            {
+                ++featureOccurrences[index];
+                double output = matrix.get(i, lastColumn);
+                if (output != Matrix.MISSING)
+                {
+                    outputDistributions[index].add(output);
+                }
+            }
+        }
         double information = 0;
-        for (Map.Entry<Double, Integer> entry : allOccurrences.entrySet())
+        int totalOccurrences = matrix.rows();
+        for (int i = 0; i < featureValues.length; ++i)
         {
-            int occurrences = entry.getValue();
-            information += calculateEntropy(calculateProbability(occurrences, totalOccurrences));
+            information += calculateInformation(outputDistributions[i], featureOccurrences[i]) * calculateProbability(featureOccurrences[i], totalOccurrences);
         }
         return information;
     }
 
-    public double calculateFeatureInformation(Matrix matrix, int feature) throws MatrixException
+    private double calculateInformation(Histogram outputDistribution, int totalOccurrences)
     {
-        Map<Double, Integer> columnOccurrences = matrix.getColumnOccurrences(feature);
+        double[] outputs = outputDistribution.keys();
         double information = 0;
-        int totalOccurrences = matrix.rows();
-        for (Map.Entry<Double, Integer> entry : columnOccurrences.entrySet())
+        for (double output : outputs)
         {
-            Matrix relevantMatrix = matrix.getRowsWithColumnClass(feature, entry.getKey());
-            information += calculateOutputInformation(relevantMatrix) * calculateProbability(entry.getValue(), totalOccurrences);
+            information += calculateEntropy(calculateProbability(outputDistribution.get(output), totalOccurrences));
         }
         return information;
     }
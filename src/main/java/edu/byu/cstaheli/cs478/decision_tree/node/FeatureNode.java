@@ -2,6 +2,7 @@ package edu.byu.cstaheli.cs478.decision_tree.node;
 
 import edu.byu.cstaheli.cs478.decision_tree.DecisionTree;
 import edu.byu.cstaheli.cs478.toolkit.strategy.LearningStrategy;
+import edu.byu.cstaheli.cs478.toolkit.utility.Histogram;
 import edu.byu.cstaheli.cs478.toolkit.utility.Utility;
 
 import java.util.*;
@@ -16,6 +17,8 @@ public class FeatureNode extends Node
     private List<Node> children;
     private boolean pruned;
     private double mostCommonChildOutputClass;
+    // The column being split on in the rows this node is given, which still have the columns its ancestors split on
+    private int rowColumn;
 
     public FeatureNode(int column, String splitAttributeName)
     {
@@ -23,24 +26,38 @@ public class FeatureNode extends Node
         this.splitAttributeName = splitAttributeName;
         children = new ArrayList<>();
         pruned = false;
+        rowColumn = -1;
     }
 
+    /**
+     * Returns the output class for the row. The node was trained on rows without the columns its ancestors split on,
+     * but it is given the whole row and looks up the column it splits on in it, so no rows are copied on the way down
+     * the tree. The columns have to be mapped first, with {@link #mapColumns(int[])}, so that predicting only reads the
+     * tree and any number of threads can predict at once.
+     *
+     * @param row the row, with every column it had when it reached the root of this (sub)tree
+     * @return the output class
+     * @throws IllegalStateException if the columns haven't been mapped
+     */
     @Override
     public double getOutputClass(double[] row)
     {
         if (!pruned)
         {
-            Node wantedNode = this.findChildWithPrimaryColumnValue(row[splitOn]);
-            double[] transformedRow = Utility.removeColumnFromRow(splitOn, row);
+            if (rowColumn == -1)
+            {
+                throw new IllegalStateException("The columns of the tree haven't been mapped");
+            }
+            Node wantedNode = this.findChildWithPrimaryColumnValue(row[rowColumn]);
             if (wantedNode != null)
             {
-                return wantedNode.getOutputClass(transformedRow);
+                return wantedNode.getOutputClass(row);
             }
             else
             {
                 Random random = new Random();
                 int child = random.nextInt(getNumberOfChildren());
-                return getChild(child).getOutputClass(transformedRow);
+                return getChild(child).getOutputClass(row);
             }
         }
         else
@@ -108,6 +125,24 @@ public class FeatureNode extends Node
         return splitOn;
     }
 
+    /**
+     * Works out which column of the rows given to this node each node in the subtree splits on.
+     *
+     * @param columns for each column this node was trained on, the column it is in the rows this node is given
+     */
+    public void mapColumns(int[] columns)
+    {
+        rowColumn = columns[splitOn];
+        int[] childColumns = Utility.removeColumn(splitOn, columns);
+        for (Node child : children)
+        {
+            if (child instanceof FeatureNode)
+            {
+                ((FeatureNode) child).mapColumns(childColumns);
+            }
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -148,7 +183,7 @@ public class FeatureNode extends Node
 
     public double getMostCommonChildOutputClass()
     {
-        Map<Double, Integer> map = new TreeMap<>();
+        Histogram occurrences = new Histogram();
         for (Node child : children)
         {
             double childOutputClass = -1;
@@ -160,26 +195,8 @@ public class FeatureNode extends Node
             {
                 childOutputClass = ((FeatureNode) child).getMostCommonChildOutputClass();
             }
-            Integer count = map.get(childOutputClass);
-            if (count == null)
-            {
-                map.put(childOutputClass, 1);
-            }
-            else
-            {
-                map.put(childOutputClass, count + 1);
-            }
-        }
-        int maxCount = 0;
-        double val = -1;
-        for (Map.Entry<Double, Integer> entry : map.entrySet())
-        {
-            if (entry.getValue() > maxCount)
-            {
-                maxCount = entry.getValue();
-                val = entry.getKey();
-            }
+            occurrences.add(childOutputClass);
         }
-        return val;
+        return occurrences.mostCommon(-1);
     }
 }
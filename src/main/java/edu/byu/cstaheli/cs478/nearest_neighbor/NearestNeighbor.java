@@ -6,7 +6,6 @@ import edu.byu.cstaheli.cs478.toolkit.strategy.LearningStrategy;
 import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
 
 import java.io.FileWriter;
-import java.util.Map;
 
 import static edu.byu.cstaheli.cs478.toolkit.utility.Utility.euclideanDistance;
 import static edu.byu.cstaheli.cs478.toolkit.utility.Utility.squaredDistance;
@@ -98,19 +97,20 @@ public class NearestNeighbor extends SupervisedLearner
     protected double valueDistanceMetric(int column, double firstValue, double secondValue) throws MatrixException
     {
         double valueDistanceMetric = 0;
-        Map<Double, Integer> outputOccurrences = trainingData.getColumnOccurrences(trainingData.cols() - 1);
+        double[] outputs = trainingData.getColumnHistogram(trainingData.cols() - 1)
+                .keys();
         Matrix hasFirstValue = trainingData.getRowsWithColumnClass(column, firstValue);
         //# Times attribute a had value x
         double nax = hasFirstValue.rows();
         Matrix hasSecondValue = trainingData.getRowsWithColumnClass(column, secondValue);
         //# Times attribute a had value y
         double nay = hasSecondValue.rows();
-        for (Map.Entry<Double, Integer> entry : outputOccurrences.entrySet())
+        for (double output : outputs)
         {
-            Matrix hasFirstAndOutput = hasFirstValue.getRowsWithColumnClass(hasFirstValue.cols() - 1, entry.getKey());
+            Matrix hasFirstAndOutput = hasFirstValue.getRowsWithColumnClass(hasFirstValue.cols() - 1, output);
             //# times attribute a=x and class was c
             double naxc = hasFirstAndOutput.rows();
-            Matrix hasSecondAndOutput = hasSecondValue.getRowsWithColumnClass(hasSecondValue.cols() - 1, entry.getKey());
+            Matrix hasSecondAndOutput = hasSecondValue.getRowsWithColumnClass(hasSecondValue.cols() - 1, output);
             //# times attribute a=y and class was c
             double nayc = hasSecondAndOutput.rows();
             double paxc = naxc / nax;
@@ -1,9 +1,10 @@
 package edu.byu.cstaheli.cs478.nearest_neighbor;
 
+import edu.byu.cstaheli.cs478.toolkit.utility.Histogram;
+
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.TreeMap;
 
 import static edu.byu.cstaheli.cs478.toolkit.utility.Utility.*;
 
@@ -96,48 +97,22 @@ public class Neighbors
 
     public double mostCommonOutput()
     {
-        Map<Double, Integer> occurrences = getOccurrences();
-        int maxCount = 0;
-        double val = -1;
-        for (Map.Entry<Double, Integer> entry : occurrences.entrySet())
-        {
-            if (entry.getValue() > maxCount)
-            {
-                maxCount = entry.getValue();
-                val = entry.getKey();
-            }
-        }
-        return val;
+        return getOccurrences().mostCommon(-1);
     }
 
-    private Map<Double, Integer> getOccurrences()
+    private Histogram getOccurrences()
     {
-        Map<Double, Integer> occurrences = new TreeMap<>();
+        Histogram occurrences = new Histogram();
         for (Map.Entry<double[], Double> entry : neighbors.entrySet())
         {
             double output = getOutputFromRow(entry.getKey());
-            Integer count = occurrences.get(output);
-            if (count == null)
+            if (useDistanceWeighting)
             {
-                if (useDistanceWeighting)
-                {
-                    occurrences.put(output, (int) (1 / entry.getValue()) + 1);
-                }
-                else
-                {
-                    occurrences.put(output, 1);
-                }
+                occurrences.add(output, (int) (1 / entry.getValue()) + 1);
             }
             else
             {
-                if (useDistanceWeighting)
-                {
-                    occurrences.put(output, count + (int) (1 / entry.getValue()) + 1);
-                }
-                else
-                {
-                    occurrences.put(output, count + 1);
-                }
+                occurrences.add(output);
             }
         }
         return occurrences;
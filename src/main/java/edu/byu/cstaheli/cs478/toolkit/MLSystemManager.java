@@ -6,7 +6,12 @@ package edu.byu.cstaheli.cs478.toolkit;
 
 import edu.byu.cstaheli.cs478.backpropogation.BackPropagation;
 import edu.byu.cstaheli.cs478.baseline.BaselineLearner;
+import edu.byu.cstaheli.cs478.clustering.ClusteringListener;
+import edu.byu.cstaheli.cs478.clustering.HAC;
 import edu.byu.cstaheli.cs478.clustering.KMeans;
+import edu.byu.cstaheli.cs478.clustering.KMeansSweep;
+import edu.byu.cstaheli.cs478.clustering.MiniBatchKMeans;
+import edu.byu.cstaheli.cs478.clustering.PrintingClusteringListener;
 import edu.byu.cstaheli.cs478.decision_tree.DecisionTree;
 import edu.byu.cstaheli.cs478.nearest_neighbor.NearestNeighbor;
 import edu.byu.cstaheli.cs478.perceptron.Perceptron;
@@ -18,6 +23,9 @@ import edu.byu.cstaheli.cs478.toolkit.learner.unsupervised.UnsupervisedLearner;
 import edu.byu.cstaheli.cs478.toolkit.strategy.*;
 import edu.byu.cstaheli.cs478.toolkit.utility.ArgParser;
 import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import edu.byu.cstaheli.cs478.toolkit.utility.Normalizer;
+import edu.byu.cstaheli.cs478.toolkit.utility.RowSource;
+import edu.byu.cstaheli.cs478.toolkit.utility.StorageType;
 
 import java.util.Random;
 
@@ -55,22 +63,38 @@ public class MLSystemManager
             learner = getLearner(parser, getRandom());
         }
 
+        if (parser.isStreamed())
+        {
+            streamClustering(parser);
+            return;
+        }
+
+        if (parser.isMemoryMapped() && parser.isNormalized())
+        {
+            throw new Exception("A memory-mapped data set is read-only, so it can't be normalized");
+        }
+
         // Load the ARFF file
-        Matrix arffData = new Matrix();
+        Matrix arffData = new Matrix(parser.isMemoryMapped() ? StorageType.MAPPED : StorageType.ROWS);
         if (binRealData)
         {
             arffData.doBinRealValues();
         }
-        arffData.loadArff(parser.getARFF());
+        if (parser.isParallelLoad())
+        {
+            arffData.doParallelLoad();
+        }
+        arffData.load(parser.getARFF());
+        Normalizer normalizer = null;
         if (parser.isNormalized())
         {
             System.out.println("Using normalized data\n");
-            arffData.normalize();
+            normalizer = arffData.normalize();
         }
 
         printStats(parser, arffData);
 
-        learnerData = new LearnerData(getRandom(), parser, arffData);
+        learnerData = new LearnerData(getRandom(), parser, arffData, normalizer);
         if (learner instanceof SupervisedLearner)
         {
             switch (parser.getEvaluation())
@@ -118,9 +142,26 @@ public class MLSystemManager
             case "knn":
                 return new NearestNeighbor();
             case "kmeans":
-                return new KMeans(Integer.parseInt(parser.getEvalParameter()), rand);
-//            case "hac":
-//                return new HAC();
+                if (parser.getEvalParameter()
+                        .contains("-"))
+                {
+                    String[] range = parser.getEvalParameter()
+                            .split("-");
+                    KMeansSweep sweep = new KMeansSweep(Integer.parseInt(range[0]), Integer.parseInt(range[1]), rand);
+                    sweep.setOptions(parser.getLearnerOptions());
+                    return sweep;
+                }
+                KMeans kMeans = new KMeans(Integer.parseInt(parser.getEvalParameter()), rand);
+                kMeans.setOptions(parser.getLearnerOptions());
+                return kMeans;
+            case "minibatchkmeans":
+                MiniBatchKMeans miniBatchKMeans = new MiniBatchKMeans(Integer.parseInt(parser.getEvalParameter()), rand);
+                miniBatchKMeans.setOptions(parser.getLearnerOptions());
+                return miniBatchKMeans;
+            case "hac":
+                HAC hac = new HAC(Integer.parseInt(parser.getEvalParameter()));
+                hac.setOptions(parser.getLearnerOptions());
+                return hac;
             default:
                 throw new Exception("Unrecognized model: " + model);
         }
@@ -132,10 +173,43 @@ public class MLSystemManager
         {
             learner.setIsVerbose(true);
         }
+        addClusteringListener(learner);
         Matrix data = learnerData.getArffData();
         learner.cluster(data);
     }
 
+    /**
+     * Clusters the data set by reading it from disk in blocks, without loading it all first.
+     */
+    private void streamClustering(ArgParser parser) throws Exception
+    {
+        if (!(learner instanceof UnsupervisedLearner) || !parser.getEvaluation()
+                .equals("cluster"))
+        {
+            throw new Exception("Only clustering can stream the data set");
+        }
+        if (parser.isNormalized())
+        {
+            throw new Exception("A streamed data set can't be normalized");
+        }
+        UnsupervisedLearner unsupervisedLearner = (UnsupervisedLearner) learner;
+        unsupervisedLearner.setIsVerbose(parser.isVerbose());
+        addClusteringListener(unsupervisedLearner);
+        unsupervisedLearner.cluster(RowSource.open(parser.getARFF()));
+    }
+
+    private void addClusteringListener(UnsupervisedLearner learner)
+    {
+        if (learner instanceof KMeans && ((KMeans) learner).getListener() == ClusteringListener.NONE)
+        {
+            ((KMeans) learner).setListener(new PrintingClusteringListener(System.out, learner.isVerbose()));
+        }
+        if (learner instanceof MiniBatchKMeans && ((MiniBatchKMeans) learner).getListener() == ClusteringListener.NONE)
+        {
+            ((MiniBatchKMeans) learner).setListener(new PrintingClusteringListener(System.out, learner.isVerbose()));
+        }
+    }
+
     private void calcTraining(SupervisedLearner learner) throws Exception
     {
         System.out.println("Calculating accuracy on training set...");
@@ -2,6 +2,7 @@ package edu.byu.cstaheli.cs478.toolkit.learner;
 
 import edu.byu.cstaheli.cs478.toolkit.utility.ArgParser;
 import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import edu.byu.cstaheli.cs478.toolkit.utility.Normalizer;
 
 import java.util.Random;
 
@@ -13,12 +14,19 @@ public class LearnerData
     private final Random rand;
     private final ArgParser parser;
     private final Matrix arffData;
+    private final Normalizer normalizer;
 
     public LearnerData(Random rand, ArgParser parser, Matrix arffData)
+    {
+        this(rand, parser, arffData, null);
+    }
+
+    public LearnerData(Random rand, ArgParser parser, Matrix arffData, Normalizer normalizer)
     {
         this.rand = rand;
         this.parser = parser;
         this.arffData = arffData;
+        this.normalizer = normalizer;
     }
 
     public Random getRandom()
@@ -50,4 +58,14 @@ public class LearnerData
     {
         return parser.isNormalized();
     }
+
+    /**
+     * Returns the normalizer that was fitted to the arff data.
+     *
+     * @return the normalizer, or null if the data isn't normalized
+     */
+    public Normalizer getNormalizer()
+    {
+        return normalizer;
+    }
 }
@@ -2,6 +2,9 @@ package edu.byu.cstaheli.cs478.toolkit.learner.unsupervised;
 
 import edu.byu.cstaheli.cs478.toolkit.learner.Learner;
 import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import edu.byu.cstaheli.cs478.toolkit.utility.RowSource;
+
+import java.io.IOException;
 
 /**
  * Created by cstaheli on 3/28/2017.
@@ -17,6 +20,23 @@ public abstract class UnsupervisedLearner extends Learner
 
     public abstract void cluster(Matrix dataset);
 
+    /**
+     * Clusters rows that are read in blocks. Unless a learner can work a block at a time, the rows are all loaded onto
+     * the heap first.
+     *
+     * @param source the rows to cluster
+     * @throws IOException if the rows can't be read
+     */
+    public void cluster(RowSource source) throws IOException
+    {
+        cluster(source.load());
+    }
+
+    public boolean isVerbose()
+    {
+        return isVerbose;
+    }
+
     public void setIsVerbose(boolean verbose)
     {
         isVerbose = verbose;
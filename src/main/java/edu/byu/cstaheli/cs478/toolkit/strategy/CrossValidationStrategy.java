@@ -38,7 +38,7 @@ public class CrossValidationStrategy extends LearningStrategy
     {
         if (isUsingValidationSet())
         {
-            return new Matrix(trainingData, 0, 0, getTrainingSetSize() - 1, trainingData.cols());
+            return trainingData.view(0, 0, getTrainingSetSize() - 1, trainingData.cols());
         }
         else
         {
@@ -49,7 +49,7 @@ public class CrossValidationStrategy extends LearningStrategy
     @Override
     public Matrix getTestingData()
     {
-        return new Matrix(getArffData(), begin, 0, end - begin, getArffData().cols());
+        return getArffData().view(begin, 0, end - begin, getArffData().cols());
     }
 
     @Override
@@ -57,7 +57,7 @@ public class CrossValidationStrategy extends LearningStrategy
     {
         if (isUsingValidationSet())
         {
-            return new Matrix(trainingData, getTrainingSetSize(), 0, getValidationSetSize() - 1, trainingData.cols());
+            return trainingData.view(getTrainingSetSize(), 0, getValidationSetSize() - 1, trainingData.cols());
         }
         else
         {
@@ -68,14 +68,6 @@ public class CrossValidationStrategy extends LearningStrategy
     @Override
     protected int getTrainSize()
     {
-        try
-        {
-            return getInitialTrainingData().rows();
-        }
-        catch (MatrixException e)
-        {
-            e.printStackTrace();
-        }
-        return 0;
+        return getArffData().rows() - (end - begin);
     }
 }
@@ -27,7 +27,7 @@ public abstract class LearningStrategy
 
     private Matrix getFeaturesFromMatrix(Matrix data)
     {
-        return new Matrix(data, 0, 0, data.rows(), data.cols() - 1);
+        return data.view(0, 0, data.rows(), data.cols() - 1);
     }
 
     public Matrix getTrainingLabels()
@@ -37,7 +37,7 @@ public abstract class LearningStrategy
 
     private Matrix getLabelsFromMatrix(Matrix data)
     {
-        return new Matrix(data, 0, data.cols() - 1, data.rows(), 1);
+        return data.view(0, data.cols() - 1, data.rows(), 1);
     }
 
     public Matrix getTestingFeatures()
@@ -65,7 +65,7 @@ public class RandomStrategy extends LearningStrategy
     @Override
     public Matrix getTestingData()
     {
-        return new Matrix(getArffData(), getTrainSize(), 0, getArffData().rows() - getTrainSize(), getArffData().cols());
+        return getArffData().view(getTrainSize(), 0, getArffData().rows() - getTrainSize(), getArffData().cols());
     }
 
     @Override
@@ -73,7 +73,7 @@ public class RandomStrategy extends LearningStrategy
     {
         if (isUsingValidationSet())
         {
-            return new Matrix(getArffData(), getTrainingSetSize(), 0, getValidationSetSize(), getArffData().cols());
+            return getArffData().view(getTrainingSetSize(), 0, getValidationSetSize(), getArffData().cols());
         }
         else
         {
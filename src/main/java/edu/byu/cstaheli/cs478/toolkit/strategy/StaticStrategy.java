@@ -16,10 +16,12 @@ public class StaticStrategy extends LearningStrategy
     {
         super(learnerData);
         testData = new Matrix();
-        testData.loadArff(learnerData.getEvalParameter());
+        testData.load(learnerData.getEvalParameter());
         if (learnerData.isNormalized())
         {
-            testData.normalize(); // BUG! This may normalize differently from the training data. It should use the same ranges for normalization!
+            // Use the same ranges as the training data
+            learnerData.getNormalizer()
+                    .apply(testData);
         }
         System.out.println("Calculating accuracy on separate test set...");
         System.out.println("Test set name: " + learnerData.getEvalParameter());
@@ -31,11 +33,11 @@ public class StaticStrategy extends LearningStrategy
     {
         if (isUsingValidationSet())
         {
-            return new Matrix(getArffData(), 0, 0, getTrainingSetSize(), getArffData().cols());
+            return getArffData().view(0, 0, getTrainingSetSize(), getArffData().cols());
         }
         else
         {
-            return new Matrix(getArffData());
+            return getArffData().view(0, 0, getArffData().rows(), getArffData().cols());
         }
     }
 
@@ -44,7 +46,7 @@ public class StaticStrategy extends LearningStrategy
     {
 //        return testData;
         testData.shuffle(new Random());
-        return new Matrix(testData, 0, 0, 2000, testData.cols());
+        return testData.view(0, 0, 2000, testData.cols());
     }
 
     @Override
@@ -52,7 +54,7 @@ public class StaticStrategy extends LearningStrategy
     {
         if (isUsingValidationSet())
         {
-            return new Matrix(getArffData(), getTrainingSetSize(), 0, getValidationSetSize(), getArffData().cols());
+            return getArffData().view(getTrainingSetSize(), 0, getValidationSetSize(), getArffData().cols());
         }
         else
         {
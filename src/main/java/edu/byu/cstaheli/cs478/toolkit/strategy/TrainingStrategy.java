@@ -18,18 +18,18 @@ public class TrainingStrategy extends LearningStrategy
     {
         if (isUsingValidationSet())
         {
-            return new Matrix(getArffData(), 0, 0, getTrainingSetSize(), getArffData().cols());
+            return getArffData().view(0, 0, getTrainingSetSize(), getArffData().cols());
         }
         else
         {
-            return new Matrix(getArffData());
+            return getArffData().view(0, 0, getArffData().rows(), getArffData().cols());
         }
     }
 
     @Override
     public Matrix getTestingData()
     {
-        return new Matrix(getArffData(), 0, 0, getTrainSize(), getArffData().cols());
+        return getArffData().view(0, 0, getTrainSize(), getArffData().cols());
     }
 
     @Override
@@ -37,7 +37,7 @@ public class TrainingStrategy extends LearningStrategy
     {
         if (isUsingValidationSet())
         {
-            return new Matrix(getArffData(), getTrainingSetSize(), 0, getValidationSetSize(), getArffData().cols());
+            return getArffData().view(getTrainingSetSize(), 0, getValidationSetSize(), getArffData().cols());
         }
         else
         {
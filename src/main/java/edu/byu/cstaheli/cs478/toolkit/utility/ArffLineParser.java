@@ -0,0 +1,302 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import edu.byu.cstaheli.cs478.toolkit.exception.ARFFParseException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Turns the raw bytes of an arff data line into a row of doubles. Values are comma separated and trimmed, empty values
+ * are skipped, "?" is {@link Matrix#MISSING}, continuous values are parsed as doubles and nominal values are looked up
+ * in the attribute's list of values. Nothing is allocated per value, only the row itself.
+ */
+class ArffLineParser
+{
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_FAST_DIGITS = 18;
+
+    private final int cols;
+    private final NominalIndex[] nominalIndices;
+
+    /**
+     * Creates a parser for the attributes that have been added to the matrix so far.
+     *
+     * @param matrix the matrix the rows are for
+     */
+    ArffLineParser(Matrix matrix)
+    {
+        cols = matrix.cols();
+        nominalIndices = new NominalIndex[cols];
+        for (int i = 0; i < cols; ++i)
+        {
+            if (matrix.valueCount(i) != 0)
+            {
+                nominalIndices[i] = new NominalIndex(matrix.getNominalValues(i));
+            }
+        }
+    }
+
+    /**
+     * Parses a data line.
+     *
+     * @param bytes the bytes holding the line
+     * @param start the index of the first byte of the line
+     * @param end   the index after the last byte of the line
+     * @return the values on the line
+     * @throws ARFFParseException if a value can't be parsed or there are too many values
+     */
+    double[] parse(byte[] bytes, int start, int end) throws ARFFParseException
+    {
+        double[] row = new double[cols];
+        int column = 0;
+        int valueStart = start;
+        while (valueStart <= end)
+        {
+            int valueEnd = valueStart;
+            while (valueEnd < end && bytes[valueEnd] != ',')
+            {
+                ++valueEnd;
+            }
+            int first = valueStart;
+            int last = valueEnd;
+            while (first < last && isWhitespace(bytes[first]))
+            {
+                ++first;
+            }
+            while (last > first && isWhitespace(bytes[last - 1]))
+            {
+                --last;
+            }
+            if (first < last)
+            {
+                if (column >= cols)
+                {
+                    throw new ARFFParseException("Error parsing line: " + toString(bytes, start, end) + "\nExpected " + cols + " values");
+                }
+                row[column] = parseValue(column, bytes, first, last, start, end);
+                ++column;
+            }
+            valueStart = valueEnd + 1;
+        }
+        return row;
+    }
+
+    private double parseValue(int column, byte[] bytes, int first, int last, int lineStart, int lineEnd) throws ARFFParseException
+    {
+        //Missing instances appear in the dataset as a double defined as MISSING
+        if (last - first == 1 && bytes[first] == '?')
+        {
+            return Matrix.MISSING;
+        }
+        NominalIndex nominalIndex = nominalIndices[column];
+        // Continuous values appear in the instance vector as they are
+        if (nominalIndex == null)
+        {
+            try
+            {
+                return parseDouble(bytes, first, last);
+            }
+            catch (NumberFormatException e)
+            {
+                throw new ARFFParseException("Error parsing line: " + toString(bytes, lineStart, lineEnd) + "\n" + e.toString());
+            }
+        }
+        // Discrete values appear as an index to the "name"
+        // of that value in the "attributeValue" structure
+        int value = nominalIndex.get(bytes, first, last);
+        if (value == -1)
+        {
+            throw new ARFFParseException("Error parsing the value '" + toString(bytes, first, last) + "' on line: " + toString(bytes, lineStart, lineEnd));
+        }
+        return value;
+    }
+
+    /**
+     * Parses a double, giving exactly the same result as {@link Double#parseDouble(String)}. Plain decimal numbers with
+     * up to 18 significant digits and small exponents are handled without allocating; anything else falls back to
+     * {@link Double#parseDouble(String)}.
+     *
+     * @param bytes the bytes holding the number
+     * @param start the index of the first byte of the number
+     * @param end   the index after the last byte of the number
+     * @return the number
+     * @throws NumberFormatException if it isn't a number
+     */
+    static double parseDouble(byte[] bytes, int start, int end)
+    {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+'))
+        {
+            negative = bytes[i] == '-';
+            ++i;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean sawDigit = false;
+        while (i < end && isDigit(bytes[i]))
+        {
+            if (significantDigits == MAX_FAST_DIGITS)
+            {
+                return slowParseDouble(bytes, start, end);
+            }
+            mantissa = mantissa * 10 + (bytes[i] - '0');
+            if (mantissa != 0)
+            {
+                ++significantDigits;
+            }
+            sawDigit = true;
+            ++i;
+        }
+        if (i < end && bytes[i] == '.')
+        {
+            ++i;
+            while (i < end && isDigit(bytes[i]))
+            {
+                if (significantDigits == MAX_FAST_DIGITS)
+                {
+                    return slowParseDouble(bytes, start, end);
+                }
+                mantissa = mantissa * 10 + (bytes[i] - '0');
+                if (mantissa != 0)
+                {
+                    ++significantDigits;
+                }
+                --exponent;
+                sawDigit = true;
+                ++i;
+            }
+        }
+        if (sawDigit && i < end && (bytes[i] == 'e' || bytes[i] == 'E'))
+        {
+            ++i;
+            boolean negativeExponent = false;
+            if (i < end && (bytes[i] == '-' || bytes[i] == '+'))
+            {
+                negativeExponent = bytes[i] == '-';
+                ++i;
+            }
+            int explicitExponent = 0;
+            int exponentDigits = 0;
+            while (i < end && isDigit(bytes[i]) && exponentDigits < 4)
+            {
+                explicitExponent = explicitExponent * 10 + (bytes[i] - '0');
+                ++exponentDigits;
+                ++i;
+            }
+            if (exponentDigits == 0)
+            {
+                return slowParseDouble(bytes, start, end);
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (!sawDigit || i != end || mantissa > MAX_EXACT_MANTISSA
+                || exponent < -(POWERS_OF_TEN.length - 1) || exponent > POWERS_OF_TEN.length - 1)
+        {
+            return slowParseDouble(bytes, start, end);
+        }
+        // Both the mantissa and the power of ten are exact doubles, so one correctly rounded operation gives the same
+        // answer as Double.parseDouble
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    private static double slowParseDouble(byte[] bytes, int start, int end)
+    {
+        return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+    }
+
+    private static boolean isDigit(byte b)
+    {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * Matches {@link String#trim()}, which treats everything up to and including a space as whitespace.
+     */
+    static boolean isWhitespace(byte b)
+    {
+        return (b & 0xFF) <= ' ';
+    }
+
+    static String toString(byte[] bytes, int start, int end)
+    {
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An open addressing hash table from the UTF-8 bytes of a nominal value to its index, so values can be looked up
+     * straight out of the read buffer.
+     */
+    private static class NominalIndex
+    {
+        private final byte[][] keys;
+        private final int[] values;
+        private final int mask;
+
+        NominalIndex(Map<String, Integer> nominalValues)
+        {
+            int capacity = Integer.highestOneBit(Math.max(2, nominalValues.size()) * 2) << 1;
+            keys = new byte[capacity][];
+            values = new int[capacity];
+            mask = capacity - 1;
+            for (Map.Entry<String, Integer> entry : nominalValues.entrySet())
+            {
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                int slot = hash(key, 0, key.length) & mask;
+                while (keys[slot] != null)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = entry.getValue();
+            }
+        }
+
+        private static int hash(byte[] bytes, int start, int end)
+        {
+            int hash = 0x811C9DC5;
+            for (int i = start; i < end; ++i)
+            {
+                hash = (hash ^ bytes[i]) * 0x01000193;
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        int get(byte[] bytes, int start, int end)
+        {
+            int slot = hash(bytes, start, end) & mask;
+            byte[] key;
+            while ((key = keys[slot]) != null)
+            {
+                if (matches(key, bytes, start, end))
+                {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private static boolean matches(byte[] key, byte[] bytes, int start, int end)
+        {
+            if (key.length != end - start)
+            {
+                return false;
+            }
+            for (int i = 0; i < key.length; ++i)
+            {
+                if (key[i] != bytes[start + i])
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
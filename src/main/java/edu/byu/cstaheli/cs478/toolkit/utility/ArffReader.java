@@ -0,0 +1,243 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import edu.byu.cstaheli.cs478.toolkit.exception.ARFFParseException;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads an arff file into a {@link Matrix}. Lines are found directly in a large byte buffer, the header lines are
+ * handed to the Matrix as Strings, and the data lines are parsed in place by an {@link ArffLineParser}.
+ */
+class ArffReader implements Closeable
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream input;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    private int lineStart;
+    private int lineEnd;
+    private long bufferOffset;
+
+    ArffReader(String fileName) throws FileNotFoundException
+    {
+        this(new FileInputStream(fileName));
+    }
+
+    ArffReader(InputStream input)
+    {
+        this.input = input;
+        buffer = new byte[BUFFER_SIZE];
+        position = 0;
+        limit = 0;
+        endOfInput = false;
+        bufferOffset = 0;
+    }
+
+    /**
+     * Reads the whole file into the matrix, which should be empty.
+     *
+     * @param matrix the matrix to read into
+     * @throws IOException        if the file can't be read
+     * @throws ARFFParseException if there is something wrong with the setup of the arff file.
+     */
+    void read(Matrix matrix) throws IOException, ARFFParseException
+    {
+        if (!readHeader(matrix))
+        {
+            return;
+        }
+        matrix.startData();
+        ArffLineParser parser = new ArffLineParser(matrix);
+        double[] row;
+        while ((row = readRow(parser)) != null)
+        {
+            matrix.addRow(row);
+        }
+    }
+
+    /**
+     * Reads the next data line, skipping blank lines and comments. The header must have been read already.
+     *
+     * @param parser the parser for the columns of the file
+     * @return the row, or null at the end of the file
+     * @throws IOException        if the file can't be read
+     * @throws ARFFParseException if the line can't be parsed
+     */
+    double[] readRow(ArffLineParser parser) throws IOException, ARFFParseException
+    {
+        while (nextLine())
+        {
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && ArffLineParser.isWhitespace(buffer[start]))
+            {
+                ++start;
+            }
+            while (end > start && ArffLineParser.isWhitespace(buffer[end - 1]))
+            {
+                --end;
+            }
+            if (start < end && buffer[start] != '%')
+            {
+                return parser.parse(buffer, start, end);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the header of the file into the matrix, stopping right after the line that starts the data section.
+     *
+     * @param matrix the matrix to read into
+     * @return false if the file has no data section
+     * @throws IOException        if the file can't be read
+     * @throws ARFFParseException if there is something wrong with the setup of the arff file.
+     */
+    boolean readHeader(Matrix matrix) throws IOException, ARFFParseException
+    {
+        while (nextLine())
+        {
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && ArffLineParser.isWhitespace(buffer[start]))
+            {
+                ++start;
+            }
+            while (end > start && ArffLineParser.isWhitespace(buffer[end - 1]))
+            {
+                --end;
+            }
+            if (start < end && buffer[start] != '%'
+                    && readHeaderLine(matrix, new String(buffer, start, end - start, StandardCharsets.UTF_8)))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns how far into the file the reader has read, which right after {@link #readHeader(Matrix)} is where the
+     * data section starts.
+     *
+     * @return the offset in bytes of the next unread line
+     */
+    long getPosition()
+    {
+        return bufferOffset + position;
+    }
+
+    /**
+     * Handles a line from the header of the file.
+     *
+     * @param matrix the matrix being read into
+     * @param line   the trimmed line
+     * @return true if this is the line that starts the data section
+     * @throws ARFFParseException if an attribute can't be parsed
+     */
+    static boolean readHeaderLine(Matrix matrix, String line) throws ARFFParseException
+    {
+        int tokenEnd = 0;
+        while (tokenEnd < line.length() && !Character.isWhitespace(line.charAt(tokenEnd)))
+        {
+            ++tokenEnd;
+        }
+        String firstToken = line.substring(0, tokenEnd)
+                .toUpperCase();
+        switch (firstToken)
+        {
+            case "@RELATION":
+                matrix.setDatasetName(line.substring(tokenEnd));
+                return false;
+            case "@ATTRIBUTE":
+                matrix.addAttribute(line);
+                return false;
+            case "@DATA":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Finds the next line in the buffer, reading more of the file if needed.
+     *
+     * @return false if there are no more lines
+     * @throws IOException if the file can't be read
+     */
+    private boolean nextLine() throws IOException
+    {
+        int searchFrom = position;
+        while (true)
+        {
+            for (int i = searchFrom; i < limit; ++i)
+            {
+                // A \r\n pair shows up as an extra blank line, and blank lines are skipped anyway
+                if (buffer[i] == '\n' || buffer[i] == '\r')
+                {
+                    lineStart = position;
+                    lineEnd = i;
+                    position = i + 1;
+                    return true;
+                }
+            }
+            if (endOfInput)
+            {
+                if (position < limit)
+                {
+                    lineStart = position;
+                    lineEnd = limit;
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+            searchFrom = limit - position;
+            fill();
+        }
+    }
+
+    /**
+     * Moves the unread bytes to the front of the buffer and reads as much as fits after them, growing the buffer if a
+     * single line doesn't fit.
+     */
+    private void fill() throws IOException
+    {
+        int remaining = limit - position;
+        bufferOffset += position;
+        if (remaining == buffer.length)
+        {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        else
+        {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+        position = 0;
+        limit = remaining;
+        int read = input.read(buffer, limit, buffer.length - limit);
+        if (read == -1)
+        {
+            endOfInput = true;
+        }
+        else
+        {
+            limit += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        input.close();
+    }
+}
@@ -0,0 +1,105 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import edu.byu.cstaheli.cs478.toolkit.exception.ARFFParseException;
+
+import java.io.IOException;
+
+/**
+ * Streams the rows of an arff file, parsing it again on every pass. Only the header is kept in memory.
+ */
+public class ArffRowSource implements RowSource
+{
+    private final String fileName;
+    private final Matrix header;
+
+    /**
+     * Reads the header of the file.
+     *
+     * @param fileName the path to the arff file
+     * @throws IOException        if the file can't be read
+     * @throws ARFFParseException if there is something wrong with the setup of the arff file
+     */
+    public ArffRowSource(String fileName) throws IOException, ARFFParseException
+    {
+        this.fileName = fileName;
+        header = emptyHeader();
+        try (ArffReader reader = new ArffReader(fileName))
+        {
+            reader.readHeader(header);
+        }
+        header.startData(0);
+    }
+
+    private static Matrix emptyHeader()
+    {
+        Matrix header = new Matrix();
+        header.startHeader();
+        return header;
+    }
+
+    @Override
+    public Matrix getHeader()
+    {
+        return header;
+    }
+
+    @Override
+    public Pass open() throws IOException
+    {
+        ArffReader reader = new ArffReader(fileName);
+        try
+        {
+            // The header was read when the source was created, so this one is only skipped over
+            if (!reader.readHeader(emptyHeader()))
+            {
+                throw new ARFFParseException("No data section in " + fileName);
+            }
+        }
+        catch (ARFFParseException e)
+        {
+            reader.close();
+            throw new IOException(e);
+        }
+        ArffLineParser parser = new ArffLineParser(header);
+        return new Pass()
+        {
+            @Override
+            public int read(double[][] block) throws IOException
+            {
+                int count = 0;
+                try
+                {
+                    double[] row;
+                    while (count < block.length && (row = reader.readRow(parser)) != null)
+                    {
+                        block[count++] = row;
+                    }
+                }
+                catch (ARFFParseException e)
+                {
+                    throw new IOException(e);
+                }
+                return count;
+            }
+
+            @Override
+            public void close() throws IOException
+            {
+                reader.close();
+            }
+        };
+    }
+
+    @Override
+    public Matrix load() throws IOException
+    {
+        try
+        {
+            return new Matrix(fileName);
+        }
+        catch (ARFFParseException e)
+        {
+            throw new IOException(e);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package edu.byu.cstaheli.cs478.toolkit.utility;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Class for parsing out the command line arguments
  */
@@ -12,7 +15,11 @@ public class ArgParser
     private String evalExtra;
     private boolean verbose;
     private boolean normalize;
+    private boolean memoryMap;
+    private boolean parallelLoad;
+    private boolean stream;
     private String wantedIndex;
+    private Map<String, String> learnerOptions = new LinkedHashMap<>();
 
     //You can add more options for specific learning models if you wish
     public ArgParser(String[] argv)
@@ -29,6 +36,15 @@ public class ArgParser
                     case "-N":
                         normalize = true;
                         break;
+                    case "-M":
+                        memoryMap = true;
+                        break;
+                    case "-P":
+                        parallelLoad = true;
+                        break;
+                    case "-S":
+                        stream = true;
+                        break;
                     case "-A":
                         arff = argv[++i];
                         break;
@@ -38,6 +54,18 @@ public class ArgParser
                     case "-W":
                         wantedIndex = argv[++i];
                         break;
+                    case "-O":
+                        String option = argv[++i];
+                        int equals = option.indexOf('=');
+                        if (equals == -1)
+                        {
+                            learnerOptions.put(option, "true");
+                        }
+                        else
+                        {
+                            learnerOptions.put(option.substring(0, equals), option.substring(equals + 1));
+                        }
+                        break;
                     case "-E":
                         evaluation = argv[++i];
                         switch (argv[i])
@@ -93,12 +121,23 @@ public class ArgParser
         {
             System.out.println("-N Use normalized data");
         }
+        System.out.println("-M Memory-map the ARFF file instead of loading it onto the heap (the data is read-only)");
+        System.out.println("-P Parse the ARFF file on all cores");
+        System.out.println("-S Stream the ARFF file from disk in blocks on every pass instead of loading it (clustering only, kmeans works a block at a time)");
+        System.out.println("-O [name=value] Set an option of the learning algorithm. Can be given more than once. A name on its own means name=true");
+        System.out.println("   kmeans: parallel, accelerate, metric=manhattan|squared|heom, init=random|kmeans++|kmeans||, convergence=silhouette|sse, tolerance, silhouetteSample, cacheDistances, restarts, select=sse|silhouette, block");
+        System.out.println("   minibatchkmeans: batch, iterations, tolerance");
+        System.out.println("   hac: linkage=single|complete|average, metric=manhattan|squared|heom");
+        System.out.println();
+        System.out.println("Any ARFF_File can also be a binary file written by BinaryMatrix [input.arff] [output.bin], which loads much faster.");
         System.out.println();
         System.out.println("Possible evaluation methods are:");
         System.out.println("MLSystemManager -L [learningAlgorithm] -A [ARFF_File] -E training");
         System.out.println("MLSystemManager -L [learningAlgorithm] -A [ARFF_File] -E static [testARFF_File]");
         System.out.println("MLSystemManager -L [learningAlgorithm] -A [ARFF_File] -E random [%_ForTraining]");
-        System.out.println("MLSystemManager -L [learningAlgorithm] -A [ARFF_File] -E cross [numOfFolds]\n");
+        System.out.println("MLSystemManager -L [learningAlgorithm] -A [ARFF_File] -E cross [numOfFolds]");
+        System.out.println("MLSystemManager -L [learningAlgorithm] -A [ARFF_File] -E cluster [k]");
+        System.out.println("MLSystemManager -L kmeans -A [ARFF_File] -E cluster [minK]-[maxK]   (runs every k at once and prints the SSE and silhouette of each)\n");
         System.exit(0);
     }
 
@@ -133,8 +172,33 @@ public class ArgParser
         return normalize;
     }
 
+    public boolean isMemoryMapped()
+    {
+        return memoryMap;
+    }
+
+    public boolean isParallelLoad()
+    {
+        return parallelLoad;
+    }
+
+    public boolean isStreamed()
+    {
+        return stream;
+    }
+
     public String getWantedIndex()
     {
         return wantedIndex;
     }
+
+    /**
+     * Returns the options given for the learning algorithm with -O, in the order they were given.
+     *
+     * @return the options, by name
+     */
+    public Map<String, String> getLearnerOptions()
+    {
+        return learnerOptions;
+    }
 }
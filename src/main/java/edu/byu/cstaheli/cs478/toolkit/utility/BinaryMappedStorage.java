@@ -0,0 +1,119 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import java.nio.MappedByteBuffer;
+
+/**
+ * Reads the rows of a memory-mapped {@link BinaryMatrix} file in place. Every row takes the same number of bytes, so
+ * a value is found with a little arithmetic instead of being parsed. Rows can be read and reordered, but not changed.
+ */
+class BinaryMappedStorage extends MatrixStorage
+{
+    private final MappedByteBuffer[] segments;
+    private final byte[] types;
+    private final int[] offsets;
+    private final int rowSize;
+    private final int rowsPerSegment;
+    private final int rows;
+    private int[] order;
+
+    BinaryMappedStorage(MappedByteBuffer[] segments, BinaryMatrix.Layout layout)
+    {
+        this.segments = segments;
+        types = layout.types;
+        offsets = layout.offsets;
+        rowSize = layout.rowSize;
+        rowsPerSegment = layout.rowsPerSegment;
+        rows = layout.rows;
+    }
+
+    @Override
+    StorageType getType()
+    {
+        return StorageType.MAPPED;
+    }
+
+    @Override
+    int rows()
+    {
+        return rows;
+    }
+
+    @Override
+    double get(int row, int column)
+    {
+        int fileRow = fileRow(row);
+        return BinaryMatrix.decode(segments[fileRow / rowsPerSegment], (fileRow % rowsPerSegment) * rowSize + offsets[column], types[column]);
+    }
+
+    @Override
+    void set(int row, int column, double value)
+    {
+        throw new UnsupportedOperationException("A memory-mapped Matrix is read-only");
+    }
+
+    @Override
+    double[] row(int row)
+    {
+        double[] values = new double[types.length];
+        copyRow(row, values);
+        return values;
+    }
+
+    @Override
+    void copyRow(int row, double[] destination)
+    {
+        int fileRow = fileRow(row);
+        MappedByteBuffer segment = segments[fileRow / rowsPerSegment];
+        int start = (fileRow % rowsPerSegment) * rowSize;
+        for (int i = 0; i < types.length; ++i)
+        {
+            destination[i] = BinaryMatrix.decode(segment, start + offsets[i], types[i]);
+        }
+    }
+
+    @Override
+    void addRow(double[] row)
+    {
+        throw new UnsupportedOperationException("Rows can't be added to a memory-mapped Matrix");
+    }
+
+    @Override
+    void swapRows(int first, int second)
+    {
+        checkRow(first);
+        checkRow(second);
+        if (order == null)
+        {
+            // Only allocated once the rows are reordered, until then row i is the i'th row in the file
+            order = new int[rows];
+            for (int i = 0; i < rows; ++i)
+            {
+                order[i] = i;
+            }
+        }
+        int temp = order[first];
+        order[first] = order[second];
+        order[second] = temp;
+        modified();
+    }
+
+    @Override
+    void removeColumn(int column)
+    {
+        throw new UnsupportedOperationException("Columns can't be removed from a memory-mapped Matrix");
+    }
+
+    private int fileRow(int row)
+    {
+        checkRow(row);
+        return order == null ? row : order[row];
+    }
+
+    private void checkRow(int row)
+    {
+        if (row < 0 || row >= rows)
+        {
+            throw new IndexOutOfBoundsException(String.format("Row: %d, Rows: %d", row, rows));
+        }
+    }
+}
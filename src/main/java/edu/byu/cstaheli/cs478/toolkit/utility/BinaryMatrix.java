@@ -0,0 +1,421 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import edu.byu.cstaheli.cs478.toolkit.exception.ARFFParseException;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads and writes matrices in a compact binary format, so a dataset only has to be parsed from arff once.
+ * <p>
+ * Everything is little-endian. The file starts with a header:
+ * <pre>
+ * "MTRX", version, relation name, rows, cols,
+ * then for each column: attribute name, value type, number of nominal values, nominal value names
+ * </pre>
+ * where numbers are 4 byte ints, the value type is one byte and strings are a length followed by that many bytes of
+ * UTF-8. The rows come next, starting on a multiple of 8 bytes, each taking the same number of bytes. Values in
+ * columns that only hold small whole numbers (most nominal columns) are stored as single bytes or shorts, with the
+ * smallest value of the type standing for {@link Matrix#MISSING}; everything else is stored as a double.
+ * <p>
+ * Because every row has the same size, a file can be memory-mapped and read in place, without any parsing.
+ * <p>
+ * To convert an arff file: {@code BinaryMatrix [input.arff] [output.bin]}
+ */
+public class BinaryMatrix
+{
+    static final byte DOUBLE = 0;
+    static final byte SHORT = 1;
+    static final byte BYTE = 2;
+
+    private static final byte[] MAGIC = {'M', 'T', 'R', 'X'};
+    private static final int VERSION = 1;
+    private static final int SEGMENT_SIZE = 1 << 30;
+
+    private BinaryMatrix()
+    {
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length != 2)
+        {
+            System.out.println("Usage:");
+            System.out.println("BinaryMatrix [input.arff] [output.bin]");
+            System.exit(0);
+        }
+        long startTime = System.currentTimeMillis();
+        Matrix matrix = new Matrix(args[0]);
+        write(matrix, args[1]);
+        System.out.printf("Wrote %d rows to %s in %s seconds\n", matrix.rows(), args[1], (System.currentTimeMillis() - startTime) / 1000.0);
+    }
+
+    /**
+     * Returns true if the file starts like a binary matrix file.
+     *
+     * @param fileName the path to the file
+     * @return true if the file is a binary matrix, false if it is anything else (such as arff)
+     * @throws IOException if the file can't be read
+     */
+    public static boolean isBinaryMatrix(String fileName) throws IOException
+    {
+        byte[] start = new byte[MAGIC.length];
+        try (InputStream input = new FileInputStream(fileName))
+        {
+            int read = 0;
+            while (read < start.length)
+            {
+                int count = input.read(start, read, start.length - read);
+                if (count == -1)
+                {
+                    return false;
+                }
+                read += count;
+            }
+        }
+        return Arrays.equals(start, MAGIC);
+    }
+
+    /**
+     * Writes the matrix to a binary file.
+     *
+     * @param matrix   the matrix to write
+     * @param fileName the path to the file. It is overwritten if it exists.
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Matrix matrix, String fileName) throws IOException
+    {
+        int cols = matrix.cols();
+        byte[] types = new byte[cols];
+        for (int i = 0; i < cols; ++i)
+        {
+            types[i] = chooseType(matrix, i);
+        }
+        Layout layout = new Layout(matrix.rows(), types);
+
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+             FileChannel channel = file.getChannel())
+        {
+            channel.truncate(0);
+            ByteBuffer header = new Growable().putBytes(MAGIC)
+                    .putInt(VERSION)
+                    .putString(matrix.getDatasetName())
+                    .putInt(matrix.rows())
+                    .putInt(cols)
+                    .putColumns(matrix, types)
+                    .padTo(8)
+                    .flip();
+            layout.dataOffset = header.remaining();
+            writeFully(channel, header);
+
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(layout.rowSize, 1 << 16))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            double[] row = new double[cols];
+            for (int i = 0; i < matrix.rows(); ++i)
+            {
+                if (buffer.remaining() < layout.rowSize)
+                {
+                    buffer.flip();
+                    writeFully(channel, buffer);
+                    buffer.clear();
+                }
+                matrix.copyRow(i, row);
+                for (int j = 0; j < cols; ++j)
+                {
+                    encode(buffer, types[j], row[j]);
+                }
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+    }
+
+    /**
+     * Loads a binary matrix file into the matrix, which will be read-only and read straight from the file if its
+     * storage type is {@link StorageType#MAPPED}.
+     *
+     * @param matrix   the matrix to load into
+     * @param fileName the path to the file
+     * @throws IOException        if the file can't be read
+     * @throws ARFFParseException if the file isn't a binary matrix
+     */
+    static void read(Matrix matrix, String fileName) throws IOException, ARFFParseException
+    {
+        Layout layout;
+        MappedByteBuffer[] segments;
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+             FileChannel channel = file.getChannel())
+        {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            layout = readHeader(matrix, header, fileName);
+            if (layout.dataOffset + (long) layout.rows * layout.rowSize > channel.size())
+            {
+                throw new ARFFParseException("Truncated binary matrix: " + fileName);
+            }
+
+            // Map whole rows at a time, so no row is split between two segments
+            int rowsPerSegment = Math.max(1, SEGMENT_SIZE / Math.max(1, layout.rowSize));
+            segments = new MappedByteBuffer[(layout.rows + rowsPerSegment - 1) / rowsPerSegment];
+            for (int i = 0; i < segments.length; ++i)
+            {
+                long start = layout.dataOffset + (long) i * rowsPerSegment * layout.rowSize;
+                int segmentRows = Math.min(rowsPerSegment, layout.rows - i * rowsPerSegment);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, (long) segmentRows * layout.rowSize);
+                segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            layout.rowsPerSegment = rowsPerSegment;
+        }
+
+        BinaryMappedStorage mapped = new BinaryMappedStorage(segments, layout);
+        if (matrix.getStorageType() == StorageType.MAPPED)
+        {
+            matrix.setStorage(mapped);
+        }
+        else
+        {
+            matrix.startData();
+            for (int i = 0; i < layout.rows; ++i)
+            {
+                matrix.addRow(mapped.row(i));
+            }
+        }
+    }
+
+    private static Layout readHeader(Matrix matrix, ByteBuffer header, String fileName) throws ARFFParseException
+    {
+        try
+        {
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC))
+            {
+                throw new ARFFParseException("Not a binary matrix: " + fileName);
+            }
+            int version = header.getInt();
+            if (version != VERSION)
+            {
+                throw new ARFFParseException("Unsupported binary matrix version " + version + ": " + fileName);
+            }
+            matrix.setDatasetName(getString(header));
+            int rows = header.getInt();
+            int cols = header.getInt();
+            byte[] types = new byte[cols];
+            for (int i = 0; i < cols; ++i)
+            {
+                String name = getString(header);
+                types[i] = header.get();
+                String[] values = new String[header.getInt()];
+                for (int j = 0; j < values.length; ++j)
+                {
+                    values[j] = getString(header);
+                }
+                matrix.addAttribute(name, values);
+            }
+            Layout layout = new Layout(rows, types);
+            layout.dataOffset = (header.position() + 7) & ~7;
+            return layout;
+        }
+        catch (RuntimeException e)
+        {
+            throw new ARFFParseException("Corrupt binary matrix: " + fileName + "\n" + e.toString());
+        }
+    }
+
+    /**
+     * Picks the narrowest type that holds every value in the column exactly.
+     */
+    private static byte chooseType(Matrix matrix, int column)
+    {
+        double min = 0;
+        double max = 0;
+        for (int i = 0; i < matrix.rows(); ++i)
+        {
+            double value = matrix.get(i, column);
+            if (value == Matrix.MISSING)
+            {
+                continue;
+            }
+            if (value != Math.rint(value) || Double.doubleToRawLongBits(value) == Double.doubleToRawLongBits(-0.0))
+            {
+                return DOUBLE;
+            }
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        if (min > Byte.MIN_VALUE && max <= Byte.MAX_VALUE)
+        {
+            return BYTE;
+        }
+        if (min > Short.MIN_VALUE && max <= Short.MAX_VALUE)
+        {
+            return SHORT;
+        }
+        return DOUBLE;
+    }
+
+    static int sizeOf(byte type)
+    {
+        switch (type)
+        {
+            case BYTE:
+                return 1;
+            case SHORT:
+                return 2;
+            default:
+                return 8;
+        }
+    }
+
+    private static void encode(ByteBuffer buffer, byte type, double value)
+    {
+        boolean missing = value == Matrix.MISSING;
+        switch (type)
+        {
+            case BYTE:
+                buffer.put(missing ? Byte.MIN_VALUE : (byte) value);
+                break;
+            case SHORT:
+                buffer.putShort(missing ? Short.MIN_VALUE : (short) value);
+                break;
+            default:
+                buffer.putDouble(value);
+        }
+    }
+
+    static double decode(ByteBuffer buffer, int index, byte type)
+    {
+        switch (type)
+        {
+            case BYTE:
+                byte byteValue = buffer.get(index);
+                return byteValue == Byte.MIN_VALUE ? Matrix.MISSING : byteValue;
+            case SHORT:
+                short shortValue = buffer.getShort(index);
+                return shortValue == Short.MIN_VALUE ? Matrix.MISSING : shortValue;
+            default:
+                return buffer.getDouble(index);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Where everything is in the data section of a file.
+     */
+    static class Layout
+    {
+        final int rows;
+        final byte[] types;
+        final int[] offsets;
+        final int rowSize;
+        int dataOffset;
+        int rowsPerSegment;
+
+        Layout(int rows, byte[] types)
+        {
+            this.rows = rows;
+            this.types = types;
+            offsets = new int[types.length];
+            int size = 0;
+            for (int i = 0; i < types.length; ++i)
+            {
+                offsets[i] = size;
+                size += sizeOf(types[i]);
+            }
+            rowSize = size;
+        }
+    }
+
+    /**
+     * A little-endian buffer for building the header, which grows as needed.
+     */
+    private static class Growable
+    {
+        private ByteBuffer buffer = ByteBuffer.allocate(1024)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        private Growable ensure(int bytes)
+        {
+            if (buffer.remaining() < bytes)
+            {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                buffer.flip();
+                bigger.put(buffer);
+                buffer = bigger;
+            }
+            return this;
+        }
+
+        Growable putBytes(byte[] bytes)
+        {
+            ensure(bytes.length).buffer.put(bytes);
+            return this;
+        }
+
+        Growable putInt(int value)
+        {
+            ensure(4).buffer.putInt(value);
+            return this;
+        }
+
+        Growable putString(String value)
+        {
+            byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+            return putInt(bytes.length).putBytes(bytes);
+        }
+
+        Growable putColumns(Matrix matrix, byte[] types)
+        {
+            for (int i = 0; i < types.length; ++i)
+            {
+                putString(matrix.attrName(i));
+                ensure(1).buffer.put(types[i]);
+                int values = matrix.valueCount(i);
+                putInt(values);
+                for (int j = 0; j < values; ++j)
+                {
+                    putString(matrix.attrValue(i, j));
+                }
+            }
+            return this;
+        }
+
+        Growable padTo(int alignment)
+        {
+            while (buffer.position() % alignment != 0)
+            {
+                ensure(1).buffer.put((byte) 0);
+            }
+            return this;
+        }
+
+        ByteBuffer flip()
+        {
+            buffer.flip();
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import java.util.Arrays;
+
+/**
+ * Summary statistics for every column of a {@link Matrix}, computed together in a single pass over the rows.
+ * Missing values are counted but otherwise ignored. Variances are accumulated with Welford's method, so they stay
+ * accurate even when the values are large compared to how much they vary.
+ */
+public class ColumnStatistics
+{
+    private final int rows;
+    private final int[] counts;
+    private final double[] sums;
+    private final double[] means;
+    private final double[] squaredDeviations;
+    private final double[] mins;
+    private final double[] maxes;
+
+    /**
+     * Computes the statistics of every column of the matrix.
+     *
+     * @param matrix the matrix to summarize
+     */
+    ColumnStatistics(Matrix matrix)
+    {
+        int cols = matrix.cols();
+        rows = matrix.rows();
+        counts = new int[cols];
+        sums = new double[cols];
+        means = new double[cols];
+        squaredDeviations = new double[cols];
+        mins = new double[cols];
+        maxes = new double[cols];
+        Arrays.fill(mins, Matrix.MISSING);
+        Arrays.fill(maxes, Matrix.MISSING);
+
+        double[] row = new double[cols];
+        for (int i = 0; i < rows; ++i)
+        {
+            matrix.copyRow(i, row);
+            for (int j = 0; j < cols; ++j)
+            {
+                double value = row[j];
+                if (value == Matrix.MISSING)
+                {
+                    continue;
+                }
+                int count = ++counts[j];
+                sums[j] += value;
+                double delta = value - means[j];
+                means[j] += delta / count;
+                squaredDeviations[j] += delta * (value - means[j]);
+                if (count == 1 || value < mins[j])
+                {
+                    mins[j] = value;
+                }
+                if (count == 1 || value > maxes[j])
+                {
+                    maxes[j] = value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of values in the specified column that aren't missing.
+     *
+     * @param col the column index
+     * @return the number of values that aren't missing
+     */
+    public int count(int col)
+    {
+        return counts[col];
+    }
+
+    /**
+     * Returns the number of missing values in the specified column.
+     *
+     * @param col the column index
+     * @return the number of missing values
+     */
+    public int missingCount(int col)
+    {
+        return rows - counts[col];
+    }
+
+    /**
+     * Returns the mean of the specified column. This is the sum of the values divided by how many there are, exactly
+     * like {@link Matrix#columnMean(int)} has always computed it.
+     *
+     * @param col the column index
+     * @return the mean of the values that aren't missing, or NaN if they are all missing
+     */
+    public double mean(int col)
+    {
+        return sums[col] / counts[col];
+    }
+
+    /**
+     * Returns the (population) variance of the specified column.
+     *
+     * @param col the column index
+     * @return the variance of the values that aren't missing, or NaN if they are all missing
+     */
+    public double variance(int col)
+    {
+        return squaredDeviations[col] / counts[col];
+    }
+
+    /**
+     * Returns the (population) standard deviation of the specified column.
+     *
+     * @param col the column index
+     * @return the standard deviation of the values that aren't missing, or NaN if they are all missing
+     */
+    public double standardDeviation(int col)
+    {
+        return Math.sqrt(variance(col));
+    }
+
+    /**
+     * Returns the min value in the specified column
+     *
+     * @param col the column index
+     * @return the min value, or {@link Matrix#MISSING} if they are all missing
+     */
+    public double min(int col)
+    {
+        return mins[col];
+    }
+
+    /**
+     * Returns the max value in the specified column
+     *
+     * @param col the column index
+     * @return the max value, or {@link Matrix#MISSING} if they are all missing
+     */
+    public double max(int col)
+    {
+        return maxes[col];
+    }
+}
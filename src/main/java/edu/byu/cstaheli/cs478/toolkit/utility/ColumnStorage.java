@@ -0,0 +1,128 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import java.util.Arrays;
+
+/**
+ * Stores every column as one contiguous array, so walking down a column touches memory linearly instead of
+ * following a pointer per row.
+ */
+class ColumnStorage extends MatrixStorage
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[][] columns;
+    private int rows;
+
+    ColumnStorage(int cols)
+    {
+        this(cols, INITIAL_CAPACITY);
+    }
+
+    ColumnStorage(int cols, int capacity)
+    {
+        columns = new double[cols][Math.max(capacity, INITIAL_CAPACITY)];
+        rows = 0;
+    }
+
+    @Override
+    StorageType getType()
+    {
+        return StorageType.COLUMNS;
+    }
+
+    @Override
+    int rows()
+    {
+        return rows;
+    }
+
+    @Override
+    double get(int row, int column)
+    {
+        checkRow(row);
+        return columns[column][row];
+    }
+
+    @Override
+    void set(int row, int column, double value)
+    {
+        checkRow(row);
+        columns[column][row] = value;
+        modified();
+    }
+
+    @Override
+    double[] row(int row)
+    {
+        double[] values = new double[columns.length];
+        copyRow(row, values);
+        return values;
+    }
+
+    @Override
+    void copyRow(int row, double[] destination)
+    {
+        checkRow(row);
+        for (int i = 0; i < columns.length; ++i)
+        {
+            destination[i] = columns[i][row];
+        }
+    }
+
+    @Override
+    void addRow(double[] row)
+    {
+        assert row.length == columns.length;
+        ensureCapacity(rows + 1);
+        for (int i = 0; i < columns.length; ++i)
+        {
+            columns[i][rows] = row[i];
+        }
+        ++rows;
+        modified();
+    }
+
+    @Override
+    void swapRows(int first, int second)
+    {
+        checkRow(first);
+        checkRow(second);
+        for (double[] column : columns)
+        {
+            double tmp = column[first];
+            column[first] = column[second];
+            column[second] = tmp;
+        }
+        modified();
+    }
+
+    @Override
+    void removeColumn(int column)
+    {
+        double[][] newColumns = new double[columns.length - 1][];
+        System.arraycopy(columns, 0, newColumns, 0, column);
+        System.arraycopy(columns, column + 1, newColumns, column, columns.length - column - 1);
+        columns = newColumns;
+        modified();
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (columns.length > 0 && columns[0].length < capacity)
+        {
+            int newCapacity = Math.max(capacity, columns[0].length + (columns[0].length >> 1));
+            for (int i = 0; i < columns.length; ++i)
+            {
+                columns[i] = Arrays.copyOf(columns[i], newCapacity);
+            }
+        }
+    }
+
+    private void checkRow(int row)
+    {
+        if (row < 0 || row >= rows)
+        {
+            throw new IndexOutOfBoundsException(String.format("Row: %d, Rows: %d", row, rows));
+        }
+    }
+}
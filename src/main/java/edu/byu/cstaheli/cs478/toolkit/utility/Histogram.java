@@ -0,0 +1,243 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import java.util.Arrays;
+
+/**
+ * Counts how many times each value occurs, without boxing. Values of a nominal column are the whole numbers from 0 to
+ * one less than the number of values, so those are counted in a plain array. Anything else (continuous values,
+ * {@link Matrix#MISSING}, binned values) goes in an open-addressing hash table keyed on the bits of the double.
+ * <p>
+ * Values are ordered and compared the same way as {@link Double#compare(double, double)}, so iterating over
+ * {@link #keys()} visits the values in the same order as a {@code TreeMap<Double, Integer>} would.
+ */
+public class Histogram
+{
+    private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int[] dense;
+    private final boolean[] denseSeen;
+    private int denseKeys;
+    private long[] overflowKeys;
+    private int[] overflowCounts;
+    private boolean[] overflowUsed;
+    private int overflowSize;
+
+    /**
+     * Creates a histogram for continuous values.
+     */
+    public Histogram()
+    {
+        this(0);
+    }
+
+    /**
+     * Creates a histogram for the values of a nominal column.
+     *
+     * @param valueCount the number of values the column has, as in {@link Matrix#valueCount(int)}
+     */
+    public Histogram(int valueCount)
+    {
+        dense = new int[valueCount];
+        denseSeen = new boolean[valueCount];
+        overflowKeys = new long[INITIAL_CAPACITY];
+        overflowCounts = new int[INITIAL_CAPACITY];
+        overflowUsed = new boolean[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Counts one occurrence of the value.
+     *
+     * @param value the value
+     */
+    public void add(double value)
+    {
+        add(value, 1);
+    }
+
+    /**
+     * Counts the given number of occurrences of the value.
+     *
+     * @param value the value
+     * @param count how many times it occurred, which can be negative to take back occurrences that were added. The
+     *              value still counts toward {@link #size()} and {@link #keys()} if its count goes back to 0.
+     */
+    public void add(double value, int count)
+    {
+        int index = denseIndex(value);
+        if (index != -1)
+        {
+            if (!denseSeen[index])
+            {
+                denseSeen[index] = true;
+                ++denseKeys;
+            }
+            dense[index] += count;
+            return;
+        }
+        if ((overflowSize + 1) * 2 > overflowKeys.length)
+        {
+            grow();
+        }
+        long key = Double.doubleToLongBits(value);
+        int slot = find(key);
+        if (!overflowUsed[slot])
+        {
+            overflowUsed[slot] = true;
+            overflowKeys[slot] = key;
+            ++overflowSize;
+        }
+        overflowCounts[slot] += count;
+    }
+
+    /**
+     * Forgets every value that has been added, keeping the memory for reuse.
+     */
+    public void clear()
+    {
+        Arrays.fill(dense, 0);
+        Arrays.fill(denseSeen, false);
+        denseKeys = 0;
+        if (overflowSize > 0)
+        {
+            Arrays.fill(overflowCounts, 0);
+            Arrays.fill(overflowUsed, false);
+            overflowSize = 0;
+        }
+    }
+
+    /**
+     * Returns how many times the value occurred.
+     *
+     * @param value the value
+     * @return the number of occurrences, which is 0 if the value was never added
+     */
+    public int get(double value)
+    {
+        int index = denseIndex(value);
+        if (index != -1)
+        {
+            return dense[index];
+        }
+        int slot = find(Double.doubleToLongBits(value));
+        return overflowUsed[slot] ? overflowCounts[slot] : 0;
+    }
+
+    /**
+     * Returns the number of different values that have been added.
+     *
+     * @return the number of different values
+     */
+    public int size()
+    {
+        return denseKeys + overflowSize;
+    }
+
+    /**
+     * Returns every value that has been added, in ascending order.
+     *
+     * @return the values
+     */
+    public double[] keys()
+    {
+        double[] keys = new double[size()];
+        int count = 0;
+        for (int i = 0; i < overflowKeys.length; ++i)
+        {
+            if (overflowUsed[i])
+            {
+                keys[count++] = Double.longBitsToDouble(overflowKeys[i]);
+            }
+        }
+        for (int i = 0; i < dense.length; ++i)
+        {
+            if (denseSeen[i])
+            {
+                keys[count++] = i;
+            }
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * Returns how many times each of the {@link #keys()} occurred.
+     *
+     * @param keys the values, as returned by {@link #keys()}
+     * @return the number of occurrences of each value
+     */
+    public int[] counts(double[] keys)
+    {
+        int[] counts = new int[keys.length];
+        for (int i = 0; i < keys.length; ++i)
+        {
+            counts[i] = get(keys[i]);
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the value that occurred the most. Ties go to the smallest value.
+     *
+     * @param defaultValue what to return if nothing occurred
+     * @return the most common value
+     */
+    public double mostCommon(double defaultValue)
+    {
+        double[] keys = keys();
+        int maxCount = 0;
+        double value = defaultValue;
+        for (double key : keys)
+        {
+            int count = get(key);
+            if (count > maxCount)
+            {
+                maxCount = count;
+                value = key;
+            }
+        }
+        return value;
+    }
+
+    private int denseIndex(double value)
+    {
+        int index = (int) value;
+        if (index == value && index >= 0 && index < dense.length && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS)
+        {
+            return index;
+        }
+        return -1;
+    }
+
+    private int find(long key)
+    {
+        int mask = overflowKeys.length - 1;
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (overflowUsed[slot] && overflowKeys[slot] != key)
+        {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow()
+    {
+        long[] oldKeys = overflowKeys;
+        int[] oldCounts = overflowCounts;
+        boolean[] oldUsed = overflowUsed;
+        overflowKeys = new long[oldKeys.length * 2];
+        overflowCounts = new int[oldKeys.length * 2];
+        overflowUsed = new boolean[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; ++i)
+        {
+            if (oldUsed[i])
+            {
+                int slot = find(oldKeys[i]);
+                overflowUsed[slot] = true;
+                overflowKeys[slot] = oldKeys[i];
+                overflowCounts[slot] = oldCounts[i];
+            }
+        }
+    }
+}
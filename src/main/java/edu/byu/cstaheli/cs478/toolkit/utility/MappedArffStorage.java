@@ -0,0 +1,285 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import edu.byu.cstaheli.cs478.toolkit.exception.ARFFParseException;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Leaves an arff file on disk and parses its rows on demand. The file is memory-mapped, and all that is kept on the
+ * heap is where each data line starts and how long it is. Rows can be read and reordered, but not changed.
+ */
+class MappedArffStorage extends MatrixStorage
+{
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final MappedByteBuffer[] segments;
+    private final ArffLineParser parser;
+    private final int cols;
+    private long[] lineStarts;
+    private int[] lineLengths;
+    private int rows;
+    private final ThreadLocal<byte[]> lineBuffer;
+    private final ThreadLocal<ParsedRow> lastRow;
+
+    private MappedArffStorage(MappedByteBuffer[] segments, Matrix matrix)
+    {
+        this.segments = segments;
+        parser = new ArffLineParser(matrix);
+        cols = matrix.cols();
+        lineStarts = new long[1024];
+        lineLengths = new int[1024];
+        rows = 0;
+        lineBuffer = ThreadLocal.withInitial(() -> new byte[256]);
+        lastRow = ThreadLocal.withInitial(ParsedRow::new);
+    }
+
+    /**
+     * Maps the arff file, hands its header to the matrix and indexes the lines in its data section.
+     *
+     * @param matrix   the (empty) matrix being loaded
+     * @param fileName the path to the arff file
+     * @return storage for the rows of the file
+     * @throws IOException        if the file can't be read
+     * @throws ARFFParseException if there is something wrong with the setup of the arff file.
+     */
+    static MappedArffStorage load(Matrix matrix, String fileName) throws IOException, ARFFParseException
+    {
+        MappedByteBuffer[] segments;
+        long size;
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+             FileChannel channel = file.getChannel())
+        {
+            // The mappings stay valid after the channel is closed
+            size = channel.size();
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)];
+            for (int i = 0; i < segments.length; ++i)
+            {
+                long start = (long) i << SEGMENT_BITS;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+        }
+
+        MappedArffStorage storage = null;
+        long lineStart = 0;
+        while (lineStart < size)
+        {
+            long lineEnd = lineStart;
+            byte b = 0;
+            while (lineEnd < size && (b = byteAt(segments, lineEnd)) != '\n' && b != '\r')
+            {
+                ++lineEnd;
+            }
+            long start = lineStart;
+            long end = lineEnd;
+            while (start < end && ArffLineParser.isWhitespace(byteAt(segments, start)))
+            {
+                ++start;
+            }
+            while (end > start && ArffLineParser.isWhitespace(byteAt(segments, end - 1)))
+            {
+                --end;
+            }
+            if (start < end && byteAt(segments, start) != '%')
+            {
+                if (storage == null)
+                {
+                    byte[] line = new byte[(int) (end - start)];
+                    copy(segments, start, line, line.length);
+                    if (ArffReader.readHeaderLine(matrix, new String(line, StandardCharsets.UTF_8)))
+                    {
+                        storage = new MappedArffStorage(segments, matrix);
+                    }
+                }
+                else
+                {
+                    storage.checkValueCount(start, end);
+                    storage.addLine(start, (int) (end - start));
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (storage == null)
+        {
+            throw new ARFFParseException("No @DATA section in " + fileName);
+        }
+        return storage;
+    }
+
+    private static byte byteAt(MappedByteBuffer[] segments, long position)
+    {
+        return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+    }
+
+    private static void copy(MappedByteBuffer[] segments, long position, byte[] destination, int length)
+    {
+        for (int i = 0; i < length; ++i)
+        {
+            destination[i] = byteAt(segments, position + i);
+        }
+    }
+
+    /**
+     * Checks that a data line doesn't have more values than there are columns, the way {@link ArffLineParser} counts
+     * them, so a line that could never be parsed is reported while loading instead of whenever it is first read.
+     *
+     * @throws ARFFParseException if there are too many values
+     */
+    private void checkValueCount(long start, long end) throws ARFFParseException
+    {
+        int values = 0;
+        boolean empty = true;
+        for (long i = start; i <= end; ++i)
+        {
+            byte b = i < end ? byteAt(segments, i) : (byte) ',';
+            if (b == ',')
+            {
+                if (!empty && ++values > cols)
+                {
+                    byte[] line = new byte[(int) (end - start)];
+                    copy(segments, start, line, line.length);
+                    throw new ARFFParseException("Error parsing line: " + new String(line, StandardCharsets.UTF_8) + "\nExpected " + cols + " values");
+                }
+                empty = true;
+            }
+            else if (!ArffLineParser.isWhitespace(b))
+            {
+                empty = false;
+            }
+        }
+    }
+
+    private void addLine(long start, int length)
+    {
+        if (rows == lineStarts.length)
+        {
+            lineStarts = Arrays.copyOf(lineStarts, rows * 2);
+            lineLengths = Arrays.copyOf(lineLengths, rows * 2);
+        }
+        lineStarts[rows] = start;
+        lineLengths[rows] = length;
+        ++rows;
+    }
+
+    @Override
+    StorageType getType()
+    {
+        return StorageType.MAPPED;
+    }
+
+    @Override
+    int rows()
+    {
+        return rows;
+    }
+
+    @Override
+    double get(int row, int column)
+    {
+        ParsedRow parsedRow = lastRow.get();
+        // Every thread has its own cache, so a swap made on another thread is only noticed through the mod count
+        if (parsedRow.values == null || parsedRow.row != row || parsedRow.modCount != getModCount())
+        {
+            parsedRow.values = parse(row);
+            parsedRow.row = row;
+            parsedRow.modCount = getModCount();
+        }
+        return parsedRow.values[column];
+    }
+
+    @Override
+    void set(int row, int column, double value)
+    {
+        throw new UnsupportedOperationException("A memory-mapped Matrix is read-only");
+    }
+
+    @Override
+    double[] row(int row)
+    {
+        return parse(row);
+    }
+
+    @Override
+    void copyRow(int row, double[] destination)
+    {
+        System.arraycopy(parse(row), 0, destination, 0, cols);
+    }
+
+    @Override
+    void addRow(double[] row)
+    {
+        throw new UnsupportedOperationException("Rows can't be added to a memory-mapped Matrix");
+    }
+
+    @Override
+    void swapRows(int first, int second)
+    {
+        checkRow(first);
+        checkRow(second);
+        long start = lineStarts[first];
+        lineStarts[first] = lineStarts[second];
+        lineStarts[second] = start;
+        int length = lineLengths[first];
+        lineLengths[first] = lineLengths[second];
+        lineLengths[second] = length;
+        modified();
+    }
+
+    @Override
+    void removeColumn(int column)
+    {
+        throw new UnsupportedOperationException("Columns can't be removed from a memory-mapped Matrix");
+    }
+
+    /**
+     * Parses the specified row out of the mapped file.
+     *
+     * @param row the row index
+     * @return a new array holding the row
+     * @throws IllegalStateException if the line in the file can't be parsed
+     */
+    private double[] parse(int row)
+    {
+        checkRow(row);
+        int length = lineLengths[row];
+        byte[] line = lineBuffer.get();
+        if (line.length < length)
+        {
+            line = new byte[Math.max(length, line.length * 2)];
+            lineBuffer.set(line);
+        }
+        copy(segments, lineStarts[row], line, length);
+        try
+        {
+            return parser.parse(line, 0, length);
+        }
+        catch (ARFFParseException e)
+        {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private void checkRow(int row)
+    {
+        if (row < 0 || row >= rows)
+        {
+            throw new IndexOutOfBoundsException(String.format("Row: %d, Rows: %d", row, rows));
+        }
+    }
+
+    /**
+     * The last row parsed on a thread, so reading a row one value at a time only parses it once.
+     */
+    private static class ParsedRow
+    {
+        private int row;
+        private int modCount;
+        private double[] values;
+    }
+}
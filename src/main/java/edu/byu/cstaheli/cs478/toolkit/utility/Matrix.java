@@ -8,13 +8,9 @@ import edu.byu.cstaheli.cs478.toolkit.exception.ARFFParseException;
 import edu.byu.cstaheli.cs478.toolkit.exception.IncompatibleMatrixException;
 import edu.byu.cstaheli.cs478.toolkit.exception.MatrixException;
 
-import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.*;
-import java.util.Map.Entry;
-
-import static edu.byu.cstaheli.cs478.toolkit.utility.Utility.removeColumnFromRow;
-import static edu.byu.cstaheli.cs478.toolkit.utility.Utility.square;
 
 /**
  * Class that represents an arff file
@@ -27,7 +23,8 @@ public class Matrix
     public static double MISSING = Double.MAX_VALUE;
 
     // Data
-    private List<double[]> m_data;
+    private MatrixStorage m_data;
+    private StorageType storageType;
 
     // Meta-data
     private List<String> m_attr_name;
@@ -35,18 +32,38 @@ public class Matrix
     private List<Map<Integer, String>> m_enum_to_str;
     private String datasetName;
     private boolean binRealValues;
+    private boolean parallelLoad;
+
+    // Cached statistics, along with the storage and modification count they were computed from
+    private ColumnStatistics statistics;
+    private MatrixStorage statisticsStorage;
+    private int statisticsModCount;
 
     /**
-     * Creates a matrix from a arff file. This is exactly the same as creating an empty matrix and then loading the file.
+     * Creates a matrix from a arff or {@link BinaryMatrix binary} file. This is exactly the same as creating an empty
+     * matrix and then loading the file.
      *
-     * @param fileName the path to the arff file.
+     * @param fileName the path to the arff or binary file.
      * @throws FileNotFoundException if the file doesn't exist
      * @throws ARFFParseException    if there is something wrong with the setup of the arff file.
      */
     public Matrix(String fileName) throws FileNotFoundException, ARFFParseException
     {
-        this();
-        loadArff(fileName);
+        this(fileName, StorageType.ROWS);
+    }
+
+    /**
+     * Creates a matrix from a arff or {@link BinaryMatrix binary} file, laying out the values in memory as specified.
+     *
+     * @param fileName    the path to the arff or binary file.
+     * @param storageType how the values should be stored.
+     * @throws FileNotFoundException if the file doesn't exist
+     * @throws ARFFParseException    if there is something wrong with the setup of the arff file.
+     */
+    public Matrix(String fileName, StorageType storageType) throws FileNotFoundException, ARFFParseException
+    {
+        this(storageType);
+        load(fileName);
     }
 
     /**
@@ -54,6 +71,17 @@ public class Matrix
      */
     public Matrix()
     {
+        this(StorageType.ROWS);
+    }
+
+    /**
+     * Creates a 0x0 matrix that will store its values as specified. You should call loadARFF or setSize next.
+     *
+     * @param storageType how the values should be stored.
+     */
+    public Matrix(StorageType storageType)
+    {
+        this.storageType = storageType;
     }
 
     /**
@@ -77,17 +105,59 @@ public class Matrix
      */
     public Matrix(Matrix that, int rowStart, int colStart, int rowCount, int colCount)
     {
-        m_data = new ArrayList<>();
+        storageType = that.storageType.forCopies();
+        m_data = MatrixStorage.create(storageType, colCount);
         for (int j = 0; j < rowCount; j++)
         {
-            double[] rowSrc = that.row(rowStart + j);
             double[] rowDest = new double[colCount];
             for (int i = 0; i < colCount; i++)
             {
-                rowDest[i] = rowSrc[colStart + i];
+                rowDest[i] = that.get(rowStart + j, colStart + i);
             }
-            m_data.add(rowDest);
+            m_data.addRow(rowDest);
+        }
+        copyMetaData(that, colStart, colCount);
+    }
+
+    /**
+     * Returns a view of the specified portion of this matrix. Unlike {@link #Matrix(Matrix, int, int, int, int)},
+     * nothing is copied, so creating a view costs the same no matter how many rows it covers. Values read from or
+     * written to the view are read from or written to this matrix, and reordering this matrix reorders the view.
+     * Views themselves can't be shuffled or have rows or columns added or removed.
+     *
+     * @param rowStart what row to start on
+     * @param colStart what column to start on
+     * @param rowCount how many rows to include
+     * @param colCount how many columns to include
+     * @return a view of the specified portion of this matrix
+     */
+    public Matrix view(int rowStart, int colStart, int rowCount, int colCount)
+    {
+        if (rowStart < 0 || rowCount < 0 || rowStart + rowCount > rows())
+        {
+            throw new IndexOutOfBoundsException(String.format("Out of Range: rows %d + %d > %d", rowStart, rowCount, rows()));
         }
+        if (colStart < 0 || colCount < 0 || colStart + colCount > cols())
+        {
+            throw new IndexOutOfBoundsException(String.format("Out of Range: cols %d + %d > %d", colStart, colCount, cols()));
+        }
+        Matrix view = new Matrix(storageType);
+        view.m_data = new ViewStorage(m_data, rowStart, colStart, rowCount, colCount, colStart == 0 && colCount == cols());
+        view.copyMetaData(this, colStart, colCount);
+        view.datasetName = datasetName;
+        view.binRealValues = binRealValues;
+        return view;
+    }
+
+    /**
+     * Shares the attribute names and nominal values of the specified columns of that matrix with this matrix.
+     *
+     * @param that     the other matrix
+     * @param colStart what column to start on
+     * @param colCount how many columns to take
+     */
+    private void copyMetaData(Matrix that, int colStart, int colCount)
+    {
         m_attr_name = new ArrayList<>();
         m_str_to_enum = new ArrayList<>();
         m_enum_to_str = new ArrayList<>();
@@ -118,6 +188,71 @@ public class Matrix
         return Collections.unmodifiableList(m_enum_to_str);
     }
 
+    /**
+     * Loads from either an ARFF file or a file written by {@link BinaryMatrix#write(Matrix, String)}, depending on
+     * what the file starts with.
+     *
+     * @param fileName the path to the arff or binary file.
+     * @throws FileNotFoundException if the file doesn't exist
+     * @throws ARFFParseException    if there is something wrong with the setup of the file.
+     */
+    public void load(String fileName) throws ARFFParseException, FileNotFoundException
+    {
+        boolean binary;
+        try
+        {
+            binary = BinaryMatrix.isBinaryMatrix(fileName);
+        }
+        catch (FileNotFoundException e)
+        {
+            throw e;
+        }
+        catch (IOException e)
+        {
+            throw new ARFFParseException("Error reading file: " + fileName + "\n" + e.toString());
+        }
+        if (binary)
+        {
+            loadBinary(fileName);
+        }
+        else
+        {
+            loadArff(fileName);
+        }
+    }
+
+    /**
+     * Loads from a file written by {@link BinaryMatrix#write(Matrix, String)}
+     *
+     * @param fileName the path to the binary file.
+     * @throws FileNotFoundException if the file doesn't exist
+     * @throws ARFFParseException    if the file isn't a valid binary matrix.
+     */
+    public void loadBinary(String fileName) throws ARFFParseException, FileNotFoundException
+    {
+        startHeader();
+        if (storageType == StorageType.MAPPED && binRealValues)
+        {
+            throw new UnsupportedOperationException("Real values can't be binned in a memory-mapped Matrix");
+        }
+        try
+        {
+            BinaryMatrix.read(this, fileName);
+        }
+        catch (FileNotFoundException e)
+        {
+            throw e;
+        }
+        catch (IOException e)
+        {
+            throw new ARFFParseException("Error reading file: " + fileName + "\n" + e.toString());
+        }
+        if (binRealValues)
+        {
+            binRealValues();
+        }
+    }
+
     /**
      * Loads from an ARFF file
      *
@@ -127,78 +262,148 @@ public class Matrix
      */
     public void loadArff(String fileName) throws ARFFParseException, FileNotFoundException
     {
-        m_data = new ArrayList<>();
-        m_attr_name = new ArrayList<>();
-        m_str_to_enum = new ArrayList<>();
-        m_enum_to_str = new ArrayList<>();
-        boolean readData = false;
-        Scanner s = new Scanner(new File(fileName));
-        while (s.hasNext())
+        startHeader();
+        if (storageType == StorageType.MAPPED && binRealValues)
+        {
+            throw new UnsupportedOperationException("Real values can't be binned in a memory-mapped Matrix");
+        }
+        try
         {
-            String line = s.nextLine()
-                    .trim();
-            if (line.length() > 0 && line.charAt(0) != '%')
+            if (storageType == StorageType.MAPPED)
             {
-                if (!readData)
+                m_data = MappedArffStorage.load(this, fileName);
+            }
+            else
+            {
+                m_data = MatrixStorage.create(storageType, 0);
+                if (parallelLoad)
                 {
-                    Scanner t = new Scanner(line);
-                    String firstToken = t.next()
-                            .toUpperCase();
-
-                    if (firstToken.equals("@RELATION"))
-                    {
-                        datasetName = t.nextLine();
-                    }
-
-                    if (firstToken.equals("@ATTRIBUTE"))
-                    {
-                        addAttribute(line);
-                    }
-                    if (firstToken.equals("@DATA"))
-                    {
-                        readData = true;
-                    }
+                    ParallelArffReader.read(this, fileName);
                 }
                 else
                 {
-                    addNewRow(line);
+                    try (ArffReader reader = new ArffReader(fileName))
+                    {
+                        reader.read(this);
+                    }
                 }
             }
         }
+        catch (FileNotFoundException e)
+        {
+            throw e;
+        }
+        catch (IOException e)
+        {
+            throw new ARFFParseException("Error reading file: " + fileName + "\n" + e.toString());
+        }
         if (binRealValues)
         {
             binRealValues();
         }
     }
 
+    /**
+     * Called before the attributes of a file are added, to forget any earlier ones.
+     */
+    void startHeader()
+    {
+        m_attr_name = new ArrayList<>();
+        m_str_to_enum = new ArrayList<>();
+        m_enum_to_str = new ArrayList<>();
+    }
+
+    /**
+     * Called once all of the attributes have been added, right before the first row is.
+     */
+    void startData()
+    {
+        m_data = MatrixStorage.create(storageType, cols());
+    }
+
+    /**
+     * Called once all of the attributes have been added, right before the first row is, when the number of rows is
+     * known ahead of time.
+     *
+     * @param rows the number of rows that will be added
+     */
+    void startData(int rows)
+    {
+        m_data = MatrixStorage.create(storageType, cols(), rows);
+    }
+
+    /**
+     * Replaces the storage with storage that already holds the rows of a file.
+     *
+     * @param storage the loaded rows
+     */
+    void setStorage(MatrixStorage storage)
+    {
+        m_data = storage;
+    }
+
+    /**
+     * Adds a row read from an arff file. The matrix takes ownership of the array.
+     *
+     * @param row the values in the row
+     */
+    void addRow(double[] row)
+    {
+        m_data.addRow(row);
+    }
+
+    /**
+     * Returns the map from the names of the values of a nominal attribute to their indices.
+     *
+     * @param col the column index
+     * @return the values of the attribute. This is empty for continuous attributes.
+     */
+    Map<String, Integer> getNominalValues(int col)
+    {
+        return Collections.unmodifiableMap(m_str_to_enum.get(col));
+    }
+
     /**
      * Adds an attribute to the Matrix from a line in the arff file
      *
      * @param line the line in the arff file
      * @throws ARFFParseException if the line can't be parsed correctly
      */
-    private void addAttribute(String line) throws ARFFParseException
+    void addAttribute(String line) throws ARFFParseException
     {
-        Map<String, Integer> ste = new TreeMap<>();
-        m_str_to_enum.add(ste);
-        Map<Integer, String> ets = new TreeMap<>();
-        m_enum_to_str.add(ets);
-
-        Scanner u = new Scanner(line);
-        if (line.contains("'"))
+        String attributeName;
+        String type;
+        int firstQuote = line.indexOf('\'');
+        if (firstQuote != -1)
         {
-            u.useDelimiter("'");
+            int secondQuote = line.indexOf('\'', firstQuote + 1);
+            if (secondQuote == -1)
+            {
+                throw new ARFFParseException("Error parsing line: " + line + "\nUnterminated attribute name");
+            }
+            int typeEnd = line.indexOf('\'', secondQuote + 1);
+            attributeName = line.substring(firstQuote, secondQuote + 1);
+            type = line.substring(secondQuote + 1, typeEnd == -1 ? line.length() : typeEnd);
         }
-        u.next();
-        String attributeName = u.next();
-        if (line.contains("'"))
+        else
         {
-            attributeName = "'" + attributeName + "'";
+            String[] tokens = line.trim()
+                    .split("\\s+", 4);
+            if (tokens.length < 3)
+            {
+                throw new ARFFParseException("Error parsing line: " + line + "\nExpected an attribute name and type");
+            }
+            attributeName = tokens[1];
+            type = tokens[2];
         }
+
+        Map<String, Integer> ste = new TreeMap<>();
+        m_str_to_enum.add(ste);
+        Map<Integer, String> ets = new TreeMap<>();
+        m_enum_to_str.add(ets);
         m_attr_name.add(attributeName);
 
-        String type = u.next()
-                .trim()
+        type = type.trim()
                 .toUpperCase();
         if (!type.equals("REAL") && !type.equals("CONTINUOUS") && !type.equals("INTEGER"))
         {
@@ -207,96 +412,54 @@ public class Matrix
     }
 
     /**
-     * Adds a nominal attribute to the Matrix from a line in the arff file
+     * Adds an attribute to the Matrix
      *
-     * @param line the line in the arff file
-     * @param ste  a new Map that exists in the Matrix representing Attribute Names mapped to their values
-     * @param ets  a new Map that exists in the Matrix representing values mapped to their Attribute Names
-     * @throws ARFFParseException if the line can't be parsed correctly
+     * @param attributeName the name of the attribute
+     * @param values        the names of the values of a nominal attribute, in order. This is empty for continuous
+     *                      attributes.
      */
-    private void addNominalAttribute(String line, Map<String, Integer> ste, Map<Integer, String> ets) throws ARFFParseException
+    void addAttribute(String attributeName, String[] values)
     {
-        int vals = 0;
-        try
-        {
-            String values = line.substring(line.indexOf("{") + 1, line.indexOf("}"));
-            Scanner v = new Scanner(values);
-            v.useDelimiter(",");
-            while (v.hasNext())
-            {
-                String value = v.next()
-                        .trim();
-                if (value.length() > 0)
-                {
-                    ste.put(value, vals);
-                    ets.put(vals, value);
-                    vals++;
-                }
-            }
-        }
-        catch (Exception e)
+        Map<String, Integer> ste = new TreeMap<>();
+        Map<Integer, String> ets = new TreeMap<>();
+        for (int i = 0; i < values.length; ++i)
         {
-            throw new ARFFParseException("Error parsing line: " + line + "\n" + e.toString());
+            ste.put(values[i], i);
+            ets.put(i, values[i]);
         }
+        m_str_to_enum.add(ste);
+        m_enum_to_str.add(ets);
+        m_attr_name.add(attributeName);
     }
 
     /**
-     * Adds a new row to the Matrix from a line in the arff file
+     * Adds a nominal attribute to the Matrix from a line in the arff file
      *
      * @param line the line in the arff file
+     * @param ste  a new Map that exists in the Matrix representing Attribute Names mapped to their values
+     * @param ets  a new Map that exists in the Matrix representing values mapped to their Attribute Names
      * @throws ARFFParseException if the line can't be parsed correctly
      */
-    private void addNewRow(String line) throws ARFFParseException
+    private void addNominalAttribute(String line, Map<String, Integer> ste, Map<Integer, String> ets) throws ARFFParseException
     {
-        double[] newRow = new double[cols()];
-
-        try
+        int open = line.indexOf('{');
+        int close = line.indexOf('}');
+        if (open == -1 || close < open)
         {
-            Scanner scanner = new Scanner(line)
-                    .useDelimiter(",");
-            int curPos = 0;
-            while (scanner.hasNext())
-            {
-                String textValue = scanner.next()
-                        .trim();
-
-                if (textValue.length() > 0)
-                {
-                    double doubleValue;
-                    int vals = valueCount(curPos);
-
-                    //Missing instances appear in the dataset as a double defined as MISSING
-                    if (textValue.equals("?"))
-                    {
-                        doubleValue = MISSING;
-                    }
-                    // Continuous values appear in the instance vector as they are
-                    else if (vals == 0)
-                    {
-                        doubleValue = Double.parseDouble(textValue);
-                    }
-                    // Discrete values appear as an index to the "name"
-                    // of that value in the "attributeValue" structure
-                    else
-                    {
-                        doubleValue = m_str_to_enum.get(curPos)
-                                .get(textValue);
-                        if (doubleValue == -1)
-                        {
-                            throw new ARFFParseException("Error parsing the value '" + textValue + "' on line: " + line);
-                        }
-                    }
-
-                    newRow[curPos] = doubleValue;
-                    curPos++;
-                }
-            }
+            throw new ARFFParseException("Error parsing line: " + line + "\nExpected a list of nominal values");
         }
-        catch (Exception e)
+        int vals = 0;
+        for (String value : line.substring(open + 1, close)
+                .split(","))
         {
-            throw new ARFFParseException("Error parsing line: " + line + "\n" + e.toString());
+            value = value.trim();
+            if (value.length() > 0)
+            {
+                ste.put(value, vals);
+                ets.put(vals, value);
+                vals++;
+            }
         }
-        m_data.add(newRow);
     }
 
     /**
@@ -322,21 +485,25 @@ public class Matrix
     }
 
     /**
-     * Takes all of the real values and bins them based on the number of standard deviations from the mean.
+     * Takes all of the real values and bins them based on the number of standard deviations from the mean. As binning
+     * always has, the standard deviation divides by every row, including the rows where the value is missing.
      */
     private void binRealValues()
     {
-        for (int i = 0; i < m_data.size(); ++i)
+        ColumnStatistics statistics = getColumnStatistics();
+        double[] standardDeviations = new double[cols()];
+        for (int j = 0; j < cols(); ++j)
         {
-            double[] row = m_data.get(i);
-            for (int j = 0; j < row.length; ++j)
+            standardDeviations[j] = Math.sqrt(statistics.variance(j) * statistics.count(j) / rows());
+        }
+        for (int i = 0; i < rows(); ++i)
+        {
+            for (int j = 0; j < cols(); ++j)
             {
                 if (valueCount(j) == 0)
                 {
-                    double value = row[j];
-                    double mean = columnMean(j);
-                    double standardDeviation = columnStandardDeviation(j);
-                    double zScore = zScore(value, mean, standardDeviation);
+                    double value = get(i, j);
+                    double zScore = zScore(value, statistics.mean(j), standardDeviations[j]);
                     int numberOfStandardDeviations = (int) zScore;
                     set(i, j, numberOfStandardDeviations);
                 }
@@ -348,18 +515,35 @@ public class Matrix
             {
                 Map<String, Integer> ste = m_str_to_enum.get(i);
                 Map<Integer, String> ets = m_enum_to_str.get(i);
-                Map<Double, Integer> columnOccurrences = getColumnOccurrences(i);
-                int counter = 0;
-                for (Entry<Double, Integer> entry : columnOccurrences.entrySet())
+                double[] values = getColumnHistogram(i).keys();
+                for (int counter = 0; counter < values.length; ++counter)
                 {
-                    ste.put(String.valueOf(entry.getKey()), counter);
-                    ets.put(counter, String.valueOf(entry.getKey()));
-                    ++counter;
+                    ste.put(String.valueOf(values[counter]), counter);
+                    ets.put(counter, String.valueOf(values[counter]));
                 }
             }
         }
     }
 
+    /**
+     * Returns the count, mean, variance, min and max of every column, all computed in one pass over the rows. The
+     * statistics are cached until the matrix (or the matrix it is a view of) changes, so asking for them repeatedly is
+     * free. Changes made directly to an array returned by {@link #row(int)} aren't noticed; use
+     * {@link #set(int, int, double)} for values that statistics will be computed from.
+     *
+     * @return the statistics of every column
+     */
+    public ColumnStatistics getColumnStatistics()
+    {
+        if (statistics == null || statisticsStorage != m_data || statisticsModCount != m_data.getModCount())
+        {
+            statisticsStorage = m_data;
+            statisticsModCount = m_data.getModCount();
+            statistics = new ColumnStatistics(this);
+        }
+        return statistics;
+    }
+
     /**
      * Sets the value at the specified row and column
      *
@@ -369,18 +553,40 @@ public class Matrix
      */
     public void set(int row, int column, double value)
     {
-        row(row)[column] = value;
+        m_data.set(row, column, value);
     }
 
     /**
-     * Returns the specified row
+     * Returns the specified row. With {@link StorageType#ROWS} this is the live row, with any other storage type it is
+     * a copy, so use {@link #set(int, int, double)} to change values.
      *
      * @param row the row index
      * @return the specified row
      */
     public double[] row(int row)
     {
-        return m_data.get(row);
+        return m_data.row(row);
+    }
+
+    /**
+     * Copies the specified row into the given array without allocating, regardless of the storage type.
+     *
+     * @param row         the row index
+     * @param destination an array at least {@link #cols()} long
+     */
+    public void copyRow(int row, double[] destination)
+    {
+        m_data.copyRow(row, destination);
+    }
+
+    /**
+     * Returns how the values of this matrix are laid out in memory.
+     *
+     * @return the storage type
+     */
+    public StorageType getStorageType()
+    {
+        return storageType;
     }
 
     /**
@@ -391,18 +597,7 @@ public class Matrix
      */
     public double columnMean(int col)
     {
-        double sum = 0;
-        int count = 0;
-        for (int i = 0; i < rows(); i++)
-        {
-            double v = get(i, col);
-            if (v != MISSING)
-            {
-                sum += v;
-                count++;
-            }
-        }
-        return sum / count;
+        return getColumnStatistics().mean(col);
     }
 
     /**
@@ -412,7 +607,7 @@ public class Matrix
      */
     public int rows()
     {
-        return m_data.size();
+        return m_data.rows();
     }
 
     /**
@@ -424,48 +619,46 @@ public class Matrix
      */
     public double get(int row, int column)
     {
-        return m_data.get(row)[column];
+        return m_data.get(row, column);
     }
 
     /**
-     * Returns the standard deviation of the specified column.
+     * Returns a Map of the possible values in the given column along with the number of times they occur.
      *
      * @param col the column index
-     * @return the standard deviation of the specified column.
+     * @return the occurrences of values in the column.
      */
-    private double columnStandardDeviation(int col)
+    public Map<Double, Integer> getColumnOccurrences(int col)
     {
-        double sum = 0;
-        double average = columnMean(col);
-        for (int i = 0; i < rows(); ++i)
+        Histogram histogram = getColumnHistogram(col);
+        double[] values = histogram.keys();
+        Map<Double, Integer> occurrences = new TreeMap<>();
+        for (double value : values)
         {
-            double value = get(i, col);
-            if (value != MISSING)
-            {
-                sum += square(value - average) / rows();
-            }
+            occurrences.put(value, histogram.get(value));
         }
-        return Math.sqrt(sum);
+        return occurrences;
     }
 
     /**
-     * Returns a Map of the possible values in the given column along with the number of times they occur.
+     * Returns a Histogram of the values in the given column. This counts the same values as
+     * {@link #getColumnOccurrences(int)} without boxing any of them.
      *
      * @param col the column index
      * @return the occurrences of values in the column.
      */
-    public Map<Double, Integer> getColumnOccurrences(int col)
+    public Histogram getColumnHistogram(int col)
     {
-        Map<Double, Integer> occurrences = new TreeMap<>();
+        Histogram histogram = new Histogram(valueCount(col));
         for (int i = 0; i < rows(); i++)
         {
             double v = get(i, col);
             if (v != MISSING || binRealValues)
             {
-                occurrences.merge(v, 1, (a, b) -> a + b);
+                histogram.add(v);
             }
         }
-        return occurrences;
+        return histogram;
     }
 
     /**
@@ -507,6 +700,26 @@ public class Matrix
         this.binRealValues = true;
     }
 
+    /**
+     * Returns if arff files are parsed on all cores.
+     *
+     * @return true if arff files are parsed in parallel, false otherwise.
+     */
+    public boolean isParallelLoad()
+    {
+        return parallelLoad;
+    }
+
+    /**
+     * This instructs the Matrix to parse the data section of arff files on all cores. The rows end up in the same
+     * order either way, so this only makes a difference for large files. It has no effect on memory-mapped or binary
+     * files.
+     */
+    public void doParallelLoad()
+    {
+        this.parallelLoad = true;
+    }
+
     /**
      * Adds a copy of the specified portion of that matrix to this matrix
      *
@@ -531,13 +744,12 @@ public class Matrix
         }
         for (int j = 0; j < rowCount; j++)
         {
-            double[] rowSrc = that.row(rowStart + j);
             double[] rowDest = new double[cols()];
             for (int i = 0; i < cols(); i++)
             {
-                rowDest[i] = rowSrc[colStart + i];
+                rowDest[i] = that.get(rowStart + j, colStart + i);
             }
-            m_data.add(rowDest);
+            m_data.addRow(rowDest);
         }
     }
 
@@ -549,11 +761,12 @@ public class Matrix
      */
     public void setSize(int rows, int cols)
     {
-        m_data = new ArrayList<>();
+        storageType = storageType.forCopies();
+        m_data = MatrixStorage.create(storageType, cols);
         for (int j = 0; j < rows; j++)
         {
             double[] row = new double[cols];
-            m_data.add(row);
+            m_data.addRow(row);
         }
         m_attr_name = new ArrayList<>();
         m_str_to_enum = new ArrayList<>();
@@ -600,9 +813,7 @@ public class Matrix
         for (int n = rows(); n > 0; n--)
         {
             int i = rand.nextInt(n);
-            double[] tmp = row(n - 1);
-            m_data.set(n - 1, row(i));
-            m_data.set(i, tmp);
+            m_data.swapRows(n - 1, i);
         }
     }
 
@@ -617,13 +828,8 @@ public class Matrix
         for (int n = rows(); n > 0; n--)
         {
             int i = rand.nextInt(n);
-            double[] tmp = row(n - 1);
-            m_data.set(n - 1, row(i));
-            m_data.set(i, tmp);
-
-            double[] tmp1 = buddy.row(n - 1);
-            buddy.m_data.set(n - 1, buddy.row(i));
-            buddy.m_data.set(i, tmp1);
+            m_data.swapRows(n - 1, i);
+            buddy.m_data.swapRows(n - 1, i);
         }
     }
 
@@ -635,18 +841,7 @@ public class Matrix
      */
     public double mostCommonValue(int col)
     {
-        Map<Double, Integer> tm = getColumnOccurrences(col);
-        int maxCount = 0;
-        double val = MISSING;
-        for (Entry<Double, Integer> e : tm.entrySet())
-        {
-            if (e.getValue() > maxCount)
-            {
-                maxCount = e.getValue();
-                val = e.getKey();
-            }
-        }
-        return val;
+        return getColumnHistogram(col).mostCommon(MISSING);
     }
 
     /**
@@ -659,11 +854,20 @@ public class Matrix
      */
     public Matrix getRowsWithColumnClass(int columnClass, double value) throws MatrixException
     {
-        Matrix newMatrix = new Matrix(this);
-        Double doubleValue = value;
-
-        newMatrix.m_data.removeIf(row -> !doubleValue.equals(row[columnClass]));
+        Matrix newMatrix = new Matrix(this, 0, 0, 0, cols());
         newMatrix.removeColumn(columnClass);
+        double[] row = new double[cols()];
+        for (int i = 0; i < rows(); ++i)
+        {
+            // Matches Double.equals, so NaN matches NaN and 0.0 doesn't match -0.0
+            if (Double.compare(get(i, columnClass), value) == 0)
+            {
+                copyRow(i, row);
+                double[] newRow = new double[row.length - 1];
+                Utility.removeColumnFromRow(columnClass, row, newRow);
+                newMatrix.m_data.addRow(newRow);
+            }
+        }
         return newMatrix;
     }
 
@@ -677,33 +881,19 @@ public class Matrix
         m_attr_name.remove(column);
         m_str_to_enum.remove(column);
         m_enum_to_str.remove(column);
-        for (int i = 0; i < m_data.size(); ++i)
-        {
-            m_data.set(i, removeColumnFromRow(column, m_data.get(i)));
-        }
+        m_data.removeColumn(column);
     }
 
     /**
      * Normalizes the data in all of the columns between 0 and 1.
+     *
+     * @return the normalizer that was used, which will scale other data (such as a test set) the same way
      */
-    public void normalize()
+    public Normalizer normalize()
     {
-        for (int i = 0; i < cols(); i++)
-        {
-            if (valueCount(i) == 0)
-            {
-                double min = columnMin(i);
-                double max = columnMax(i);
-                for (int j = 0; j < rows(); j++)
-                {
-                    double v = get(j, i);
-                    if (v != MISSING)
-                    {
-                        set(j, i, (v - min) / (max - min));
-                    }
-                }
-            }
-        }
+        Normalizer normalizer = Normalizer.fit(this);
+        normalizer.apply(this);
+        return normalizer;
     }
 
     /**
@@ -714,19 +904,7 @@ public class Matrix
      */
     public double columnMin(int col)
     {
-        double m = MISSING;
-        for (int i = 0; i < rows(); i++)
-        {
-            double v = get(i, col);
-            if (v != MISSING)
-            {
-                if (m == MISSING || v < m)
-                {
-                    m = v;
-                }
-            }
-        }
-        return m;
+        return getColumnStatistics().min(col);
     }
 
     /**
@@ -737,19 +915,7 @@ public class Matrix
      */
     public double columnMax(int col)
     {
-        double m = MISSING;
-        for (int i = 0; i < rows(); i++)
-        {
-            double v = get(i, col);
-            if (v != MISSING)
-            {
-                if (m == MISSING || v > m)
-                {
-                    m = v;
-                }
-            }
-        }
-        return m;
+        return getColumnStatistics().max(col);
     }
 
     /**
@@ -0,0 +1,56 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+/**
+ * Reads the rows of a matrix in blocks. With a memory-mapped matrix the rows are read in place from the file, so this
+ * is how a binary file is streamed.
+ */
+public class MatrixRowSource implements RowSource
+{
+    private final Matrix matrix;
+
+    public MatrixRowSource(Matrix matrix)
+    {
+        this.matrix = matrix;
+    }
+
+    @Override
+    public Matrix getHeader()
+    {
+        return matrix.view(0, 0, 0, matrix.cols());
+    }
+
+    @Override
+    public Pass open()
+    {
+        return new Pass()
+        {
+            private int next = 0;
+
+            @Override
+            public int read(double[][] block)
+            {
+                int count = Math.min(block.length, matrix.rows() - next);
+                for (int i = 0; i < count; ++i)
+                {
+                    if (block[i] == null || block[i].length != matrix.cols())
+                    {
+                        block[i] = new double[matrix.cols()];
+                    }
+                    matrix.copyRow(next++, block[i]);
+                }
+                return count;
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+    }
+
+    @Override
+    public Matrix load()
+    {
+        return matrix;
+    }
+}
@@ -0,0 +1,99 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+/**
+ * Holds the values of a {@link Matrix}. The Matrix owns all of the meta-data (attribute names and nominal values),
+ * the storage only knows about doubles.
+ */
+abstract class MatrixStorage
+{
+    private int modCount;
+
+    /**
+     * Creates empty storage of the given type.
+     *
+     * @param type the layout to use
+     * @param cols the number of columns each row will have
+     * @return the new storage
+     */
+    static MatrixStorage create(StorageType type, int cols)
+    {
+        return create(type, cols, 0);
+    }
+
+    /**
+     * Creates empty storage of the given type, with room for the given number of rows.
+     *
+     * @param type     the layout to use
+     * @param cols     the number of columns each row will have
+     * @param capacity the number of rows that can be added before the storage has to grow
+     * @return the new storage
+     */
+    static MatrixStorage create(StorageType type, int cols, int capacity)
+    {
+        switch (type)
+        {
+            case COLUMNS:
+                return new ColumnStorage(cols, capacity);
+            case MAPPED:
+                throw new IllegalArgumentException("Memory-mapped storage can only be created by loading an arff file");
+            case ROWS:
+            default:
+                return new RowStorage(capacity);
+        }
+    }
+
+    abstract StorageType getType();
+
+    /**
+     * Returns a number that changes every time a value is set or rows or columns are added, removed or reordered, so
+     * anything computed from the values can tell when it is out of date. Changes made directly to an array returned by
+     * {@link #row(int)} aren't counted.
+     *
+     * @return the modification count
+     */
+    int getModCount()
+    {
+        return modCount;
+    }
+
+    /**
+     * Records that the values have changed.
+     */
+    void modified()
+    {
+        ++modCount;
+    }
+
+    abstract int rows();
+
+    abstract double get(int row, int column);
+
+    abstract void set(int row, int column, double value);
+
+    /**
+     * Returns the specified row. Depending on the layout this is either the live row or a copy of it.
+     *
+     * @param row the row index
+     * @return the values in the row
+     */
+    abstract double[] row(int row);
+
+    /**
+     * Copies the specified row into the given array, which must be at least as long as the row.
+     *
+     * @param row         the row index
+     * @param destination where to put the values
+     */
+    abstract void copyRow(int row, double[] destination);
+
+    /**
+     * Appends a row. The storage takes ownership of the array.
+     *
+     * @param row the new row
+     */
+    abstract void addRow(double[] row);
+
+    abstract void swapRows(int first, int second);
+
+    abstract void removeColumn(int column);
+}
@@ -0,0 +1,239 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Normalizes the continuous columns of a dataset with parameters that were fitted once, on the training data, so
+ * testing data and individual rows seen later are scaled exactly the same way. Nominal columns and missing values are
+ * left alone. A fitted normalizer doesn't change, and can be serialized along with a model.
+ */
+public class Normalizer implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final Type type;
+    private final int cols;
+    private final int[] columns;
+    private final double[] offsets;
+    private final double[] ranges;
+
+    private Normalizer(Type type, int cols, int[] columns, double[] offsets, double[] ranges)
+    {
+        this.type = type;
+        this.cols = cols;
+        this.columns = columns;
+        this.offsets = offsets;
+        this.ranges = ranges;
+    }
+
+    /**
+     * Fits a normalizer that scales every continuous column of the matrix between 0 and 1.
+     *
+     * @param matrix the (training) data
+     * @return the fitted normalizer
+     */
+    public static Normalizer fit(Matrix matrix)
+    {
+        return fit(matrix, Type.MIN_MAX);
+    }
+
+    /**
+     * Fits a normalizer of the given type to the continuous columns of the matrix. A column whose range (or standard
+     * deviation) is 0 is only shifted, so its values all become 0.
+     *
+     * @param matrix the (training) data
+     * @param type   how to normalize
+     * @return the fitted normalizer
+     */
+    public static Normalizer fit(Matrix matrix, Type type)
+    {
+        ColumnStatistics statistics = matrix.getColumnStatistics();
+        int[] columns = new int[matrix.cols()];
+        double[] offsets = new double[matrix.cols()];
+        double[] ranges = new double[matrix.cols()];
+        int count = 0;
+        for (int i = 0; i < matrix.cols(); ++i)
+        {
+            if (matrix.valueCount(i) == 0)
+            {
+                columns[count] = i;
+                if (type == Type.MIN_MAX)
+                {
+                    offsets[count] = statistics.min(i);
+                    ranges[count] = statistics.max(i) - statistics.min(i);
+                }
+                else
+                {
+                    offsets[count] = statistics.mean(i);
+                    ranges[count] = statistics.standardDeviation(i);
+                }
+                if (!(ranges[count] > 0))
+                {
+                    // A column with only one value (or none) is just shifted, instead of dividing by zero
+                    ranges[count] = 1;
+                }
+                ++count;
+            }
+        }
+        return new Normalizer(type, matrix.cols(), Arrays.copyOf(columns, count), Arrays.copyOf(offsets, count), Arrays.copyOf(ranges, count));
+    }
+
+    /**
+     * Normalizes every row of the matrix in place.
+     *
+     * @param matrix the data to normalize. It must have the same columns as the data the normalizer was fitted to.
+     */
+    public void apply(Matrix matrix)
+    {
+        checkColumns(matrix.cols());
+        for (int i = 0; i < matrix.rows(); ++i)
+        {
+            for (int j = 0; j < columns.length; ++j)
+            {
+                double value = matrix.get(i, columns[j]);
+                if (value != Matrix.MISSING)
+                {
+                    matrix.set(i, columns[j], (value - offsets[j]) / ranges[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Normalizes a single row in place.
+     *
+     * @param row the row to normalize. It must have the same columns as the data the normalizer was fitted to.
+     */
+    public void apply(double[] row)
+    {
+        checkColumns(row.length);
+        for (int j = 0; j < columns.length; ++j)
+        {
+            double value = row[columns[j]];
+            if (value != Matrix.MISSING)
+            {
+                row[columns[j]] = (value - offsets[j]) / ranges[j];
+            }
+        }
+    }
+
+    /**
+     * Narrows the normalizer to a range of the columns it was fitted to, for rows that only have those columns, as in
+     * a view of the matrix.
+     *
+     * @param start the first column
+     * @param count the number of columns
+     * @return a normalizer of just those columns
+     * @throws IllegalArgumentException if the columns aren't all ones the normalizer was fitted to
+     */
+    public Normalizer columns(int start, int count)
+    {
+        if (start < 0 || count < 0 || start + count > cols)
+        {
+            throw new IllegalArgumentException(String.format("Columns %d to %d aren't among the %d columns", start, start + count, cols));
+        }
+        int[] selected = new int[columns.length];
+        double[] selectedOffsets = new double[columns.length];
+        double[] selectedRanges = new double[columns.length];
+        int selectedCount = 0;
+        for (int j = 0; j < columns.length; ++j)
+        {
+            if (columns[j] >= start && columns[j] < start + count)
+            {
+                selected[selectedCount] = columns[j] - start;
+                selectedOffsets[selectedCount] = offsets[j];
+                selectedRanges[selectedCount] = ranges[j];
+                ++selectedCount;
+            }
+        }
+        return new Normalizer(type, count, Arrays.copyOf(selected, selectedCount), Arrays.copyOf(selectedOffsets, selectedCount), Arrays.copyOf(selectedRanges, selectedCount));
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public int cols()
+    {
+        return cols;
+    }
+
+    /**
+     * Writes the fitted parameters, so the normalizer can be saved in a binary file along with a model.
+     *
+     * @param output where to write them
+     * @throws IOException if they can't be written
+     */
+    public void write(DataOutputStream output) throws IOException
+    {
+        output.writeUTF(type.name());
+        output.writeInt(cols);
+        output.writeInt(columns.length);
+        for (int j = 0; j < columns.length; ++j)
+        {
+            output.writeInt(columns[j]);
+            output.writeDouble(offsets[j]);
+            output.writeDouble(ranges[j]);
+        }
+    }
+
+    /**
+     * Reads a normalizer written by {@link #write(DataOutputStream)}.
+     *
+     * @param input where to read it from
+     * @return the normalizer
+     * @throws IOException if it can't be read
+     */
+    public static Normalizer read(DataInputStream input) throws IOException
+    {
+        Type type;
+        try
+        {
+            type = Type.valueOf(input.readUTF());
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IOException("Unrecognized normalizer type", e);
+        }
+        int cols = input.readInt();
+        int count = input.readInt();
+        int[] columns = new int[count];
+        double[] offsets = new double[count];
+        double[] ranges = new double[count];
+        for (int j = 0; j < count; ++j)
+        {
+            columns[j] = input.readInt();
+            offsets[j] = input.readDouble();
+            ranges[j] = input.readDouble();
+        }
+        return new Normalizer(type, cols, columns, offsets, ranges);
+    }
+
+    private void checkColumns(int cols)
+    {
+        if (cols != this.cols)
+        {
+            throw new IllegalArgumentException(String.format("Expected %d columns, but there are %d", this.cols, cols));
+        }
+    }
+
+    /**
+     * The ways that values can be normalized.
+     */
+    public enum Type
+    {
+        /**
+         * Scales the values so the min of the column is 0 and the max is 1.
+         */
+        MIN_MAX,
+        /**
+         * Replaces the values with the number of standard deviations they are from the mean of the column.
+         */
+        Z_SCORE
+    }
+}
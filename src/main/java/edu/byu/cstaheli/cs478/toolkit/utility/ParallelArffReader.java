@@ -0,0 +1,228 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import edu.byu.cstaheli.cs478.toolkit.exception.ARFFParseException;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Reads an arff file into a {@link Matrix} using every core. The header is read by an {@link ArffReader}, then the
+ * data section is cut into chunks at line breaks, and each chunk is read once and parsed into its own list of rows on
+ * the common fork-join pool. The lists are added to the matrix in chunk order, so the rows end up in the same order
+ * as in the file.
+ */
+class ParallelArffReader
+{
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int MAX_CHUNK_SIZE = 1 << 26;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final FileChannel channel;
+    private final long[] chunkStarts;
+
+    private ParallelArffReader(FileChannel channel, long[] chunkStarts)
+    {
+        this.channel = channel;
+        this.chunkStarts = chunkStarts;
+    }
+
+    /**
+     * Reads the whole file into the matrix, which should be empty.
+     *
+     * @param matrix   the matrix to read into
+     * @param fileName the path to the arff file
+     * @throws IOException        if the file can't be read
+     * @throws ARFFParseException if there is something wrong with the setup of the arff file.
+     */
+    static void read(Matrix matrix, String fileName) throws IOException, ARFFParseException
+    {
+        long dataStart;
+        try (ArffReader reader = new ArffReader(fileName))
+        {
+            if (!reader.readHeader(matrix))
+            {
+                return;
+            }
+            dataStart = reader.getPosition();
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+             FileChannel channel = file.getChannel())
+        {
+            ParallelArffReader reader = new ParallelArffReader(channel, findChunkStarts(channel, dataStart));
+            List<List<double[]>> chunks = reader.parseRows(new ArffLineParser(matrix));
+            int totalRows = 0;
+            for (List<double[]> chunk : chunks)
+            {
+                totalRows += chunk.size();
+            }
+
+            matrix.startData(totalRows);
+            for (List<double[]> chunk : chunks)
+            {
+                for (double[] row : chunk)
+                {
+                    matrix.addRow(row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cuts the data section into chunks of about the same size, moving each cut forward to just after a line break.
+     *
+     * @return where each chunk starts, followed by the end of the file
+     */
+    private static long[] findChunkStarts(FileChannel channel, long dataStart) throws IOException
+    {
+        long size = channel.size();
+        long chunkSize = (size - dataStart) / (ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD);
+        chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+
+        List<Long> starts = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = dataStart;
+        while (start < size)
+        {
+            starts.add(start);
+            long cut = start + chunkSize;
+            start = size;
+            while (cut < size)
+            {
+                probe.clear();
+                int read = channel.read(probe, cut);
+                int lineBreak = -1;
+                for (int i = 0; i < read && lineBreak == -1; ++i)
+                {
+                    if (probe.get(i) == '\n' || probe.get(i) == '\r')
+                    {
+                        lineBreak = i;
+                    }
+                }
+                if (lineBreak != -1)
+                {
+                    start = cut + lineBreak + 1;
+                    break;
+                }
+                cut += read;
+            }
+        }
+        long[] chunkStarts = new long[starts.size() + 1];
+        for (int i = 0; i < starts.size(); ++i)
+        {
+            chunkStarts[i] = starts.get(i);
+        }
+        chunkStarts[starts.size()] = size;
+        return chunkStarts;
+    }
+
+    private List<List<double[]>> parseRows(ArffLineParser parser) throws IOException, ARFFParseException
+    {
+        List<Callable<List<double[]>>> tasks = new ArrayList<>();
+        for (int i = 0; i < chunkStarts.length - 1; ++i)
+        {
+            int chunk = i;
+            tasks.add(() -> readChunk(chunk, parser));
+        }
+        return invokeAll(tasks);
+    }
+
+    /**
+     * Reads a chunk of the file and parses its rows.
+     *
+     * @param chunk  the index of the chunk
+     * @param parser the parser to parse rows with
+     * @return the rows in the chunk, in order
+     */
+    private List<double[]> readChunk(int chunk, ArffLineParser parser) throws IOException, ARFFParseException
+    {
+        long start = chunkStarts[chunk];
+        int length = (int) (chunkStarts[chunk + 1] - start);
+        byte[] bytes = new byte[length];
+        ByteBuffer destination = ByteBuffer.wrap(bytes, 0, length);
+        while (destination.hasRemaining())
+        {
+            if (channel.read(destination, start + destination.position()) == -1)
+            {
+                throw new IOException("The file was truncated while it was being read");
+            }
+        }
+
+        List<double[]> rows = new ArrayList<>();
+        int lineStart = 0;
+        while (lineStart < length)
+        {
+            int lineEnd = lineStart;
+            while (lineEnd < length && bytes[lineEnd] != '\n' && bytes[lineEnd] != '\r')
+            {
+                ++lineEnd;
+            }
+            int first = lineStart;
+            int last = lineEnd;
+            while (first < last && ArffLineParser.isWhitespace(bytes[first]))
+            {
+                ++first;
+            }
+            while (last > first && ArffLineParser.isWhitespace(bytes[last - 1]))
+            {
+                --last;
+            }
+            if (first < last && bytes[first] != '%')
+            {
+                rows.add(parser.parse(bytes, first, last));
+            }
+            lineStart = lineEnd + 1;
+        }
+        return rows;
+    }
+
+    /**
+     * Runs the tasks on the common fork-join pool and waits for all of them to finish.
+     *
+     * @return the results of the tasks, in order
+     */
+    private static <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException, ARFFParseException
+    {
+        List<T> results = new ArrayList<>();
+        try
+        {
+            for (Future<T> future : ForkJoinPool.commonPool()
+                    .invokeAll(tasks))
+            {
+                results.add(future.get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread()
+                    .interrupt();
+            throw new IOException("Interrupted while reading", e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof ARFFParseException)
+            {
+                throw (ARFFParseException) cause;
+            }
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        return results;
+    }
+}
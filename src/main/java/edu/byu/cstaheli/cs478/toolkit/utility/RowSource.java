@@ -0,0 +1,70 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import edu.byu.cstaheli.cs478.toolkit.exception.ARFFParseException;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Rows that are read in blocks, one pass over the data at a time, so a learner can work through data that doesn't fit
+ * on the heap. Only the block being worked on needs to be in memory.
+ */
+public interface RowSource
+{
+    /**
+     * Opens a source for a file, which is streamed from disk if it is arff, or memory-mapped and read in place if it
+     * is a binary file written by {@link BinaryMatrix}.
+     *
+     * @param fileName the path to the arff or binary file
+     * @return the source
+     * @throws IOException        if the file can't be read
+     * @throws ARFFParseException if there is something wrong with the setup of the file
+     */
+    static RowSource open(String fileName) throws IOException, ARFFParseException
+    {
+        if (BinaryMatrix.isBinaryMatrix(fileName))
+        {
+            return new MatrixRowSource(new Matrix(fileName, StorageType.MAPPED));
+        }
+        return new ArffRowSource(fileName);
+    }
+
+    /**
+     * Returns the attributes of the rows, as a matrix with no rows.
+     *
+     * @return the attributes
+     */
+    Matrix getHeader();
+
+    /**
+     * Starts a pass over the rows, from the first.
+     *
+     * @return the pass, which must be closed
+     * @throws IOException if the rows can't be read
+     */
+    Pass open() throws IOException;
+
+    /**
+     * Reads every row into a matrix on the heap.
+     *
+     * @return the matrix
+     * @throws IOException if the rows can't be read
+     */
+    Matrix load() throws IOException;
+
+    /**
+     * One pass over the rows.
+     */
+    interface Pass extends Closeable
+    {
+        /**
+         * Reads the next rows. The arrays put in the block may be reused by the next call, so they shouldn't be kept.
+         *
+         * @param block where to put the rows. An array already in it may be written over.
+         * @return the number of rows read, which is only less than the length of the block at the end of the pass,
+         * and 0 once there are no rows left
+         * @throws IOException if the rows can't be read
+         */
+        int read(double[][] block) throws IOException;
+    }
+}
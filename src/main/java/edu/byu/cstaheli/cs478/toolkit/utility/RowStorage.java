@@ -0,0 +1,88 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static edu.byu.cstaheli.cs478.toolkit.utility.Utility.removeColumnFromRow;
+
+/**
+ * Stores every row as its own array.
+ */
+class RowStorage extends MatrixStorage
+{
+    private List<double[]> data;
+
+    RowStorage()
+    {
+        this(0);
+    }
+
+    RowStorage(int capacity)
+    {
+        data = new ArrayList<>(capacity);
+    }
+
+    @Override
+    StorageType getType()
+    {
+        return StorageType.ROWS;
+    }
+
+    @Override
+    int rows()
+    {
+        return data.size();
+    }
+
+    @Override
+    double get(int row, int column)
+    {
+        return data.get(row)[column];
+    }
+
+    @Override
+    void set(int row, int column, double value)
+    {
+        data.get(row)[column] = value;
+        modified();
+    }
+
+    @Override
+    double[] row(int row)
+    {
+        return data.get(row);
+    }
+
+    @Override
+    void copyRow(int row, double[] destination)
+    {
+        double[] source = data.get(row);
+        System.arraycopy(source, 0, destination, 0, source.length);
+    }
+
+    @Override
+    void addRow(double[] row)
+    {
+        data.add(row);
+        modified();
+    }
+
+    @Override
+    void swapRows(int first, int second)
+    {
+        double[] tmp = data.get(first);
+        data.set(first, data.get(second));
+        data.set(second, tmp);
+        modified();
+    }
+
+    @Override
+    void removeColumn(int column)
+    {
+        for (int i = 0; i < data.size(); ++i)
+        {
+            data.set(i, removeColumnFromRow(column, data.get(i)));
+        }
+        modified();
+    }
+}
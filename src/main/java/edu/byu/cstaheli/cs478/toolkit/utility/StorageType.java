@@ -0,0 +1,34 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+/**
+ * The ways that a {@link Matrix} can lay out its values in memory.
+ */
+public enum StorageType
+{
+    /**
+     * Every row is its own array. Rows returned by {@link Matrix#row(int)} are the live arrays, so this is the best
+     * layout for algorithms that work one row at a time.
+     */
+    ROWS,
+    /**
+     * Every column is a single contiguous array. Column scans (means, mins, maxes, occurrences) stream through memory
+     * linearly, but {@link Matrix#row(int)} has to gather a copy of the row.
+     */
+    COLUMNS,
+    /**
+     * The file is memory-mapped and rows are read from it each time they are needed (parsed, for arff files, or decoded
+     * in place, for {@link BinaryMatrix binary} files), so the data never has to fit on the heap. The matrix is
+     * read-only (rows can be shuffled but not changed), and copies of it are stored as {@link #ROWS}.
+     */
+    MAPPED;
+
+    /**
+     * Returns the type that copies of a matrix with this type of storage should have.
+     *
+     * @return the storage type for copies
+     */
+    StorageType forCopies()
+    {
+        return this == MAPPED ? ROWS : this;
+    }
+}
@@ -12,13 +12,59 @@ public class Utility
 {
     public static double[] removeColumnFromRow(int column, double[] row)
     {
-        List<Double> newRow = Arrays.stream(row)
-                .boxed()
-                .collect(Collectors.toList());
-        newRow.remove(column);
-        return newRow.stream()
-                .mapToDouble(i -> i)
-                .toArray();
+        double[] newRow = new double[row.length - 1];
+        removeColumnFromRow(column, row, newRow);
+        return newRow;
+    }
+
+    /**
+     * Copies every value in the row except the one in the specified column into the destination, which must be at
+     * least one shorter than the row.
+     *
+     * @param column      the column to leave out
+     * @param row         the row to copy from
+     * @param destination where to put the remaining values
+     */
+    public static void removeColumnFromRow(int column, double[] row, double[] destination)
+    {
+        if (column < 0 || column >= row.length)
+        {
+            throw new IndexOutOfBoundsException(String.format("Column: %d, Columns: %d", column, row.length));
+        }
+        System.arraycopy(row, 0, destination, 0, column);
+        System.arraycopy(row, column + 1, destination, column, row.length - column - 1);
+    }
+
+    /**
+     * Returns the column indices 0 through count - 1, for use with {@link #removeColumn(int, int[])}.
+     *
+     * @param count the number of columns
+     * @return the column indices
+     */
+    public static int[] identityColumns(int count)
+    {
+        int[] columns = new int[count];
+        for (int i = 0; i < count; ++i)
+        {
+            columns[i] = i;
+        }
+        return columns;
+    }
+
+    /**
+     * Removes an entry from a map of column indices, so that columns can be looked up in the original rows after
+     * columns have been removed, instead of copying the rows.
+     *
+     * @param column  the index of the entry to remove
+     * @param columns the column indices
+     * @return the remaining column indices
+     */
+    public static int[] removeColumn(int column, int[] columns)
+    {
+        int[] remaining = new int[columns.length - 1];
+        System.arraycopy(columns, 0, remaining, 0, column);
+        System.arraycopy(columns, column + 1, remaining, column, columns.length - column - 1);
+        return remaining;
     }
 
     public static double square(double value)
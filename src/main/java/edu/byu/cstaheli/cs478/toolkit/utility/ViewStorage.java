@@ -0,0 +1,135 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+/**
+ * A rectangular window onto another storage. Nothing is copied: reads and writes go straight through to the parent,
+ * and changes to the parent (including shuffling it) show up in the view. Views can't add, remove or reorder rows or
+ * columns.
+ */
+class ViewStorage extends MatrixStorage
+{
+    private final MatrixStorage parent;
+    private final int rowStart;
+    private final int colStart;
+    private final int rowCount;
+    private final int colCount;
+    private final boolean fullWidth;
+
+    /**
+     * Creates a view onto the given storage.
+     *
+     * @param parent    the storage being viewed. If this is itself a view, the new view points at its parent instead.
+     * @param rowStart  the first row in the view
+     * @param colStart  the first column in the view
+     * @param rowCount  how many rows are in the view
+     * @param colCount  how many columns are in the view
+     * @param fullWidth true if the view includes every column of the parent
+     */
+    ViewStorage(MatrixStorage parent, int rowStart, int colStart, int rowCount, int colCount, boolean fullWidth)
+    {
+        if (parent instanceof ViewStorage)
+        {
+            ViewStorage view = (ViewStorage) parent;
+            this.parent = view.parent;
+            this.rowStart = view.rowStart + rowStart;
+            this.colStart = view.colStart + colStart;
+            this.fullWidth = view.fullWidth && fullWidth;
+        }
+        else
+        {
+            this.parent = parent;
+            this.rowStart = rowStart;
+            this.colStart = colStart;
+            this.fullWidth = fullWidth;
+        }
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+    }
+
+    @Override
+    StorageType getType()
+    {
+        return parent.getType();
+    }
+
+    @Override
+    int rows()
+    {
+        return rowCount;
+    }
+
+    @Override
+    int getModCount()
+    {
+        return parent.getModCount();
+    }
+
+    @Override
+    double get(int row, int column)
+    {
+        return parent.get(parentRow(row), parentColumn(column));
+    }
+
+    @Override
+    void set(int row, int column, double value)
+    {
+        parent.set(parentRow(row), parentColumn(column), value);
+    }
+
+    @Override
+    double[] row(int row)
+    {
+        if (fullWidth)
+        {
+            return parent.row(parentRow(row));
+        }
+        double[] values = new double[colCount];
+        copyRow(row, values);
+        return values;
+    }
+
+    @Override
+    void copyRow(int row, double[] destination)
+    {
+        int parentRow = parentRow(row);
+        for (int i = 0; i < colCount; ++i)
+        {
+            destination[i] = parent.get(parentRow, colStart + i);
+        }
+    }
+
+    @Override
+    void addRow(double[] row)
+    {
+        throw new UnsupportedOperationException("Rows can't be added to a view of a Matrix");
+    }
+
+    @Override
+    void swapRows(int first, int second)
+    {
+        throw new UnsupportedOperationException("Rows can't be reordered in a view of a Matrix");
+    }
+
+    @Override
+    void removeColumn(int column)
+    {
+        throw new UnsupportedOperationException("Columns can't be removed from a view of a Matrix");
+    }
+
+    private int parentRow(int row)
+    {
+        if (row < 0 || row >= rowCount)
+        {
+            throw new IndexOutOfBoundsException(String.format("Row: %d, Rows: %d", row, rowCount));
+        }
+        return rowStart + row;
+    }
+
+    private int parentColumn(int column)
+    {
+        if (column < 0 || column >= colCount)
+        {
+            throw new IndexOutOfBoundsException(String.format("Column: %d, Columns: %d", column, colCount));
+        }
+        return colStart + column;
+    }
+}
@@ -0,0 +1,105 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import edu.byu.cstaheli.cs478.toolkit.utility.Normalizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests for {@link ClusterModel}.
+ */
+class ClusterModelTest
+{
+    private static String datasetsLocation = "src/test/resources/datasets/clustering/";
+
+    @Test
+    void assignsToNearestCentroid() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "labor_data.arff");
+        KMeans kMeans = new KMeans(4, new Random(5));
+        kMeans.setMetric(DistanceKernel.Metric.HEOM);
+        kMeans.cluster(dataset);
+        ClusterModel model = kMeans.getModel();
+
+        double[][] rows = new double[dataset.rows()][];
+        for (int i = 0; i < rows.length; ++i)
+        {
+            rows[i] = dataset.row(i);
+            double bestDistance = Double.MAX_VALUE;
+            int bestCluster = 0;
+            for (int j = 0; j < kMeans.getClusters()
+                    .size(); ++j)
+            {
+                double distance = kMeans.getClusters()
+                        .get(j)
+                        .calcDistanceFromCentroid(rows[i]);
+                if (distance < bestDistance)
+                {
+                    bestDistance = distance;
+                    bestCluster = j;
+                }
+            }
+            assertEquals(bestCluster, model.assign(rows[i]));
+        }
+
+        File file = File.createTempFile("model", ".bin");
+        try
+        {
+            model.save(file.getPath());
+            ClusterModel loaded = ClusterModel.load(file.getPath());
+            assertEquals(model.getK(), loaded.getK());
+            assertEquals(DistanceKernel.Metric.HEOM, loaded.getMetric());
+            for (int i = 0; i < model.getK(); ++i)
+            {
+                assertArrayEquals(model.getCentroid(i), loaded.getCentroid(i));
+            }
+            assertArrayEquals(model.assign(rows), loaded.assign(rows));
+            assertNull(loaded.getNormalizer());
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    void normalizesNewRows() throws Exception
+    {
+        Matrix raw = new Matrix(datasetsLocation + "iris.arff");
+        Matrix dataset = new Matrix(datasetsLocation + "iris.arff");
+        Normalizer normalizer = dataset.normalize();
+        KMeans kMeans = new KMeans(3, new Random(2));
+        kMeans.setUseLastColumnOfDataset(false);
+        kMeans.cluster(dataset);
+        ClusterModel model = kMeans.getModel(normalizer);
+
+        Matrix features = raw.view(0, 0, raw.rows(), raw.cols() - 1);
+        Matrix normalized = dataset.view(0, 0, dataset.rows(), dataset.cols() - 1);
+        ClusterModel plain = kMeans.getModel();
+        File file = File.createTempFile("model", ".bin");
+        try
+        {
+            model.save(file.getPath());
+            ClusterModel loaded = ClusterModel.load(file.getPath());
+            for (int i = 0; i < features.rows(); ++i)
+            {
+                double[] row = features.row(i);
+                double[] copy = row.clone();
+                int expected = plain.assign(normalized.row(i));
+                assertEquals(expected, model.assign(row));
+                assertEquals(expected, loaded.assign(row));
+                assertArrayEquals(copy, row);
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
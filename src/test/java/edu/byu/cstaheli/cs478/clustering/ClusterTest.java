@@ -3,6 +3,9 @@ package edu.byu.cstaheli.cs478.clustering;
 import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -44,8 +47,70 @@ class ClusterTest
     }
 
     @Test
-    void calculateNewCentroid()
+    void calculateNewCentroid() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "test.arff");
+        Cluster cluster = new Cluster(new double[]{0.0, 1.0, 1.0}, dataset);
+        cluster.add(new double[]{5.0, 7.0, 1.0});
+        cluster.clear();
+        for (int i = 0; i < dataset.rows(); ++i)
+        {
+            cluster.add(dataset.row(i));
+        }
+        cluster.calculateNewCentroid();
+        assertArrayEquals(new double[]{0.0, 2.0, 0.0}, cluster.getCentroid());
+    }
+
+    @Test
+    void remove() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "test.arff");
+        Cluster cluster = new Cluster(new double[]{0.0, 1.0, 1.0}, dataset);
+        int extra = cluster.add(new double[]{2.0, 9.0, 1.0});
+        for (int i = 0; i < dataset.rows(); ++i)
+        {
+            cluster.add(dataset.row(i));
+        }
+        cluster.remove(extra);
+        assertEquals(dataset.rows(), cluster.size());
+        cluster.calculateNewCentroid();
+        assertArrayEquals(new double[]{0.0, 2.0, 0.0}, cluster.getCentroid());
+    }
+
+    @Test
+    void sharedMembership() throws Exception
     {
+        Matrix dataset = new Matrix(datasetsLocation + "test.arff");
+        double[][] rows = new double[dataset.rows()][];
+        for (int i = 0; i < rows.length; ++i)
+        {
+            rows[i] = dataset.row(i);
+        }
+        Membership membership = new Membership(rows);
+        Cluster first = new Cluster(rows[0], dataset);
+        first.attach(0, membership);
+        Cluster second = new Cluster(rows[1], dataset);
+        second.attach(1, membership);
+        for (int i = 0; i < rows.length; ++i)
+        {
+            first.add(i);
+        }
+        first.remove(1);
+        second.add(1);
+
+        assertEquals(rows.length - 1, first.size());
+        assertEquals(1, second.size());
+        assertArrayEquals(new int[]{1}, second.getMembers());
+        assertEquals(1, membership.getCluster(1));
+        assertTrue(!first.equals(second));
+        double[] sses = membership.calcSSEs(Arrays.asList(first, second));
+        assertEquals(first.calcSSE(), sses[0]);
+        assertEquals(second.calcSSE(), sses[1]);
+
+        first.clear();
+        assertEquals(0, first.size());
+        assertEquals(Membership.UNASSIGNED, membership.getCluster(0));
+        assertEquals(1, membership.getCluster(1));
     }
 
     @Test
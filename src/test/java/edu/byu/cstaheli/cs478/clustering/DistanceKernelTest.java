@@ -0,0 +1,65 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link DistanceKernel}.
+ */
+class DistanceKernelTest
+{
+    private static String datasetsLocation = "src/test/resources/datasets/clustering/";
+
+    @Test
+    void manhattanMatchesColumnByColumn() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "labor_data.arff");
+        DistanceKernel kernel = DistanceKernel.create(dataset, DistanceKernel.Metric.MANHATTAN);
+        for (int i = 0; i < dataset.rows(); ++i)
+        {
+            for (int j = 0; j < dataset.rows(); ++j)
+            {
+                double[] first = dataset.row(i);
+                double[] second = dataset.row(j);
+                double expected = 0;
+                for (int column = 0; column < dataset.cols(); ++column)
+                {
+                    if (first[column] == Matrix.MISSING || second[column] == Matrix.MISSING)
+                    {
+                        expected += 1;
+                    }
+                    else if (dataset.valueCount(column) == 0)
+                    {
+                        expected += Math.sqrt((first[column] - second[column]) * (first[column] - second[column]));
+                    }
+                    else
+                    {
+                        expected += first[column] == second[column] ? 0 : 1;
+                    }
+                }
+                assertEquals(expected, kernel.distance(first, second));
+            }
+        }
+    }
+
+    @Test
+    void metrics() throws Exception
+    {
+        // color (nominal), size (continuous, from 1 to 3), shape (nominal)
+        Matrix dataset = new Matrix(datasetsLocation + "test.arff");
+        double[] first = {0, 1, 0};
+        double[] second = {1, 3, 0};
+        double[] missing = {Matrix.MISSING, 2, 1};
+
+        assertEquals(3.0, DistanceKernel.create(dataset, DistanceKernel.Metric.MANHATTAN)
+                .distance(first, second));
+        assertEquals(5.0, DistanceKernel.create(dataset, DistanceKernel.Metric.SQUARED_EUCLIDEAN)
+                .distance(first, second));
+        assertEquals(Math.sqrt(2), DistanceKernel.create(dataset, DistanceKernel.Metric.HEOM)
+                .distance(first, second));
+        assertEquals(Math.sqrt(1 + 0.25 + 1), DistanceKernel.create(dataset, DistanceKernel.Metric.HEOM)
+                .distance(first, missing));
+    }
+}
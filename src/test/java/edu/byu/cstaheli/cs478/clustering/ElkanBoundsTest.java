@@ -0,0 +1,85 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link ElkanBounds}.
+ */
+class ElkanBoundsTest
+{
+    private static String datasetsLocation = "src/test/resources/datasets/clustering/";
+
+    @Test
+    void assignsLikeAnExhaustiveSearch() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "abalone.arff");
+        int k = 5;
+        List<Cluster> clusters = new ArrayList<>(k);
+        for (int i = 0; i < k; ++i)
+        {
+            clusters.add(new Cluster(dataset.row(i * 7), dataset));
+        }
+        double[][] rows = new double[dataset.rows()][];
+        for (int i = 0; i < rows.length; ++i)
+        {
+            rows[i] = dataset.row(i);
+        }
+
+        Membership membership = new Membership(rows);
+        ElkanBounds bounds = new ElkanBounds(dataset, DistanceKernel.Metric.MANHATTAN);
+        assertTrue(bounds.isUsable());
+        int iterations = 15;
+        for (int iteration = 0; iteration < iterations; ++iteration)
+        {
+            int[] assignments = bounds.assign(membership, clusters, false);
+            int[] expected = new int[rows.length];
+            for (int i = 0; i < rows.length; ++i)
+            {
+                double bestDistance = Double.MAX_VALUE;
+                for (int j = 0; j < k; ++j)
+                {
+                    double distance = clusters.get(j)
+                            .calcDistanceFromCentroid(rows[i]);
+                    if (distance < bestDistance)
+                    {
+                        bestDistance = distance;
+                        expected[i] = j;
+                    }
+                }
+            }
+            assertArrayEquals(expected, assignments);
+
+            for (Cluster cluster : clusters)
+            {
+                cluster.clear();
+            }
+            for (int i = 0; i < rows.length; ++i)
+            {
+                clusters.get(assignments[i])
+                        .add(rows[i]);
+            }
+            for (Cluster cluster : clusters)
+            {
+                cluster.calculateNewCentroid();
+            }
+        }
+        assertTrue(bounds.getDistanceCount() < rows.length * (long) k * iterations / 2);
+    }
+
+    @Test
+    void missingValuesInWideColumns() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "labor_data.arff");
+        assertFalse(new ElkanBounds(dataset, DistanceKernel.Metric.MANHATTAN).isUsable());
+        assertTrue(new ElkanBounds(dataset, DistanceKernel.Metric.HEOM).isUsable());
+        assertFalse(new ElkanBounds(dataset, DistanceKernel.Metric.SQUARED_EUCLIDEAN).isUsable());
+    }
+}
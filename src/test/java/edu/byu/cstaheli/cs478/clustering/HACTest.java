@@ -0,0 +1,142 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link HAC}.
+ */
+class HACTest
+{
+    private static String datasetsLocation = "src/test/resources/datasets/clustering/";
+
+    @Test
+    void matchesExhaustiveMerging() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "iris.arff");
+        for (HAC.Linkage linkage : HAC.Linkage.values())
+        {
+            for (int k = 2; k <= 5; ++k)
+            {
+                HAC hac = new HAC(k);
+                hac.setUseLastColumnOfDataset(false);
+                hac.setLinkage(linkage);
+                hac.cluster(dataset);
+
+                int[] expected = exhaustive(dataset.view(0, 0, dataset.rows(), dataset.cols() - 1), linkage, k);
+                assertEquals(k, hac.getClusters()
+                        .size());
+                assertSamePartition(expected, hac.getAssignments());
+            }
+        }
+    }
+
+    @Test
+    void options()
+    {
+        HAC hac = new HAC(3);
+        Map<String, String> options = new HashMap<>();
+        options.put("linkage", "complete");
+        options.put("metric", "heom");
+        hac.setOptions(options);
+        assertEquals(HAC.Linkage.COMPLETE, hac.getLinkage());
+        assertEquals(DistanceKernel.Metric.HEOM, hac.getMetric());
+    }
+
+    /**
+     * Merges the two nearest clusters until there are k, measuring the linkage from the rows every time.
+     */
+    private static int[] exhaustive(Matrix dataset, HAC.Linkage linkage, int k)
+    {
+        DistanceKernel kernel = DistanceKernel.create(dataset, DistanceKernel.Metric.MANHATTAN);
+        List<List<Integer>> clusters = new ArrayList<>();
+        for (int i = 0; i < dataset.rows(); ++i)
+        {
+            List<Integer> cluster = new ArrayList<>();
+            cluster.add(i);
+            clusters.add(cluster);
+        }
+        double[][] distances = new double[dataset.rows()][dataset.rows()];
+        for (int i = 0; i < dataset.rows(); ++i)
+        {
+            for (int j = 0; j < dataset.rows(); ++j)
+            {
+                distances[i][j] = kernel.distance(dataset.row(i), dataset.row(j));
+            }
+        }
+        while (clusters.size() > k)
+        {
+            int bestFirst = 0;
+            int bestSecond = 1;
+            double bestDistance = Double.MAX_VALUE;
+            for (int i = 0; i < clusters.size(); ++i)
+            {
+                for (int j = i + 1; j < clusters.size(); ++j)
+                {
+                    double distance = linkage(distances, clusters.get(i), clusters.get(j), linkage);
+                    if (distance < bestDistance)
+                    {
+                        bestDistance = distance;
+                        bestFirst = i;
+                        bestSecond = j;
+                    }
+                }
+            }
+            clusters.get(bestFirst)
+                    .addAll(clusters.remove(bestSecond));
+        }
+        int[] assignments = new int[dataset.rows()];
+        for (int i = 0; i < clusters.size(); ++i)
+        {
+            for (int row : clusters.get(i))
+            {
+                assignments[row] = i;
+            }
+        }
+        return assignments;
+    }
+
+    private static double linkage(double[][] distances, List<Integer> first, List<Integer> second, HAC.Linkage linkage)
+    {
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        double sum = 0;
+        for (int i : first)
+        {
+            for (int j : second)
+            {
+                min = Math.min(min, distances[i][j]);
+                max = Math.max(max, distances[i][j]);
+                sum += distances[i][j];
+            }
+        }
+        switch (linkage)
+        {
+            case SINGLE:
+                return min;
+            case COMPLETE:
+                return max;
+            default:
+                return sum / (first.size() * second.size());
+        }
+    }
+
+    private static void assertSamePartition(int[] expected, int[] actual)
+    {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; ++i)
+        {
+            for (int j = i + 1; j < expected.length; ++j)
+            {
+                assertEquals(expected[i] == expected[j], actual[i] == actual[j], "rows " + i + " and " + j);
+            }
+        }
+    }
+}
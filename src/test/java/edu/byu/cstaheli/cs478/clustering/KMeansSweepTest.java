@@ -0,0 +1,63 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link KMeansSweep}.
+ */
+class KMeansSweepTest
+{
+    private static String datasetsLocation = "src/test/resources/datasets/clustering/";
+
+    @Test
+    void matchesSeparateRuns() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "iris.arff");
+        KMeansSweep sweep = new KMeansSweep(2, 6, new Random(11));
+        sweep.setUseLastColumnOfDataset(false);
+        sweep.cluster(dataset);
+
+        Random seeds = new Random(11);
+        assertEquals(5, sweep.getRuns().length);
+        for (KMeans run : sweep.getRuns())
+        {
+            KMeans single = new KMeans(run.getK(), new Random(seeds.nextLong()));
+            single.setUseLastColumnOfDataset(false);
+            single.cluster(dataset);
+            assertEquals(single.getSSE(), run.getSSE());
+            assertEquals(single.getSilhouette(), run.getSilhouette());
+            assertEquals(single.getIterations(), run.getIterations());
+        }
+        int elbow = sweep.getElbow();
+        assertTrue(elbow > 2 && elbow < 6, "elbow " + elbow);
+    }
+
+    @Test
+    void matchesSeparateRunsWithoutSharedDistances() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "iris.arff");
+        KMeansSweep sweep = new KMeansSweep(2, 4, new Random(5));
+        sweep.setUseLastColumnOfDataset(false);
+        sweep.setOptions(Collections.singletonMap("convergence", "sse"));
+        sweep.cluster(dataset);
+
+        Random seeds = new Random(5);
+        for (KMeans run : sweep.getRuns())
+        {
+            KMeans single = new KMeans(run.getK(), new Random(seeds.nextLong()));
+            single.setUseLastColumnOfDataset(false);
+            single.setConvergence(KMeans.Convergence.SSE);
+            single.cluster(dataset);
+            assertEquals(single.getSSE(), run.getSSE());
+            assertEquals(single.getSilhouette(), run.getSilhouette());
+            assertEquals(single.getIterations(), run.getIterations());
+        }
+    }
+}
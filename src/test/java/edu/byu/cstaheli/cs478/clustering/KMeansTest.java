@@ -1,7 +1,11 @@
 package edu.byu.cstaheli.cs478.clustering;
 
 import edu.byu.cstaheli.cs478.toolkit.MLSystemManager;
+import edu.byu.cstaheli.cs478.toolkit.utility.ArffRowSource;
 import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import edu.byu.cstaheli.cs478.toolkit.utility.MatrixRowSource;
+import edu.byu.cstaheli.cs478.toolkit.utility.RowSource;
+import edu.byu.cstaheli.cs478.toolkit.utility.StorageType;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
@@ -9,6 +13,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -27,6 +35,240 @@ class KMeansTest
         runAbaloneTests();
     }
 
+    @Test
+    void parallelAssignsTheSame() throws Exception
+    {
+        Matrix dataset = new Matrix();
+        dataset.loadArff(datasetsLocation + "labor_data.arff");
+        for (int k = 2; k < 6; ++k)
+        {
+            KMeans serial = new KMeans(k, new Random(k));
+            serial.cluster(dataset);
+            KMeans parallel = new KMeans(k, new Random(k));
+            parallel.setParallel(true);
+            parallel.cluster(dataset);
+
+            assertEquals(serial.getClusters()
+                    .size(), parallel.getClusters()
+                    .size());
+            for (int i = 0; i < serial.getClusters()
+                    .size(); ++i)
+            {
+                Cluster expected = serial.getClusters()
+                        .get(i);
+                Cluster actual = parallel.getClusters()
+                        .get(i);
+                assertArrayEquals(expected.getCentroid(), actual.getCentroid());
+                assertEquals(expected.size(), actual.size());
+            }
+        }
+    }
+
+    @Test
+    void keepsBestRestart() throws Exception
+    {
+        Matrix dataset = new Matrix();
+        dataset.loadArff(datasetsLocation + "iris.arff");
+        KMeans restarted = new KMeans(4, new Random(3));
+        restarted.setUseLastColumnOfDataset(false);
+        restarted.setRestarts(5);
+        restarted.cluster(dataset);
+
+        Random seeds = new Random(3);
+        double bestSSE = Double.MAX_VALUE;
+        for (int i = 0; i < 5; ++i)
+        {
+            KMeans single = new KMeans(4, new Random(seeds.nextLong()));
+            single.setUseLastColumnOfDataset(false);
+            single.cluster(dataset);
+            bestSSE = Math.min(bestSSE, single.getSSE());
+        }
+        assertEquals(bestSSE, restarted.getSSE());
+        int rows = 0;
+        for (Cluster cluster : restarted.getClusters())
+        {
+            rows += cluster.size();
+        }
+        assertEquals(dataset.rows(), rows);
+    }
+
+    @Test
+    void selectsRestartByFinalSilhouette() throws Exception
+    {
+        Matrix dataset = new Matrix();
+        dataset.loadArff(datasetsLocation + "iris.arff");
+        KMeans restarted = new KMeans(4, new Random(3));
+        restarted.setUseLastColumnOfDataset(false);
+        restarted.setRestarts(5);
+        restarted.setSelection(KMeans.Selection.SILHOUETTE);
+        restarted.setCacheDistances(true);
+        restarted.cluster(dataset);
+
+        Random seeds = new Random(3);
+        double bestSilhouette = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < 5; ++i)
+        {
+            KMeans single = new KMeans(4, new Random(seeds.nextLong()));
+            single.setUseLastColumnOfDataset(false);
+            single.cluster(dataset);
+            bestSilhouette = Math.max(bestSilhouette, single.getFinalSilhouette());
+        }
+        assertEquals(bestSilhouette, restarted.getFinalSilhouette(), 1e-12);
+    }
+
+    @Test
+    void streamsBlocks() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "abalone.arff");
+        double[][] expected = null;
+        double expectedSSE = 0;
+        RowSource[] sources = {new ArffRowSource(datasetsLocation + "abalone.arff"), new MatrixRowSource(dataset)};
+        for (RowSource source : sources)
+        {
+            for (int blockSize : new int[]{1, 7, 4096})
+            {
+                KMeans kMeans = new KMeans(4, new Random(9));
+                kMeans.setUseLastColumnOfDataset(false);
+                kMeans.setBlockSize(blockSize);
+                kMeans.cluster(source);
+
+                double[][] centroids = new double[4][];
+                for (int i = 0; i < 4; ++i)
+                {
+                    centroids[i] = kMeans.getClusters()
+                            .get(i)
+                            .getCentroid();
+                    assertEquals(dataset.cols() - 1, centroids[i].length);
+                }
+                if (expected == null)
+                {
+                    expected = centroids;
+                    expectedSSE = kMeans.getSSE();
+                }
+                assertArrayEquals(expected, centroids);
+                assertEquals(expectedSSE, kMeans.getSSE());
+            }
+        }
+        assertTrue(expectedSSE > 0);
+    }
+
+    @Test
+    void keepsBestStreamedRestart() throws Exception
+    {
+        RowSource source = new ArffRowSource(datasetsLocation + "iris.arff");
+        KMeans restarted = new KMeans(4, new Random(3));
+        restarted.setUseLastColumnOfDataset(false);
+        restarted.setRestarts(4);
+        restarted.cluster(source);
+
+        Random seeds = new Random(3);
+        double bestSSE = Double.MAX_VALUE;
+        for (int i = 0; i < 4; ++i)
+        {
+            KMeans single = new KMeans(4, new Random(seeds.nextLong()));
+            single.setUseLastColumnOfDataset(false);
+            single.cluster(source);
+            bestSSE = Math.min(bestSSE, single.getSSE());
+        }
+        assertEquals(bestSSE, restarted.getSSE());
+
+        KMeans silhouette = new KMeans(4, new Random(3));
+        silhouette.setConvergence(KMeans.Convergence.SILHOUETTE);
+        assertThrows(IllegalArgumentException.class, () -> silhouette.cluster(source));
+        KMeans accelerated = new KMeans(4, new Random(3));
+        accelerated.setAccelerated(true);
+        assertThrows(IllegalArgumentException.class, () -> accelerated.cluster(source));
+    }
+
+    @Test
+    void readsMappedRowsInPlace() throws Exception
+    {
+        Matrix rows = new Matrix(datasetsLocation + "abalone.arff");
+        Matrix mapped = new Matrix(datasetsLocation + "abalone.arff", StorageType.MAPPED);
+        KMeans[] runs = new KMeans[2];
+        Matrix[] datasets = {rows, mapped};
+        for (int i = 0; i < runs.length; ++i)
+        {
+            runs[i] = new KMeans(4, new Random(5));
+            runs[i].setUseLastColumnOfDataset(false);
+            runs[i].setInitialization(KMeans.Initialization.K_MEANS_PLUS_PLUS);
+            runs[i].setAccelerated(true);
+            runs[i].setParallel(true);
+            runs[i].setSilhouetteSampleSize(50);
+            runs[i].cluster(datasets[i]);
+        }
+        for (int i = 0; i < 4; ++i)
+        {
+            assertArrayEquals(runs[0].getClusters()
+                    .get(i)
+                    .getCentroid(), runs[1].getClusters()
+                    .get(i)
+                    .getCentroid());
+        }
+        assertEquals(runs[0].getSSE(), runs[1].getSSE());
+        assertEquals(runs[0].getSilhouette(), runs[1].getSilhouette());
+        assertEquals(runs[0].getIterations(), runs[1].getIterations());
+
+        // The silhouette of every row would need all of them at once
+        assertThrows(IllegalArgumentException.class, () -> new KMeans(4, new Random(5)).cluster(mapped));
+        assertThrows(IllegalArgumentException.class, () -> new HAC(4).cluster(mapped));
+    }
+
+    @Test
+    void repairsEmptyClusters() throws Exception
+    {
+        Matrix dataset = new Matrix();
+        dataset.loadArff(datasetsLocation + "iris.arff");
+        KMeans kMeans = new KMeans(3, new Random(0));
+        kMeans.setUseLastColumnOfDataset(false);
+        Matrix features = dataset.view(0, 0, dataset.rows(), dataset.cols() - 1);
+        List<Cluster> clusters = new ArrayList<>(3);
+        // Every row is as close to the second and third clusters as the first, so they start out empty
+        for (int i = 0; i < 3; ++i)
+        {
+            clusters.add(kMeans.getClusterFromRow(features, 0));
+        }
+        kMeans.setClusters(clusters);
+        kMeans.cluster(dataset);
+
+        int rows = 0;
+        for (Cluster cluster : kMeans.getClusters())
+        {
+            assertTrue(cluster.size() > 0);
+            rows += cluster.size();
+        }
+        assertEquals(dataset.rows(), rows);
+    }
+
+    @Test
+    void reportsProgress() throws Exception
+    {
+        Matrix dataset = new Matrix();
+        dataset.loadArff(datasetsLocation + "iris.arff");
+        List<IterationProgress> progress = new ArrayList<>();
+        KMeans kMeans = new KMeans(3, new Random(1));
+        kMeans.setListener(new ClusteringListener()
+        {
+            @Override
+            public void iterationFinished(IterationProgress iteration)
+            {
+                progress.add(iteration);
+            }
+        });
+        kMeans.cluster(dataset);
+
+        assertFalse(progress.isEmpty());
+        assertEquals(dataset.rows(), progress.get(0)
+                .getMovedRows());
+        for (int i = 0; i < progress.size(); ++i)
+        {
+            assertEquals(i + 1, progress.get(i)
+                    .getIteration());
+            assertFalse(Double.isNaN(progress.get(i)
+                    .getSilhouette()));
+        }
+    }
+
     private void runAbaloneTests() throws Exception
     {
         String[] args;
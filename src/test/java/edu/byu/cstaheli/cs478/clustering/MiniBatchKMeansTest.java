@@ -0,0 +1,46 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link MiniBatchKMeans}.
+ */
+class MiniBatchKMeansTest
+{
+    private static String datasetsLocation = "src/test/resources/datasets/clustering/";
+
+    @Test
+    void cluster() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "iris.arff");
+        MiniBatchKMeans miniBatchKMeans = new MiniBatchKMeans(3, new Random(7));
+        miniBatchKMeans.setUseLastColumnOfDataset(false);
+        miniBatchKMeans.setBatchSize(30);
+        miniBatchKMeans.setMaxIterations(200);
+        miniBatchKMeans.cluster(dataset);
+
+        KMeans kMeans = new KMeans(3, new Random(7));
+        kMeans.setUseLastColumnOfDataset(false);
+        kMeans.cluster(dataset);
+        double kMeansSSE = 0;
+        for (Cluster cluster : kMeans.getClusters())
+        {
+            kMeansSSE += cluster.calcSSE();
+        }
+
+        int rows = 0;
+        for (int size : miniBatchKMeans.getClusterSizes())
+        {
+            rows += size;
+        }
+        assertEquals(dataset.rows(), rows);
+        assertTrue(miniBatchKMeans.getIterations() <= 200);
+        assertTrue(miniBatchKMeans.getSSE() < kMeansSSE * 1.25, miniBatchKMeans.getSSE() + " vs " + kMeansSSE);
+    }
+}
@@ -0,0 +1,113 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link Seeding}.
+ */
+class SeedingTest
+{
+    private static String datasetsLocation = "src/test/resources/datasets/clustering/";
+
+    @Test
+    void spreadsOutTheSeeds() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "abalone.arff");
+        double[][] rows = new double[dataset.rows()][];
+        for (int i = 0; i < rows.length; ++i)
+        {
+            rows[i] = dataset.row(i);
+        }
+        Cluster metric = new Cluster(rows[0], dataset);
+        int k = 6;
+        double randomCost = 0;
+        double plusPlusCost = 0;
+        double parallelCost = 0;
+        for (int trial = 0; trial < 20; ++trial)
+        {
+            Random random = new Random(trial);
+            int[] randomSeeds = new int[k];
+            for (int i = 0; i < k; ++i)
+            {
+                randomSeeds[i] = random.nextInt(rows.length);
+            }
+            int[] plusPlusSeeds = new Seeding(rows, metric, new Random(trial), false).plusPlus(k);
+            int[] parallelSeeds = new Seeding(rows, metric, new Random(trial), true).parallel(k, 2, 5);
+            assertEquals(k, Arrays.stream(plusPlusSeeds)
+                    .distinct()
+                    .count());
+            assertEquals(k, Arrays.stream(parallelSeeds)
+                    .distinct()
+                    .count());
+            randomCost += cost(rows, metric, randomSeeds);
+            plusPlusCost += cost(rows, metric, plusPlusSeeds);
+            parallelCost += cost(rows, metric, parallelSeeds);
+        }
+        assertTrue(plusPlusCost < randomCost, plusPlusCost + " vs " + randomCost);
+        assertTrue(parallelCost < randomCost, parallelCost + " vs " + randomCost);
+    }
+
+    @Test
+    void dependsOnlyOnTheSeed() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "labor_data.arff");
+        double[][] rows = new double[dataset.rows()][];
+        for (int i = 0; i < rows.length; ++i)
+        {
+            rows[i] = dataset.row(i);
+        }
+        Cluster metric = new Cluster(rows[0], dataset);
+        assertArrayEquals(new Seeding(rows, metric, new Random(5), false).parallel(4, 2, 5),
+                new Seeding(rows, metric, new Random(5), true).parallel(4, 2, 5));
+        assertArrayEquals(new Seeding(rows, metric, new Random(5), false).plusPlus(4),
+                new Seeding(rows, metric, new Random(5), true).plusPlus(4));
+    }
+
+    @Test
+    void doesNotSquareASquaredDistance() throws Exception
+    {
+        // With a single column, the square of the manhattan distance is the squared euclidean distance
+        Matrix dataset = new Matrix(datasetsLocation + "abalone.arff");
+        Matrix length = dataset.view(0, 1, dataset.rows(), 1);
+        double[][] rows = new double[length.rows()][];
+        for (int i = 0; i < rows.length; ++i)
+        {
+            rows[i] = length.row(i);
+        }
+        Cluster manhattan = new Cluster(rows[0], length, DistanceKernel.create(length, DistanceKernel.Metric.MANHATTAN));
+        Cluster squared = new Cluster(rows[0], length, DistanceKernel.create(length, DistanceKernel.Metric.SQUARED_EUCLIDEAN));
+        for (int trial = 0; trial < 5; ++trial)
+        {
+            assertArrayEquals(new Seeding(rows, manhattan, new Random(trial), false).plusPlus(6),
+                    new Seeding(rows, squared, new Random(trial), false).plusPlus(6));
+            assertArrayEquals(new Seeding(rows, manhattan, new Random(trial), false).parallel(6, 2, 5),
+                    new Seeding(rows, squared, new Random(trial), false).parallel(6, 2, 5));
+        }
+    }
+
+    /**
+     * The sum of the distances from every row to its nearest seed.
+     */
+    private static double cost(double[][] rows, Cluster metric, int[] seeds)
+    {
+        double cost = 0;
+        for (double[] row : rows)
+        {
+            double nearest = Double.MAX_VALUE;
+            for (int seed : seeds)
+            {
+                nearest = Math.min(nearest, metric.calcDistance(row, rows[seed]));
+            }
+            cost += nearest;
+        }
+        return cost;
+    }
+}
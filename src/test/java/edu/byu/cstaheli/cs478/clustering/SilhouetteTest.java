@@ -0,0 +1,79 @@
+package edu.byu.cstaheli.cs478.clustering;
+
+import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link Silhouette}.
+ */
+class SilhouetteTest
+{
+    private static String datasetsLocation = "src/test/resources/datasets/clustering/";
+
+    @Test
+    void calculate() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "labor_data.arff");
+        int k = 3;
+        List<Cluster> clusters = new ArrayList<>(k);
+        for (int i = 0; i < k; ++i)
+        {
+            clusters.add(new Cluster(dataset.row(i), dataset));
+        }
+        double[][] rows = new double[dataset.rows()][];
+        int[] assignments = new int[dataset.rows()];
+        for (int i = 0; i < rows.length; ++i)
+        {
+            rows[i] = dataset.row(i);
+            assignments[i] = i % k;
+            clusters.get(assignments[i])
+                    .add(rows[i]);
+        }
+
+        double expected = 0;
+        for (Cluster cluster : clusters)
+        {
+            double externalDissimilarity = Double.MAX_VALUE;
+            for (Cluster other : clusters)
+            {
+                if (other != cluster)
+                {
+                    externalDissimilarity = Math.min(externalDissimilarity, cluster.calculateAverageExternalDissimilarity(other));
+                }
+            }
+            expected += Silhouette.silhouette(cluster.calculateAverageInternalDissimilarity(), externalDissimilarity);
+        }
+        expected /= k;
+
+        assertEquals(expected, new Silhouette(rows, clusters.get(0), 0, new Random(), false).calculate(assignments, k));
+        Silhouette cached = new Silhouette(rows, clusters.get(0), 0, new Random(), true);
+        assertTrue(cached.isCached());
+        assertEquals(expected, cached.calculate(assignments, k));
+        assertEquals(expected, new Silhouette(rows, clusters.get(0), rows.length, new Random(), false).calculate(assignments, k));
+    }
+
+    @Test
+    void sampled() throws Exception
+    {
+        Matrix dataset = new Matrix(datasetsLocation + "abalone.arff");
+        Cluster metric = new Cluster(dataset.row(0), dataset);
+        double[][] rows = new double[dataset.rows()][];
+        int[] assignments = new int[dataset.rows()];
+        for (int i = 0; i < rows.length; ++i)
+        {
+            rows[i] = dataset.row(i);
+            // Split on the number of rings, so the clusters are reasonably tight
+            assignments[i] = rows[i][rows[i].length - 1] < 10 ? 0 : 1;
+        }
+        double exact = new Silhouette(rows, metric, 0, new Random(), false).calculate(assignments, 2);
+        double sampled = new Silhouette(rows, metric, 100, new Random(3), false).calculate(assignments, 2);
+        assertEquals(exact, sampled, 0.05);
+    }
+}
@@ -3,15 +3,17 @@ package edu.byu.cstaheli.cs478.decision_tree;
 import edu.byu.cstaheli.cs478.decision_tree.node.FeatureNode;
 import edu.byu.cstaheli.cs478.toolkit.MLSystemManager;
 import edu.byu.cstaheli.cs478.toolkit.utility.Matrix;
+import edu.byu.cstaheli.cs478.toolkit.utility.Utility;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Arrays;
 
 import static edu.byu.cstaheli.cs478.other.Other.assertNumberBetween;
 import static edu.byu.cstaheli.cs478.other.Other.assertNumbersEqualWithEpsilon;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -57,43 +59,6 @@ public class DecisionTreeTest
         DecisionTree tree = new DecisionTree();
     }
 
-    @Test
-    void getMostProbable() throws Exception
-    {
-        Map<Double, Integer> outputDistribution = new TreeMap<>();
-        outputDistribution.put(0.0, 5);
-        outputDistribution.put(1.0, 15);
-        outputDistribution.put(2.0, 14);
-        DecisionTree tree = new DecisionTree();
-        double mostProbable = tree.getMostProbable(outputDistribution);
-        assertEquals(1.0, mostProbable);
-        outputDistribution.put(3.0, 15);
-        mostProbable = tree.getMostProbable(outputDistribution);
-        assertEquals(1.0, mostProbable);
-        outputDistribution.put(4.0, 16);
-        mostProbable = tree.getMostProbable(outputDistribution);
-        assertEquals(4.0, mostProbable);
-    }
-
-    @Test
-    void getPureClassIfAny() throws Exception
-    {
-        Map<Double, Integer> outputDistribution = new TreeMap<>();
-        outputDistribution.put(0.0, 5);
-        outputDistribution.put(1.0, 15);
-        outputDistribution.put(2.0, 14);
-        DecisionTree tree = new DecisionTree();
-        Map.Entry<Double, Integer> pureClassIfAny = tree.getPureClassIfAny(outputDistribution);
-        assertEquals(null, pureClassIfAny);
-
-        outputDistribution = new TreeMap<>();
-        outputDistribution.put(0.0, 0);
-        outputDistribution.put(1.0, 0);
-        outputDistribution.put(2.0, 14);
-        pureClassIfAny = tree.getPureClassIfAny(outputDistribution);
-        assertEquals(2.0, (double) pureClassIfAny.getKey());
-    }
-
     @Test
     void getBestFeature() throws Exception
     {
@@ -116,6 +81,24 @@ public class DecisionTreeTest
         assertNumberBetween(outputInformation, 1.530, 1.531);
     }
 
+    @Test
+    void getOutputClass() throws Exception
+    {
+        Matrix matrix = new Matrix(datasetsLocation + "tennis.arff");
+        DecisionTree tree = new DecisionTree();
+        FeatureNode root = (FeatureNode) tree.populateDecisionTree(matrix);
+        assertThrows(IllegalStateException.class, () -> root.getOutputClass(new double[matrix.cols() - 1]));
+        root.mapColumns(Utility.identityColumns(matrix.cols() - 1));
+        for (int i = 0; i < matrix.rows(); ++i)
+        {
+            double[] row = matrix.row(i);
+            double[] features = Arrays.copyOf(row, row.length - 1);
+            assertEquals(row[row.length - 1], root.getOutputClass(features));
+            // The row isn't changed or copied on the way down the tree
+            assertArrayEquals(Arrays.copyOf(row, row.length - 1), features);
+        }
+    }
+
     @Test
     void calculateFeatureInformation() throws Exception
     {
@@ -0,0 +1,269 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks the arff reader against the Scanner based parsing it replaced. {@link #main(String[])} times the two against
+ * each other.
+ */
+class ArffReaderTest
+{
+    private static String[] datasetsLocations = {"src/test/resources/datasets/", "src/main/resources/datasets/"};
+    private static String[] benchmarkDatasets = {
+            "src/test/resources/datasets/nearest_neighbor/magicTelescopeTraining.arff",
+            "src/test/resources/datasets/nearest_neighbor/magicTelescopeTesting.arff",
+            "src/test/resources/datasets/clustering/abalone.arff",
+            "src/test/resources/datasets/nearest_neighbor/credit.arff"
+    };
+
+    @Test
+    void readsTheSameAsScanner() throws Exception
+    {
+        List<File> files = new ArrayList<>();
+        for (String location : datasetsLocations)
+        {
+            findArffFiles(new File(location), files);
+        }
+        assertFalse(files.isEmpty());
+        for (File file : files)
+        {
+            Matrix matrix = new Matrix(file.getPath());
+            List<double[]> expected = ScannerArffLoader.load(file.getPath());
+            assertEquals(expected.size(), matrix.rows(), file.getPath());
+            for (int i = 0; i < expected.size(); ++i)
+            {
+                assertArrayEquals(expected.get(i), matrix.row(i), file.getPath() + " row " + i);
+            }
+        }
+    }
+
+    @Test
+    void parallelReadsTheSame() throws Exception
+    {
+        List<File> files = new ArrayList<>();
+        for (String location : datasetsLocations)
+        {
+            findArffFiles(new File(location), files);
+        }
+        for (File file : files)
+        {
+            Matrix parallel = new Matrix();
+            parallel.doParallelLoad();
+            parallel.loadArff(file.getPath());
+            assertEquals(new Matrix(file.getPath()).toString(), parallel.toString(), file.getPath());
+        }
+
+        // Big enough to be cut into several chunks, with comments, blank lines and both kinds of line breaks
+        File big = File.createTempFile("parallel", ".arff");
+        big.deleteOnExit();
+        try (Writer writer = new BufferedWriter(new FileWriter(big)))
+        {
+            writer.write("@RELATION big\n@ATTRIBUTE x REAL\n@ATTRIBUTE y {a, b, c}\n@DATA\n");
+            Random random = new Random(0);
+            for (int i = 0; i < 300000; ++i)
+            {
+                writer.write(random.nextDouble() + ", " + "abc".charAt(i % 3) + (i % 2 == 0 ? "\r\n" : "\n"));
+                if (i % 1000 == 0)
+                {
+                    writer.write("% comment\n\n");
+                }
+            }
+        }
+        Matrix parallel = new Matrix(StorageType.COLUMNS);
+        parallel.doParallelLoad();
+        parallel.loadArff(big.getPath());
+        assertEquals(300000, parallel.rows());
+        MatrixTest.assertMatricesEqual(new Matrix(big.getPath()), parallel);
+    }
+
+    @Test
+    void parseDouble()
+    {
+        String[] numbers = {"0", "-0", "1", "-1", "0.1", "3.14159", "-2.5e-3", "1E10", "6.02214076e23", ".5", "5.",
+                "+7", "123456789012345678", "1234567890123456789", "0.000000000000000000001", "9007199254740993",
+                "1e-400", "1e400", "NaN", "-Infinity", "2.0d", "0x1p3", "00012.3400"};
+        for (String number : numbers)
+        {
+            byte[] bytes = number.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(Double.parseDouble(number), ArffLineParser.parseDouble(bytes, 0, bytes.length), number);
+        }
+    }
+
+    /**
+     * Times the two against each other. This only prints the times, so it is run by hand rather than with the tests.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int repetitions = 5;
+        for (String fileName : benchmarkDatasets)
+        {
+            // Warm up both paths before timing them
+            ScannerArffLoader.load(fileName);
+            new Matrix(fileName);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < repetitions; ++i)
+            {
+                ScannerArffLoader.load(fileName);
+            }
+            double scannerMillis = (System.nanoTime() - start) / 1e6 / repetitions;
+
+            start = System.nanoTime();
+            for (int i = 0; i < repetitions; ++i)
+            {
+                new Matrix(fileName);
+            }
+            double readerMillis = (System.nanoTime() - start) / 1e6 / repetitions;
+
+            start = System.nanoTime();
+            for (int i = 0; i < repetitions; ++i)
+            {
+                Matrix matrix = new Matrix();
+                matrix.doParallelLoad();
+                matrix.loadArff(fileName);
+            }
+            double parallelMillis = (System.nanoTime() - start) / 1e6 / repetitions;
+            System.out.printf("%s: Scanner %.1f ms, ArffReader %.1f ms (%.1fx), ParallelArffReader %.1f ms (%.1fx)\n", new File(fileName).getName(), scannerMillis, readerMillis, scannerMillis / readerMillis, parallelMillis, scannerMillis / parallelMillis);
+        }
+    }
+
+    private static void findArffFiles(File directory, List<File> files)
+    {
+        File[] children = directory.listFiles();
+        if (children == null)
+        {
+            return;
+        }
+        for (File child : children)
+        {
+            if (child.isDirectory())
+            {
+                findArffFiles(child, files);
+            }
+            else if (child.getName().endsWith(".arff"))
+            {
+                files.add(child);
+            }
+        }
+    }
+
+    /**
+     * The Scanner based parsing that Matrix.loadArff used to do, kept as a reference.
+     */
+    private static class ScannerArffLoader
+    {
+        static List<double[]> load(String fileName) throws FileNotFoundException
+        {
+            List<double[]> data = new ArrayList<>();
+            List<Map<String, Integer>> strToEnum = new ArrayList<>();
+            boolean readData = false;
+            Scanner s = new Scanner(new File(fileName));
+            while (s.hasNext())
+            {
+                String line = s.nextLine()
+                        .trim();
+                if (line.length() > 0 && line.charAt(0) != '%')
+                {
+                    if (!readData)
+                    {
+                        String firstToken = new Scanner(line).next()
+                                .toUpperCase();
+                        if (firstToken.equals("@ATTRIBUTE"))
+                        {
+                            strToEnum.add(readAttribute(line));
+                        }
+                        if (firstToken.equals("@DATA"))
+                        {
+                            readData = true;
+                        }
+                    }
+                    else
+                    {
+                        data.add(readRow(line, strToEnum));
+                    }
+                }
+            }
+            return data;
+        }
+
+        private static Map<String, Integer> readAttribute(String line)
+        {
+            Map<String, Integer> ste = new TreeMap<>();
+            Scanner u = new Scanner(line);
+            if (line.contains("'"))
+            {
+                u.useDelimiter("'");
+            }
+            u.next();
+            u.next();
+            String type = u.next()
+                    .trim()
+                    .toUpperCase();
+            if (!type.equals("REAL") && !type.equals("CONTINUOUS") && !type.equals("INTEGER"))
+            {
+                String values = line.substring(line.indexOf("{") + 1, line.indexOf("}"));
+                Scanner v = new Scanner(values);
+                v.useDelimiter(",");
+                int vals = 0;
+                while (v.hasNext())
+                {
+                    String value = v.next()
+                            .trim();
+                    if (value.length() > 0)
+                    {
+                        ste.put(value, vals++);
+                    }
+                }
+            }
+            return ste;
+        }
+
+        private static double[] readRow(String line, List<Map<String, Integer>> strToEnum)
+        {
+            double[] newRow = new double[strToEnum.size()];
+            Scanner scanner = new Scanner(line)
+                    .useDelimiter(",");
+            int curPos = 0;
+            while (scanner.hasNext())
+            {
+                String textValue = scanner.next()
+                        .trim();
+                if (textValue.length() > 0)
+                {
+                    if (textValue.equals("?"))
+                    {
+                        newRow[curPos] = Matrix.MISSING;
+                    }
+                    else if (strToEnum.get(curPos).isEmpty())
+                    {
+                        newRow[curPos] = Double.parseDouble(textValue);
+                    }
+                    else
+                    {
+                        newRow[curPos] = strToEnum.get(curPos)
+                                .get(textValue);
+                    }
+                    curPos++;
+                }
+            }
+            return newRow;
+        }
+    }
+}
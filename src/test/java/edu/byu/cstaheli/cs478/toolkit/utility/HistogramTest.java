@@ -0,0 +1,61 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link Histogram}.
+ */
+class HistogramTest
+{
+    @Test
+    void matchesTreeMap()
+    {
+        Random random = new Random(11);
+        double[] specialValues = {Matrix.MISSING, -0.0, 0.0, Double.NaN, -1, 2.5, 1e300, 7};
+        Histogram histogram = new Histogram(5);
+        Map<Double, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 10000; ++i)
+        {
+            double value = random.nextBoolean() ? random.nextInt(5) : specialValues[random.nextInt(specialValues.length)];
+            if (random.nextInt(10) == 0)
+            {
+                value = random.nextGaussian();
+            }
+            histogram.add(value);
+            expected.merge(value, 1, (a, b) -> a + b);
+        }
+
+        assertEquals(expected.size(), histogram.size());
+        double[] keys = histogram.keys();
+        int[] counts = histogram.counts(keys);
+        int index = 0;
+        for (Map.Entry<Double, Integer> entry : expected.entrySet())
+        {
+            assertEquals(entry.getKey(), (Double) keys[index]);
+            assertEquals((int) entry.getValue(), counts[index]);
+            ++index;
+        }
+        assertEquals(0, histogram.get(3.5));
+    }
+
+    @Test
+    void mostCommon()
+    {
+        Histogram histogram = new Histogram(3);
+        assertEquals(-1, histogram.mostCommon(-1));
+        histogram.add(2, 4);
+        histogram.add(1, 4);
+        histogram.add(-3, 2);
+        assertEquals(1, histogram.mostCommon(-1));
+        histogram.add(-3, 3);
+        assertEquals(-3, histogram.mostCommon(-1));
+        assertArrayEquals(new double[]{-3, 1, 2}, histogram.keys());
+    }
+}
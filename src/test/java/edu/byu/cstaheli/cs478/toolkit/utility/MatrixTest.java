@@ -0,0 +1,253 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import edu.byu.cstaheli.cs478.toolkit.exception.ARFFParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link Matrix}.
+ */
+class MatrixTest
+{
+    private static String datasetsLocation = "src/test/resources/datasets/";
+
+    @Test
+    void columnStorageMatchesRowStorage() throws Exception
+    {
+        Matrix rows = new Matrix(datasetsLocation + "clustering/labor_data.arff");
+        Matrix columns = new Matrix(datasetsLocation + "clustering/labor_data.arff", StorageType.COLUMNS);
+        assertEquals(StorageType.COLUMNS, columns.getStorageType());
+        assertMatricesEqual(rows, columns);
+        for (int i = 0; i < rows.cols(); ++i)
+        {
+            assertEquals(rows.columnMean(i), columns.columnMean(i));
+            assertEquals(rows.columnMin(i), columns.columnMin(i));
+            assertEquals(rows.columnMax(i), columns.columnMax(i));
+            assertEquals(rows.getColumnOccurrences(i), columns.getColumnOccurrences(i));
+        }
+
+        rows.shuffle(new Random(7));
+        columns.shuffle(new Random(7));
+        rows.removeColumn(3);
+        columns.removeColumn(3);
+        rows.set(2, 2, 42);
+        columns.set(2, 2, 42);
+        assertMatricesEqual(rows, columns);
+        assertMatricesEqual(rows.getRowsWithColumnClass(0, 1), columns.getRowsWithColumnClass(0, 1));
+    }
+
+    @Test
+    void view() throws Exception
+    {
+        Matrix matrix = new Matrix(datasetsLocation + "clustering/labor_data.arff");
+        Matrix features = matrix.view(2, 0, 10, matrix.cols() - 1);
+        assertMatricesEqual(new Matrix(matrix, 2, 0, 10, matrix.cols() - 1), features);
+        assertEquals(matrix.attrName(0), features.attrName(0));
+
+        Matrix labels = matrix.view(0, matrix.cols() - 1, matrix.rows(), 1).view(2, 0, 10, 1);
+        assertEquals(matrix.get(5, matrix.cols() - 1), labels.get(3, 0));
+        assertEquals(1, labels.cols());
+
+        features.set(0, 1, 99);
+        assertEquals(99, matrix.get(2, 1));
+        assertSame(matrix.row(4), matrix.view(0, 0, matrix.rows(), matrix.cols()).row(4));
+        assertThrows(IndexOutOfBoundsException.class, () -> matrix.view(0, 0, matrix.rows() + 1, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> features.get(0, features.cols()));
+        assertThrows(IndexOutOfBoundsException.class, () -> labels.set(0, 1, 0));
+        assertThrows(UnsupportedOperationException.class, () -> features.shuffle(new Random()));
+    }
+
+    @Test
+    void mappedStorage() throws Exception
+    {
+        for (String fileName : new String[]{"clustering/labor_data.arff", "nearest_neighbor/magicTelescopeTesting.arff"})
+        {
+            Matrix rows = new Matrix(datasetsLocation + fileName);
+            Matrix mapped = new Matrix(datasetsLocation + fileName, StorageType.MAPPED);
+            assertEquals(StorageType.MAPPED, mapped.getStorageType());
+            assertEquals(rows.toString(), mapped.toString());
+            assertEquals(rows.columnMean(1), mapped.columnMean(1));
+
+            rows.shuffle(new Random(3));
+            mapped.shuffle(new Random(3));
+            assertMatricesEqual(rows, mapped);
+            assertMatricesEqual(rows, new Matrix(mapped));
+            assertEquals(StorageType.ROWS, new Matrix(mapped).getStorageType());
+            assertThrows(UnsupportedOperationException.class, () -> mapped.set(0, 0, 1));
+        }
+    }
+
+    @Test
+    void mappedStorageAfterShuffleOnAnotherThread() throws Exception
+    {
+        String fileName = datasetsLocation + "clustering/labor_data.arff";
+        Matrix rows = new Matrix(fileName);
+        Matrix mapped = new Matrix(fileName, StorageType.MAPPED);
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try
+        {
+            // The worker caches the rows it reads, then the main thread reorders them
+            for (int i = 0; i < mapped.rows(); ++i)
+            {
+                int row = i;
+                assertEquals(rows.get(row, 1), worker.submit(() -> mapped.get(row, 1))
+                        .get());
+            }
+            rows.shuffle(new Random(5));
+            mapped.shuffle(new Random(5));
+            for (int i = 0; i < mapped.rows(); ++i)
+            {
+                int row = i;
+                assertEquals(rows.get(row, 1), worker.submit(() -> mapped.get(row, 1))
+                        .get());
+                assertEquals(rows.get(row, 1), mapped.get(row, 1));
+            }
+        }
+        finally
+        {
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    void mappedStorageRejectsTooManyValues() throws Exception
+    {
+        File file = File.createTempFile("matrix", ".arff");
+        file.deleteOnExit();
+        try (FileWriter writer = new FileWriter(file))
+        {
+            writer.write("@relation broken\n@attribute a real\n@attribute b real\n@data\n1,2\n3,4,5\n");
+        }
+        assertThrows(ARFFParseException.class, () -> new Matrix(file.getPath(), StorageType.MAPPED));
+    }
+
+    @Test
+    void columnStatistics() throws Exception
+    {
+        Matrix matrix = new Matrix(datasetsLocation + "clustering/labor_data.arff");
+        ColumnStatistics statistics = matrix.getColumnStatistics();
+        for (int j = 0; j < matrix.cols(); ++j)
+        {
+            double sum = 0;
+            int count = 0;
+            double min = Matrix.MISSING;
+            double max = Matrix.MISSING;
+            for (int i = 0; i < matrix.rows(); ++i)
+            {
+                double value = matrix.get(i, j);
+                if (value != Matrix.MISSING)
+                {
+                    sum += value;
+                    ++count;
+                    min = min == Matrix.MISSING ? value : Math.min(min, value);
+                    max = max == Matrix.MISSING ? value : Math.max(max, value);
+                }
+            }
+            double mean = sum / count;
+            double squares = 0;
+            for (int i = 0; i < matrix.rows(); ++i)
+            {
+                double value = matrix.get(i, j);
+                if (value != Matrix.MISSING)
+                {
+                    squares += (value - mean) * (value - mean);
+                }
+            }
+            assertEquals(count, statistics.count(j));
+            assertEquals(matrix.rows() - count, statistics.missingCount(j));
+            assertEquals(mean, statistics.mean(j));
+            assertEquals(squares / count, statistics.variance(j), 1e-9 * Math.max(1, squares / count));
+            assertEquals(min, statistics.min(j));
+            assertEquals(max, statistics.max(j));
+        }
+        assertSame(statistics, matrix.getColumnStatistics());
+
+        Matrix view = matrix.view(0, 0, matrix.rows(), matrix.cols());
+        ColumnStatistics viewStatistics = view.getColumnStatistics();
+        matrix.set(0, 1, 1000);
+        assertEquals(1000, matrix.columnMax(1));
+        assertEquals(1000, view.columnMax(1));
+        assertNotSame(viewStatistics, view.getColumnStatistics());
+    }
+
+    @Test
+    void binRealValuesWithMissingValues() throws Exception
+    {
+        String fileName = datasetsLocation + "clustering/labor_data.arff";
+        Matrix matrix = new Matrix(fileName);
+        Matrix binned = new Matrix();
+        binned.doBinRealValues();
+        binned.load(fileName);
+        // The second year wage increase has missing values
+        int col = 3;
+        assertTrue(matrix.getColumnStatistics()
+                .missingCount(col) > 0);
+        double mean = matrix.columnMean(col);
+        double squares = 0;
+        for (int i = 0; i < matrix.rows(); ++i)
+        {
+            double value = matrix.get(i, col);
+            if (value != Matrix.MISSING)
+            {
+                squares += (value - mean) * (value - mean);
+            }
+        }
+        double standardDeviation = Math.sqrt(squares / matrix.rows());
+        for (int i = 0; i < matrix.rows(); ++i)
+        {
+            double value = matrix.get(i, col);
+            if (value != Matrix.MISSING)
+            {
+                assertEquals((int) ((value - mean) / standardDeviation), binned.get(i, col));
+            }
+        }
+    }
+
+    @Test
+    void binaryFormat() throws Exception
+    {
+        File file = File.createTempFile("matrix", ".bin");
+        file.deleteOnExit();
+        for (String fileName : new String[]{"clustering/labor_data.arff", "nearest_neighbor/magicTelescopeTesting.arff", "clustering/iris.arff"})
+        {
+            Matrix arff = new Matrix(datasetsLocation + fileName);
+            BinaryMatrix.write(arff, file.getPath());
+            assertTrue(BinaryMatrix.isBinaryMatrix(file.getPath()));
+            assertFalse(BinaryMatrix.isBinaryMatrix(datasetsLocation + fileName));
+
+            Matrix binary = new Matrix(file.getPath());
+            assertEquals(arff.toString(), binary.toString());
+            assertEquals(arff.getStringRepresentations(), binary.getStringRepresentations());
+
+            Matrix mapped = new Matrix(file.getPath(), StorageType.MAPPED);
+            assertEquals(arff.toString(), mapped.toString());
+            arff.shuffle(new Random(5));
+            mapped.shuffle(new Random(5));
+            assertMatricesEqual(arff, mapped);
+            assertThrows(UnsupportedOperationException.class, () -> mapped.set(0, 0, 1));
+        }
+    }
+
+    static void assertMatricesEqual(Matrix expected, Matrix actual)
+    {
+        assertEquals(expected.rows(), actual.rows());
+        assertEquals(expected.cols(), actual.cols());
+        for (int i = 0; i < expected.rows(); ++i)
+        {
+            assertArrayEquals(expected.row(i), actual.row(i));
+        }
+    }
+}
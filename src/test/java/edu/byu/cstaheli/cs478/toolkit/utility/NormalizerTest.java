@@ -0,0 +1,103 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link Normalizer}.
+ */
+class NormalizerTest
+{
+    private static String datasetsLocation = "src/test/resources/datasets/";
+
+    @Test
+    void usesTheTrainingRanges() throws Exception
+    {
+        Matrix training = new Matrix(datasetsLocation + "nearest_neighbor/housingTraining.arff");
+        Matrix testing = new Matrix(datasetsLocation + "nearest_neighbor/housingTesting.arff");
+        double min = training.columnMin(0);
+        double max = training.columnMax(0);
+        double value = testing.get(0, 0);
+
+        Normalizer normalizer = training.normalize();
+        assertEquals(0, training.columnMin(0));
+        assertEquals(1, training.columnMax(0));
+
+        double[] row = testing.row(1).clone();
+        normalizer.apply(testing);
+        assertEquals((value - min) / (max - min), testing.get(0, 0));
+
+        normalizer.apply(row);
+        assertArrayEquals(testing.row(1), row);
+        assertThrows(IllegalArgumentException.class, () -> normalizer.apply(new double[1]));
+    }
+
+    @Test
+    void zScore() throws Exception
+    {
+        Matrix matrix = new Matrix(datasetsLocation + "clustering/labor_data.arff");
+        Normalizer normalizer = Normalizer.fit(matrix, Normalizer.Type.Z_SCORE);
+        normalizer.apply(matrix);
+        ColumnStatistics statistics = matrix.getColumnStatistics();
+        for (int i = 0; i < matrix.cols(); ++i)
+        {
+            if (matrix.valueCount(i) == 0)
+            {
+                assertEquals(0, statistics.mean(i), 1e-9);
+                assertEquals(1, statistics.standardDeviation(i), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void constantColumns() throws Exception
+    {
+        Matrix matrix = new Matrix();
+        matrix.setSize(3, 2);
+        for (int i = 0; i < 3; ++i)
+        {
+            matrix.set(i, 0, 5);
+            matrix.set(i, 1, i);
+        }
+        for (Normalizer.Type type : Normalizer.Type.values())
+        {
+            Normalizer normalizer = Normalizer.fit(matrix, type);
+            double[] row = {5, 2};
+            normalizer.apply(row);
+            assertEquals(0, row[0]);
+            assertTrue(Double.isFinite(row[1]));
+        }
+    }
+
+    @Test
+    void serializable() throws Exception
+    {
+        Matrix matrix = new Matrix(datasetsLocation + "clustering/iris.arff");
+        Normalizer normalizer = Normalizer.fit(matrix);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes))
+        {
+            output.writeObject(normalizer);
+        }
+        Normalizer copy;
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            copy = (Normalizer) input.readObject();
+        }
+        double[] expected = matrix.row(3).clone();
+        double[] actual = expected.clone();
+        normalizer.apply(expected);
+        copy.apply(actual);
+        assertArrayEquals(expected, actual);
+        assertEquals(Normalizer.Type.MIN_MAX, copy.getType());
+    }
+}
@@ -0,0 +1,49 @@
+package edu.byu.cstaheli.cs478.toolkit.utility;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link RowSource}.
+ */
+class RowSourceTest
+{
+    private static String datasetsLocation = "src/test/resources/datasets/clustering/";
+
+    @Test
+    void streamsTheSameRows() throws Exception
+    {
+        Matrix matrix = new Matrix(datasetsLocation + "labor_data.arff");
+        RowSource[] sources = {new ArffRowSource(datasetsLocation + "labor_data.arff"), new MatrixRowSource(matrix)};
+        for (RowSource source : sources)
+        {
+            assertEquals(matrix.cols(), source.getHeader()
+                    .cols());
+            for (int column = 0; column < matrix.cols(); ++column)
+            {
+                assertEquals(matrix.valueCount(column), source.getHeader()
+                        .valueCount(column));
+            }
+            // Every pass starts from the first row again
+            for (int pass = 0; pass < 2; ++pass)
+            {
+                double[][] block = new double[7][];
+                int rows = 0;
+                try (RowSource.Pass rowPass = source.open())
+                {
+                    int count;
+                    while ((count = rowPass.read(block)) > 0)
+                    {
+                        for (int i = 0; i < count; ++i)
+                        {
+                            assertArrayEquals(matrix.row(rows++), block[i]);
+                        }
+                    }
+                }
+                assertEquals(matrix.rows(), rows);
+            }
+        }
+    }
+}